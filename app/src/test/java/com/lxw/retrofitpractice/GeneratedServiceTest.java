@@ -0,0 +1,59 @@
+package com.lxw.retrofitpractice;
+
+import com.lxw.retrofit.Call;
+import com.lxw.retrofit.Retrofit;
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.Path;
+import com.lxw.retrofit.http.Query;
+
+import org.junit.Test;
+
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/03
+ *     desc   : 编译期生成的 _Impl 在参数名、方法名和生成代码里的标识符相同时仍能编译并正确调用
+ * </pre>
+ */
+public class GeneratedServiceTest {
+    /** Parameter and method names that the generated code also used before it prefixed them. */
+    public interface Clashing {
+        @GET("users/{retrofit}")
+        Call<ResponseBody> user(@Path("retrofit") String retrofit,
+                                @Query("serviceMethod") String serviceMethod);
+
+        @GET("retrofit")
+        Call<ResponseBody> retrofit();
+
+        @GET("serviceMethod")
+        Call<ResponseBody> serviceMethod(@Query("retrofit") int retrofit);
+    }
+
+    private final Retrofit retrofit = new Retrofit.Builder()
+            .baseUrl("http://example.com/")
+            .build();
+
+    @Test
+    public void generatedImplementationIsUsed() {
+        Clashing service = retrofit.create(Clashing.class);
+        assertEquals(GeneratedServiceTest.class.getName() + "_Clashing_Impl",
+                service.getClass().getName());
+    }
+
+    @Test
+    public void parametersNamedLikeGeneratedIdentifiers() {
+        Clashing service = retrofit.create(Clashing.class);
+
+        Request request = service.user("a", "b").request();
+        assertEquals("http://example.com/users/a?serviceMethod=b", request.url().toString());
+        assertEquals("http://example.com/retrofit", service.retrofit().request().url().toString());
+        assertEquals("http://example.com/serviceMethod?retrofit=1",
+                service.serviceMethod(1).request().url().toString());
+    }
+}
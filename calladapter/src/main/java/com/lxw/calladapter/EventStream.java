@@ -0,0 +1,280 @@
+package com.lxw.calladapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.lxw.retrofit.Converter;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : text/event-stream 连接。连接断开或服务端结束时按 retry 间隔带 Last-Event-ID 重连，
+ *              直到 close、服务端返回 204 或出现不可恢复的错误
+ * </pre>
+ */
+public final class EventStream<T> {
+    private static final long DEFAULT_RETRY_MILLIS = 3000L;
+    private static final ScheduledExecutorService RECONNECT_SCHEDULER =
+            new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    Thread thread = new Thread(runnable, "EventStream reconnect");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    public interface Listener<T> {
+        void onEvent(EventStream<T> stream, ServerSentEvent<T> event);
+
+        /**
+         * The stream stopped for good: the server answered with an error status or a content
+         * type other than {@code text/event-stream}, or an event could not be converted.
+         */
+        void onFailure(EventStream<T> stream, Throwable t);
+
+        /** The stream stopped for good after {@link #close()} or a 204 from the server. */
+        void onClosed(EventStream<T> stream);
+    }
+
+    private final Request request;
+    private final Call.Factory callFactory;
+    private final Converter<ResponseBody, T> converter;
+    private final @Nullable
+    Executor callbackExecutor;
+
+    private Listener<T> listener;
+    private boolean started;
+    private boolean closed;
+    private @Nullable
+    Call call;
+    private @Nullable
+    ScheduledFuture<?> pendingReconnect;
+    private volatile @Nullable
+    String lastEventId;
+    private volatile long retryMillis = DEFAULT_RETRY_MILLIS;
+
+    EventStream(Request request, Call.Factory callFactory,
+                Converter<ResponseBody, T> converter, @Nullable Executor callbackExecutor) {
+        this.request = request;
+        this.callFactory = callFactory;
+        this.converter = converter;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Connects and delivers events to {@code listener}, on the callback executor if the
+     * {@code Retrofit} instance has one.
+     */
+    public void start(Listener<T> listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener == null");
+        }
+        synchronized (this) {
+            if (started) {
+                throw new IllegalStateException("Already started.");
+            }
+            started = true;
+            this.listener = listener;
+        }
+        connect();
+    }
+
+    /** Disconnects and stops reconnecting. Events not yet delivered are dropped. */
+    public void close() {
+        Call call;
+        ScheduledFuture<?> reconnect;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            call = this.call;
+            reconnect = pendingReconnect;
+        }
+        if (call != null) {
+            call.cancel();
+        }
+        if (reconnect != null) {
+            reconnect.cancel(false);
+        }
+        if (started) {
+            deliver(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onClosed(EventStream.this);
+                }
+            });
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /** The id sent with the next reconnect, or null if the server has not sent one yet. */
+    @Nullable
+    public String lastEventId() {
+        return lastEventId;
+    }
+
+    public Request request() {
+        return request;
+    }
+
+    private void connect() {
+        Request.Builder builder = request.newBuilder()
+                .header("Accept", "text/event-stream")
+                .header("Cache-Control", "no-cache");
+        String id = lastEventId;
+        if (id != null && !id.isEmpty()) {
+            builder.header("Last-Event-ID", id);
+        }
+        Call call = callFactory.newCall(builder.build());
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            this.call = call;
+            pendingReconnect = null;
+        }
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                reconnect();
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+                read(response);
+            }
+        });
+    }
+
+    private void read(Response response) {
+        try {
+            if (response.code() == 204) {
+                close();
+                return;
+            }
+            if (!response.isSuccessful()) {
+                fail(new IOException("HTTP " + response.code() + " " + response.message()));
+                return;
+            }
+            ResponseBody body = response.body();
+            MediaType contentType = body.contentType();
+            if (contentType == null || !"text".equals(contentType.type())
+                    || !"event-stream".equals(contentType.subtype())) {
+                fail(new IOException("Expected text/event-stream but was " + contentType));
+                return;
+            }
+            ServerSentEventReader reader =
+                    new ServerSentEventReader(body.source(), lastEventId, new EventHandler());
+            while (!isClosed() && reader.processNextEvent()) {
+                // Events are delivered by the handler.
+            }
+        } catch (IOException e) {
+            // The connection dropped; reconnect below.
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            response.close();
+        }
+        reconnect();
+    }
+
+    private void reconnect() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            call = null;
+            pendingReconnect = RECONNECT_SCHEDULER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    connect();
+                }
+            }, retryMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void fail(final Throwable t) {
+        Call call;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            call = this.call;
+        }
+        if (call != null) {
+            call.cancel();
+        }
+        deliver(new Runnable() {
+            @Override
+            public void run() {
+                listener.onFailure(EventStream.this, t);
+            }
+        });
+    }
+
+    private void deliver(Runnable runnable) {
+        Executor executor = callbackExecutor;
+        if (executor != null) {
+            executor.execute(runnable);
+        } else {
+            runnable.run();
+        }
+    }
+
+    private final class EventHandler implements ServerSentEventReader.Handler {
+        @Override
+        public void onEvent(@Nullable String id, @Nullable String type, Buffer data) {
+            T value;
+            try {
+                value = converter.convert(ResponseBody.create(null, data.size(), data));
+            } catch (Exception e) {
+                fail(e);
+                return;
+            }
+            final ServerSentEvent<T> event =
+                    new ServerSentEvent<>(id, type != null ? type : "message", value);
+            deliver(new Runnable() {
+                @Override
+                public void run() {
+                    if (!isClosed()) {
+                        listener.onEvent(EventStream.this, event);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onLastEventId(@Nullable String id) {
+            lastEventId = id;
+        }
+
+        @Override
+        public void onRetryChange(long retryMillis) {
+            EventStream.this.retryMillis = retryMillis;
+        }
+    }
+}
@@ -29,7 +29,7 @@ public class RxJava2CallAdapterFactory extends CallAdapter.Factory {
     public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
         Class<?> rawType = getRawType(returnType);
         if(rawType.isAssignableFrom(Completable.class)){
-            return new RxJava2CallAdapter<>();
+            return new RxJava2CallAdapter<>(Void.class, false, false, false, false, true);
         }
 
 
@@ -0,0 +1,44 @@
+package com.lxw.calladapter;
+
+import android.support.annotation.Nullable;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 一条服务端推送事件，data 已经过转换器转换
+ * </pre>
+ */
+public final class ServerSentEvent<T> {
+    private final @Nullable
+    String id;
+    private final String type;
+    private final T data;
+
+    ServerSentEvent(@Nullable String id, String type, T data) {
+        this.id = id;
+        this.type = type;
+        this.data = data;
+    }
+
+    /** The last {@code id} the stream has sent, or null if it never sent one. */
+    @Nullable
+    public String id() {
+        return id;
+    }
+
+    /** The {@code event} field, {@code "message"} if the event had none. */
+    public String type() {
+        return type;
+    }
+
+    public T data() {
+        return data;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerSentEvent{id=" + id + ", type=" + type + ", data=" + data + "}";
+    }
+}
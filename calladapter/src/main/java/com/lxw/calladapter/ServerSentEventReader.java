@@ -0,0 +1,167 @@
+package com.lxw.calladapter;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 按 text/event-stream 格式从 BufferedSource 增量解析事件；data 字段直接在 Buffer 之间搬运，不逐行创建 String
+ * </pre>
+ */
+final class ServerSentEventReader {
+    private static final ByteString CRLF = ByteString.encodeUtf8("\r\n");
+    private static final ByteString DATA = ByteString.encodeUtf8("data");
+    private static final ByteString ID = ByteString.encodeUtf8("id");
+    private static final ByteString EVENT = ByteString.encodeUtf8("event");
+    private static final ByteString RETRY = ByteString.encodeUtf8("retry");
+
+    interface Handler {
+        /**
+         * Called once per dispatched event. {@code data} holds the payload without the final
+         * line feed; whatever the handler leaves unread is discarded.
+         */
+        void onEvent(@Nullable String id, @Nullable String type, Buffer data) throws IOException;
+
+        /**
+         * Called when an event ends with a different last event id, before {@link #onEvent}. Also
+         * called for an event without data, which is not dispatched but still sets the id.
+         */
+        void onLastEventId(@Nullable String id);
+
+        void onRetryChange(long retryMillis);
+    }
+
+    private final BufferedSource source;
+    private final Handler handler;
+    private final Buffer data = new Buffer();
+    //最后一个 id 字段，跨事件保留；committedEventId 是事件结束时已经交给 handler 的值
+    private @Nullable
+    String lastEventId;
+    private @Nullable
+    String committedEventId;
+    //上一行以 \r 结尾，下一行开头的 \n 属于同一个换行
+    private boolean skipLineFeed;
+
+    ServerSentEventReader(BufferedSource source, @Nullable String lastEventId, Handler handler) {
+        this.source = source;
+        this.lastEventId = lastEventId;
+        this.committedEventId = lastEventId;
+        this.handler = handler;
+    }
+
+    /** Reads until the next event is dispatched. Returns false at the end of the stream. */
+    boolean processNextEvent() throws IOException {
+        boolean hasData = false;
+        String type = null;
+        Buffer buffer = source.buffer();
+        while (true) {
+            if (skipLineFeed) {
+                if (!source.request(1)) {
+                    return false;
+                }
+                if (buffer.getByte(0) == '\n') {
+                    source.skip(1);
+                }
+                skipLineFeed = false;
+            }
+            long lineEnd = source.indexOfElement(CRLF);
+            if (lineEnd == -1) {
+                // A trailing line without a terminator is dropped.
+                return false;
+            }
+
+            if (lineEnd == 0) {
+                skipTerminator();
+                String id = lastEventId;
+                if (id == null ? committedEventId != null : !id.equals(committedEventId)) {
+                    committedEventId = id;
+                    handler.onLastEventId(id);
+                }
+                if (hasData) {
+                    try {
+                        handler.onEvent(lastEventId, type, data);
+                    } finally {
+                        data.clear();
+                    }
+                    return true;
+                }
+                type = null;
+                continue;
+            }
+
+            if (buffer.getByte(0) == ':') {
+                // Comment, typically a keep-alive.
+                source.skip(lineEnd);
+            } else {
+                long colon = buffer.indexOf((byte) ':', 0, lineEnd);
+                long nameLength = colon == -1 ? lineEnd : colon;
+                long valueStart = colon == -1 ? lineEnd : colon + 1;
+                if (valueStart < lineEnd && buffer.getByte(valueStart) == ' ') {
+                    valueStart++;
+                }
+                long valueLength = lineEnd - valueStart;
+                if (isField(DATA, nameLength)) {
+                    if (hasData) {
+                        data.writeByte('\n');
+                    }
+                    hasData = true;
+                    source.skip(valueStart);
+                    data.write(buffer, valueLength);
+                } else if (isField(ID, nameLength)) {
+                    source.skip(valueStart);
+                    String id = source.readUtf8(valueLength);
+                    if (id.indexOf('\u0000') == -1) {
+                        lastEventId = id;
+                    }
+                } else if (isField(EVENT, nameLength)) {
+                    source.skip(valueStart);
+                    type = valueLength == 0 ? null : source.readUtf8(valueLength);
+                } else if (isField(RETRY, nameLength)) {
+                    long retryMillis = parseRetry(valueStart, lineEnd);
+                    if (retryMillis != -1) {
+                        handler.onRetryChange(retryMillis);
+                    }
+                    source.skip(lineEnd);
+                } else {
+                    source.skip(lineEnd);
+                }
+            }
+            skipTerminator();
+        }
+    }
+
+    private boolean isField(ByteString name, long nameLength) throws IOException {
+        return nameLength == name.size() && source.rangeEquals(0, name);
+    }
+
+    /** Returns the value as a number of millis, or -1 unless it is made of ASCII digits only. */
+    private long parseRetry(long start, long end) {
+        Buffer buffer = source.buffer();
+        if (start == end || end - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (long i = start; i < end; i++) {
+            byte b = buffer.getByte(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private void skipTerminator() throws IOException {
+        if (source.readByte() == '\r') {
+            skipLineFeed = true;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.lxw.calladapter;
+
+import android.support.annotation.Nullable;
+
+import com.lxw.retrofit.Call;
+import com.lxw.retrofit.CallAdapter;
+import com.lxw.retrofit.Converter;
+import com.lxw.retrofit.OkHttpCall;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
+
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 只借用 Retrofit Call 构建出的请求，连接与重连都直接走 callFactory，响应体不经过缓冲。
+ *              callFactory 在 adapt 时从 Call 上取，newBuilder() 出来的实例共用同一个 adapter
+ * </pre>
+ */
+final class SseCallAdapter<T> implements CallAdapter<ResponseBody, EventStream<T>> {
+    private final Converter<ResponseBody, T> converter;
+    /** Used for calls that do not come from an {@link OkHttpCall}. */
+    private final okhttp3.Call.Factory callFactory;
+    private final @Nullable
+    Executor callbackExecutor;
+
+    SseCallAdapter(Converter<ResponseBody, T> converter, okhttp3.Call.Factory callFactory,
+                   @Nullable Executor callbackExecutor) {
+        this.converter = converter;
+        this.callFactory = callFactory;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public Type responseType() {
+        return ResponseBody.class;
+    }
+
+    @Override
+    public EventStream<T> adapt(Call<ResponseBody> call) {
+        okhttp3.Call.Factory callFactory = call instanceof OkHttpCall
+                ? ((OkHttpCall<ResponseBody>) call).callFactory()
+                : this.callFactory;
+        return new EventStream<>(call.request(), callFactory, converter, callbackExecutor);
+    }
+}
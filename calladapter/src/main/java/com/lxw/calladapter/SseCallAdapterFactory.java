@@ -0,0 +1,62 @@
+package com.lxw.calladapter;
+
+import android.support.annotation.Nullable;
+
+import com.lxw.retrofit.CallAdapter;
+import com.lxw.retrofit.Converter;
+import com.lxw.retrofit.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 支持 EventStream<T> 返回类型；每条事件的 data 交给已注册的转换器转换，EventStream<String> 不转换
+ * </pre>
+ */
+public class SseCallAdapterFactory extends CallAdapter.Factory {
+
+    public static SseCallAdapterFactory create() {
+        return new SseCallAdapterFactory();
+    }
+
+    private SseCallAdapterFactory() {
+    }
+
+    @Nullable
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != EventStream.class) {
+            return null;
+        }
+        if (!(returnType instanceof ParameterizedType)) {
+            throw new IllegalStateException(
+                    "EventStream return type must be parameterized as EventStream<Foo>");
+        }
+        Type dataType = getParameterUpperBound(0, (ParameterizedType) returnType);
+        if (dataType == String.class) {
+            return new SseCallAdapter<>(StringDataConverter.INSTANCE, retrofit.callFactory(),
+                    retrofit.callbackExecutor());
+        }
+        Converter<ResponseBody, Object> converter =
+                retrofit.responseBodyConverter(dataType, annotations);
+        return new SseCallAdapter<>(converter, retrofit.callFactory(), retrofit.callbackExecutor());
+    }
+
+    /** Reads the data of an {@code EventStream<String>} as is, bypassing the converters. */
+    static final class StringDataConverter implements Converter<ResponseBody, String> {
+        static final StringDataConverter INSTANCE = new StringDataConverter();
+
+        @Override
+        public String convert(ResponseBody value) throws IOException {
+            return value.source().readUtf8();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.lxw.calladapter;
+
+import com.lxw.retrofit.CallAdapter;
+import com.lxw.retrofit.Retrofit;
+import com.lxw.retrofit.http.GET;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : EventStream 对本地服务的连接、带 Last-Event-ID 重连和 204 关闭测试
+ * </pre>
+ */
+public class EventStreamTest {
+    interface Service {
+        @GET("events")
+        EventStream<String> events();
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final AtomicInteger adapterLookups = new AtomicInteger();
+    private Retrofit retrofit;
+
+    @Before
+    public void setUp() throws Exception {
+        server.start();
+        retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .addCallAdapterFactory(new CallAdapter.Factory() {
+                    @Override
+                    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations,
+                                                 Retrofit retrofit) {
+                        adapterLookups.incrementAndGet();
+                        return SseCallAdapterFactory.create().get(returnType, annotations, retrofit);
+                    }
+                })
+                .build();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void eventsThenReconnectWithLastEventIdThen204() throws Exception {
+        // The id-only event at the end is not dispatched but still moves the last event id.
+        server.enqueue(eventStream("retry: 10\nid: 1\ndata: a\n\nid: 2\n\n"));
+        server.enqueue(eventStream("data: b\r\n\r\n"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        EventStream<String> stream = retrofit.create(Service.class).events();
+        stream.start(new Recorder());
+
+        assertEquals("event 1 message a", next());
+        assertEquals("event 2 message b", next());
+        assertEquals("closed", next());
+        assertTrue(stream.isClosed());
+        assertEquals("2", stream.lastEventId());
+
+        RecordedRequest first = server.takeRequest();
+        assertEquals("/events", first.getPath());
+        assertEquals("text/event-stream", first.getHeader("Accept"));
+        assertNull(first.getHeader("Last-Event-ID"));
+        assertEquals("2", server.takeRequest().getHeader("Last-Event-ID"));
+        assertEquals("2", server.takeRequest().getHeader("Last-Event-ID"));
+    }
+
+    @Test
+    public void errorStatusFails() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        retrofit.create(Service.class).events().start(new Recorder());
+
+        assertEquals("failure HTTP 500 Server Error", next());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void wrongContentTypeFails() throws Exception {
+        server.enqueue(new MockResponse().setBody("data: a\n\n")
+                .setHeader("Content-Type", "text/plain"));
+
+        retrofit.create(Service.class).events().start(new Recorder());
+
+        assertEquals("failure Expected text/event-stream but was text/plain", next());
+    }
+
+    @Test
+    public void adapterIsSharedAndUsesTheCallFactoryOfEachInstance() throws Exception {
+        final AtomicInteger tenantCalls = new AtomicInteger();
+        final OkHttpClient client = new OkHttpClient();
+        Retrofit tenant = retrofit.newBuilder()
+                .callFactory(new okhttp3.Call.Factory() {
+                    @Override
+                    public okhttp3.Call newCall(Request request) {
+                        tenantCalls.incrementAndGet();
+                        return client.newCall(request);
+                    }
+                })
+                .build();
+        server.enqueue(eventStream("retry: 10\ndata: a\n\n"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(eventStream("retry: 10\ndata: b\n\n"));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        retrofit.create(Service.class).events().start(new Recorder());
+        assertEquals("event null message a", next());
+        assertEquals("closed", next());
+        tenant.create(Service.class).events().start(new Recorder());
+        assertEquals("event null message b", next());
+        assertEquals("closed", next());
+
+        assertEquals(1, adapterLookups.get());
+        // The raw call request() builds, the connection and the reconnect.
+        assertEquals(3, tenantCalls.get());
+    }
+
+    private static MockResponse eventStream(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(body);
+    }
+
+    private String next() throws InterruptedException {
+        String next = received.poll(5, TimeUnit.SECONDS);
+        if (next == null) {
+            throw new AssertionError("Timed out waiting for the stream");
+        }
+        return next;
+    }
+
+    private final class Recorder implements EventStream.Listener<String> {
+        @Override
+        public void onEvent(EventStream<String> stream, ServerSentEvent<String> event) {
+            received.add("event " + event.id() + " " + event.type() + " " + event.data());
+        }
+
+        @Override
+        public void onFailure(EventStream<String> stream, Throwable t) {
+            received.add("failure " + t.getMessage());
+        }
+
+        @Override
+        public void onClosed(EventStream<String> stream) {
+            received.add("closed");
+        }
+    }
+}
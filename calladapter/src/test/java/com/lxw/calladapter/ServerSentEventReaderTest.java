@@ -0,0 +1,128 @@
+package com.lxw.calladapter;
+
+import android.support.annotation.Nullable;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : ServerSentEventReader 的字段解析和 CR/LF/CRLF 换行测试
+ * </pre>
+ */
+public class ServerSentEventReaderTest {
+    private final List<String> calls = new ArrayList<>();
+
+    @Test
+    public void fields() throws IOException {
+        read("id: 1\n"
+                + "event: update\n"
+                + "data: first\n"
+                + "data:second\n"
+                + "data\n"
+                + "retry: 1500\n"
+                + ": keep-alive\n"
+                + "unknown: ignored\n"
+                + "\n");
+        assertEquals(Arrays.asList(
+                "retry 1500",
+                "lastEventId 1",
+                "event id=1 type=update data=first\nsecond\n"), calls);
+    }
+
+    @Test
+    public void typeResetsBetweenEventsAndIdCarriesOver() throws IOException {
+        read("id: 7\nevent: a\ndata: x\n\ndata: y\n\n");
+        assertEquals(Arrays.asList(
+                "lastEventId 7",
+                "event id=7 type=a data=x",
+                "event id=7 type=null data=y"), calls);
+    }
+
+    @Test
+    public void lineEndings() throws IOException {
+        List<String> expected = Arrays.asList(
+                "event id=null type=null data=a\nb",
+                "event id=null type=null data=c");
+        read("data: a\ndata: b\n\ndata: c\n\n");
+        assertEquals(expected, calls);
+        calls.clear();
+        read("data: a\rdata: b\r\rdata: c\r\r");
+        assertEquals(expected, calls);
+        calls.clear();
+        read("data: a\r\ndata: b\r\n\r\ndata: c\r\n\r\n");
+        assertEquals(expected, calls);
+    }
+
+    @Test
+    public void crlfSplitAcrossReads() throws IOException {
+        Buffer source = new Buffer();
+        ServerSentEventReader reader = new ServerSentEventReader(source, null, new Recorder());
+        source.writeUtf8("data: a\r\n\r");
+        assertTrue(reader.processNextEvent());
+        source.writeUtf8("\ndata: b\r\n\r\n");
+        assertTrue(reader.processNextEvent());
+        assertEquals(Arrays.asList(
+                "event id=null type=null data=a",
+                "event id=null type=null data=b"), calls);
+    }
+
+    @Test
+    public void idWithoutDataStillSetsLastEventId() throws IOException {
+        read("id: 1\ndata: a\n\nid: 2\n\n");
+        assertEquals(Arrays.asList(
+                "lastEventId 1",
+                "event id=1 type=null data=a",
+                "lastEventId 2"), calls);
+    }
+
+    @Test
+    public void unfinishedEventIsNotDispatched() throws IOException {
+        read("id: 1\ndata: a");
+        assertEquals(0, calls.size());
+    }
+
+    @Test
+    public void invalidRetryAndIdAreIgnored() throws IOException {
+        read("retry: 12a\nid: a\u0000b\ndata: x\n\n");
+        assertEquals(Arrays.asList("event id=null type=null data=x"), calls);
+    }
+
+    private void read(String stream) throws IOException {
+        ServerSentEventReader reader = new ServerSentEventReader(
+                new Buffer().writeUtf8(stream), null, new Recorder());
+        while (reader.processNextEvent()) {
+        }
+        assertFalse(reader.processNextEvent());
+    }
+
+    private final class Recorder implements ServerSentEventReader.Handler {
+        @Override
+        public void onEvent(@Nullable String id, @Nullable String type, Buffer data) {
+            calls.add("event id=" + id + " type=" + type + " data=" + data.readUtf8());
+        }
+
+        @Override
+        public void onLastEventId(@Nullable String id) {
+            calls.add("lastEventId " + id);
+        }
+
+        @Override
+        public void onRetryChange(long retryMillis) {
+            calls.add("retry " + retryMillis);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.lxw.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/03
+ *     desc   : 编译期为 service 接口生成实现类，调用时不再经过 Proxy 和 Method 查表
+ * </pre>
+ */
+public class RetrofitProcessor extends AbstractProcessor {
+    private static final String HTTP_PACKAGE = "com.lxw.retrofit.http.";
+    private static final List<String> HTTP_METHOD_ANNOTATIONS = Arrays.asList(
+            HTTP_PACKAGE + "Delete",
+            HTTP_PACKAGE + "GET",
+            HTTP_PACKAGE + "HEAD",
+            HTTP_PACKAGE + "PATCH",
+            HTTP_PACKAGE + "POST",
+            HTTP_PACKAGE + "PUT",
+            HTTP_PACKAGE + "OPTIONS",
+            HTTP_PACKAGE + "HTTP");
+    private static final String GENERATED_SUFFIX = "_Impl";
+    /** Names in generated code that a service method or parameter could also use. */
+    private static final String RETROFIT_FIELD = "$retrofit";
+    private static final String SERVICE_METHOD_LOCAL = "$serviceMethod";
+
+    private Filer filer;
+    private Messager messager;
+    private Elements elements;
+    private Types types;
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        filer = processingEnv.getFiler();
+        messager = processingEnv.getMessager();
+        elements = processingEnv.getElementUtils();
+        types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return new LinkedHashSet<>(HTTP_METHOD_ANNOTATIONS);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        //收集所有带有 HTTP 注解方法的接口
+        Set<TypeElement> services = new LinkedHashSet<>();
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                Element enclosing = element.getEnclosingElement();
+                if (element.getKind() == ElementKind.METHOD
+                        && enclosing.getKind() == ElementKind.INTERFACE) {
+                    services.add((TypeElement) enclosing);
+                }
+            }
+        }
+        for (TypeElement service : services) {
+            String qualifiedName = service.getQualifiedName().toString();
+            if (generated.contains(qualifiedName) || !canGenerate(service)) {
+                continue;
+            }
+            generated.add(qualifiedName);
+            try {
+                writeService(service);
+            } catch (IOException e) {
+                messager.printMessage(Diagnostic.Kind.ERROR,
+                        "Unable to generate service implementation: " + e.getMessage(), service);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Only interfaces that Retrofit would accept at runtime are generated; anything else keeps
+     * using the dynamic proxy so it fails (or works) exactly as before.
+     */
+    private boolean canGenerate(TypeElement service) {
+        if (service.getModifiers().contains(Modifier.PRIVATE)
+                || !service.getTypeParameters().isEmpty()
+                || !service.getInterfaces().isEmpty()) {
+            return false;
+        }
+        for (Element enclosing = service; enclosing.getKind() != ElementKind.PACKAGE;
+             enclosing = enclosing.getEnclosingElement()) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        for (Element member : service.getEnclosedElements()) {
+            if (member.getKind() != ElementKind.METHOD
+                    || member.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            ExecutableElement method = (ExecutableElement) member;
+            if (!method.getTypeParameters().isEmpty() || !hasHttpMethodAnnotation(method)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasHttpMethodAnnotation(ExecutableElement method) {
+        for (AnnotationMirror mirror : method.getAnnotationMirrors()) {
+            TypeElement type = (TypeElement) mirror.getAnnotationType().asElement();
+            if (HTTP_METHOD_ANNOTATIONS.contains(type.getQualifiedName().toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeService(TypeElement service) throws IOException {
+        PackageElement packageElement = elements.getPackageOf(service);
+        String packageName = packageElement.isUnnamed()
+                ? "" : packageElement.getQualifiedName().toString();
+        String className = flatName(service) + GENERATED_SUFFIX;
+        String serviceName = service.getQualifiedName().toString();
+
+        List<ExecutableElement> methods = new ArrayList<>();
+        for (Element member : service.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.METHOD
+                    && !member.getModifiers().contains(Modifier.STATIC)) {
+                methods.add((ExecutableElement) member);
+            }
+        }
+        List<String> fieldNames = fieldNames(methods);
+
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/** Generated by ").append(RetrofitProcessor.class.getName())
+                .append(". Do not modify! */\n");
+        out.append("public final class ").append(className)
+                .append(" implements ").append(serviceName).append(" {\n");
+        out.append("    private final com.lxw.retrofit.Retrofit ").append(RETROFIT_FIELD).append(";\n");
+        for (int i = 0; i < methods.size(); i++) {
+            out.append("    private volatile ").append(serviceMethodType(methods.get(i)))
+                    .append(' ').append(fieldNames.get(i)).append(";\n");
+        }
+        out.append('\n');
+        out.append("    public ").append(className)
+                .append("(com.lxw.retrofit.Retrofit retrofit) {\n");
+        out.append("        this.").append(RETROFIT_FIELD).append(" = retrofit;\n");
+        out.append("    }\n");
+        for (int i = 0; i < methods.size(); i++) {
+            out.append('\n');
+            writeMethod(out, serviceName, methods.get(i), fieldNames.get(i));
+        }
+        out.append("}\n");
+
+        String sourceName = packageName.isEmpty() ? className : packageName + "." + className;
+        JavaFileObject sourceFile = filer.createSourceFile(sourceName, service);
+        Writer writer = sourceFile.openWriter();
+        try {
+            writer.write(out.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void writeMethod(StringBuilder out, String serviceName, ExecutableElement method,
+                             String fieldName) {
+        String name = method.getSimpleName().toString();
+        String returnType = method.getReturnType().toString();
+        List<? extends VariableElement> parameters = method.getParameters();
+
+        out.append("    @Override\n");
+        out.append("    public ").append(returnType).append(' ').append(name).append('(');
+        for (int p = 0; p < parameters.size(); p++) {
+            if (p > 0) {
+                out.append(", ");
+            }
+            out.append("final ").append(parameters.get(p).asType().toString())
+                    .append(' ').append(parameters.get(p).getSimpleName());
+        }
+        out.append(')');
+        List<? extends TypeMirror> thrownTypes = method.getThrownTypes();
+        for (int i = 0; i < thrownTypes.size(); i++) {
+            out.append(i == 0 ? " throws " : ", ").append(thrownTypes.get(i).toString());
+        }
+        out.append(" {\n");
+
+        //第一次调用时解析，之后直接读取字段；生成的标识符带 $ 前缀，不会和参数名冲突
+        out.append("        ").append(serviceMethodType(method)).append(' ')
+                .append(SERVICE_METHOD_LOCAL).append(" = this.").append(fieldName).append(";\n");
+        out.append("        if (").append(SERVICE_METHOD_LOCAL).append(" == null) {\n");
+        out.append("            ").append(SERVICE_METHOD_LOCAL).append(" = this.").append(fieldName)
+                .append(" = this.").append(RETROFIT_FIELD).append(".serviceMethod(")
+                .append(serviceName).append(".class, \"")
+                .append(name).append('"');
+        for (VariableElement parameter : parameters) {
+            out.append(", ").append(types.erasure(parameter.asType()).toString()).append(".class");
+        }
+        out.append(");\n");
+        out.append("        }\n");
+
+        out.append("        return ").append(SERVICE_METHOD_LOCAL)
+                .append(".adapt(new com.lxw.retrofit.OkHttpCall<>(").append(SERVICE_METHOD_LOCAL)
+                .append(", ");
+        out.append("new Object[] {");
+        for (int p = 0; p < parameters.size(); p++) {
+            if (p > 0) {
+                out.append(", ");
+            }
+            out.append(parameters.get(p).getSimpleName());
+        }
+        out.append("}));\n");
+        out.append("    }\n");
+    }
+
+    private String serviceMethodType(ExecutableElement method) {
+        return "com.lxw.retrofit.ServiceMethod<java.lang.Object, "
+                + boxedType(method.getReturnType()) + ">";
+    }
+
+    private String boxedType(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName()
+                    .toString();
+        }
+        return type.toString();
+    }
+
+    /** Overloads share a name, so later ones get an index appended to keep fields unique. */
+    private static List<String> fieldNames(List<ExecutableElement> methods) {
+        Set<String> used = new HashSet<>();
+        used.add(RETROFIT_FIELD);
+        List<String> names = new ArrayList<>(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            String name = methods.get(i).getSimpleName().toString();
+            if (!used.add(name)) {
+                name = name + "$" + i;
+                used.add(name);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    /** SimpleService.GitHub -> SimpleService_GitHub, mirroring the binary name at runtime. */
+    private static String flatName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        while (type.getNestingKind() == NestingKind.MEMBER
+                && enclosing instanceof TypeElement) {
+            type = (TypeElement) enclosing;
+            name = type.getSimpleName() + "_" + name;
+            enclosing = type.getEnclosingElement();
+        }
+        return name;
+    }
+}
@@ -0,0 +1,49 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.lxw.retrofit.CloseableIterator;
+import com.lxw.retrofit.Converter;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : 把顶层 JSON 数组转换成 CloseableIterator，元素在迭代时才从响应流里逐个读取
+ * </pre>
+ */
+final class GsonArrayIteratorConverter<T> implements Converter<ResponseBody, CloseableIterator<T>> {
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+    private final boolean decodeUtf8FromSource;
+
+    GsonArrayIteratorConverter(Gson gson, TypeAdapter<T> adapter, boolean decodeUtf8FromSource) {
+        this.gson = gson;
+        this.adapter = adapter;
+        this.decodeUtf8FromSource = decodeUtf8FromSource;
+    }
+
+    @Override
+    public CloseableIterator<T> convert(ResponseBody value) throws IOException {
+        //默认走 charStream()；打开 decodeUtf8FromSource 时 UTF-8 的响应体直接从字节解码
+        Reader reader = decodeUtf8FromSource
+                ? Utf8SourceReader.charStream(value)
+                : value.charStream();
+        JsonReader jsonReader = gson.newJsonReader(reader);
+        try {
+            jsonReader.beginArray();
+        } catch (IOException | RuntimeException e) {
+            value.close();
+            throw e;
+        }
+        //响应体交给迭代器，由它在读完或 close 时关闭
+        return new JsonArrayIterator<>(jsonReader, adapter, value);
+    }
+}
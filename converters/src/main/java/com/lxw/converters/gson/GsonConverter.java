@@ -5,10 +5,12 @@ import android.support.annotation.Nullable;
 import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
+import com.lxw.retrofit.CloseableIterator;
 import com.lxw.retrofit.Converter;
 import com.lxw.retrofit.Retrofit;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 
 import okhttp3.RequestBody;
@@ -24,27 +26,61 @@ import okhttp3.ResponseBody;
  */
 public class GsonConverter extends Converter.Factory {
     private final Gson gson;
+    private final boolean streamRequestBodies;
+    private final boolean decodeUtf8FromSource;
 
     public static GsonConverter create() {
-        return new GsonConverter();
+        return new GsonConverter(new Gson(), false, false);
     }
 
-    private GsonConverter() {
-        gson = new Gson();
+    private GsonConverter(Gson gson, boolean streamRequestBodies, boolean decodeUtf8FromSource) {
+        this.gson = gson;
+        this.streamRequestBodies = streamRequestBodies;
+        this.decodeUtf8FromSource = decodeUtf8FromSource;
+    }
+
+    /**
+     * Returns a factory whose request bodies serialize straight to the network when OkHttp
+     * writes them, instead of into a byte array up front. Their length is unknown, so they are
+     * sent chunked, and they serialize the value again if the request is retried. The value
+     * must not change until the call completes.
+     */
+    public GsonConverter streamingRequestBodies() {
+        return new GsonConverter(gson, true, decodeUtf8FromSource);
+    }
+
+    /**
+     * Returns a factory that decodes UTF-8 response bodies straight from the Okio source instead
+     * of through {@link ResponseBody#charStream()}. It is faster on non-ASCII text but slower on
+     * ASCII, where HotSpot vectorizes the JDK decoder; see {@code Utf8SourceReaderBenchmark}
+     * before turning it on.
+     */
+    public GsonConverter decodeUtf8FromSource() {
+        return new GsonConverter(gson, streamRequestBodies, true);
     }
 
     @Nullable
     @Override
     public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        //CloseableIterator<T>：顶层数组的元素在迭代时逐个解析
+        if (getRawType(type) == CloseableIterator.class) {
+            if (!(type instanceof ParameterizedType)) {
+                throw new IllegalStateException(
+                        "CloseableIterator return type must be parameterized as CloseableIterator<Foo>");
+            }
+            Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+            return new GsonArrayIteratorConverter<>(gson, gson.getAdapter(TypeToken.get(elementType)),
+                    decodeUtf8FromSource);
+        }
         TypeAdapter<?> typeAdapter = gson.getAdapter(TypeToken.get(type));
-        return new GsonResponseBodyConverter<>(gson, typeAdapter);
+        return new GsonResponseBodyConverter<>(gson, typeAdapter, decodeUtf8FromSource);
     }
 
     @Nullable
     @Override
     public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
         TypeAdapter<?> adapter = gson.getAdapter(TypeToken.get(type));
-        return new GsonRequestBodyConverter<>(gson, adapter);
+        return new GsonRequestBodyConverter<>(gson, adapter, streamRequestBodies);
     }
 
 
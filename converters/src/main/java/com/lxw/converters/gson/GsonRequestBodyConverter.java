@@ -27,14 +27,24 @@ public class GsonRequestBodyConverter<T> implements Converter<T, RequestBody> {
     private static final Charset UTF_8 = Charset.forName("UTF-8");
     private final Gson gson;
     private final TypeAdapter<T> adapter;
+    //为 true 时在 writeTo 里直接序列化到网络，不先写到内存
+    private final boolean streaming;
 
     public GsonRequestBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+        this(gson, adapter, false);
+    }
+
+    GsonRequestBodyConverter(Gson gson, TypeAdapter<T> adapter, boolean streaming) {
         this.gson = gson;
         this.adapter = adapter;
+        this.streaming = streaming;
     }
 
     @Override
     public RequestBody convert(T value) throws IOException {
+        if (streaming) {
+            return new GsonStreamingRequestBody<>(gson, adapter, value);
+        }
         Buffer buffer = new Buffer();
         Writer writer = new OutputStreamWriter(buffer.outputStream());
         JsonWriter jsonWriter = gson.newJsonWriter(writer);
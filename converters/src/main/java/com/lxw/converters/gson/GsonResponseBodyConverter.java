@@ -8,6 +8,7 @@ import com.google.gson.stream.JsonToken;
 import com.lxw.retrofit.Converter;
 
 import java.io.IOException;
+import java.io.Reader;
 
 import okhttp3.ResponseBody;
 
@@ -23,15 +24,25 @@ public class GsonResponseBodyConverter<T> implements Converter<ResponseBody, T>
 
     private final Gson gson;
     private final TypeAdapter<T> adapter;
+    private final boolean decodeUtf8FromSource;
 
     public GsonResponseBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+        this(gson, adapter, false);
+    }
+
+    GsonResponseBodyConverter(Gson gson, TypeAdapter<T> adapter, boolean decodeUtf8FromSource) {
         this.gson = gson;
         this.adapter = adapter;
+        this.decodeUtf8FromSource = decodeUtf8FromSource;
     }
 
     @Override
     public T convert(ResponseBody value) throws IOException {
-        JsonReader jsonReader = gson.newJsonReader(value.charStream());
+        //默认走 charStream()；打开 decodeUtf8FromSource 时 UTF-8 的响应体直接从字节解码
+        Reader reader = decodeUtf8FromSource
+                ? Utf8SourceReader.charStream(value)
+                : value.charStream();
+        JsonReader jsonReader = gson.newJsonReader(reader);
         try {
             T result = adapter.read(jsonReader);
             if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
@@ -0,0 +1,57 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : 在 writeTo 时才把对象序列化到网络 sink 的请求体，不在内存里保留整份 JSON；每次 writeTo 都重新序列化，可重试
+ * </pre>
+ */
+final class GsonStreamingRequestBody<T> extends RequestBody {
+    private static final MediaType MEDIA_TYPE = MediaType.parse("application/json; charset=UTF-8");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+    private final T value;
+
+    GsonStreamingRequestBody(Gson gson, TypeAdapter<T> adapter, T value) {
+        this.gson = gson;
+        this.adapter = adapter;
+        this.value = value;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return MEDIA_TYPE;
+    }
+
+    /** Unknown until written, so the body is sent chunked. */
+    @Override
+    public long contentLength() {
+        return -1L;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Writer writer = new OutputStreamWriter(sink.outputStream(), UTF_8);
+        JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        adapter.write(jsonWriter, value);
+        // Flush, but leave the sink open for OkHttp.
+        jsonWriter.flush();
+    }
+}
@@ -0,0 +1,90 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lxw.retrofit.CloseableIterator;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : 已经 beginArray 的 JsonReader 上的迭代器，每次 next 只读一个元素
+ * </pre>
+ */
+final class JsonArrayIterator<T> implements CloseableIterator<T> {
+    private final JsonReader jsonReader;
+    private final TypeAdapter<T> adapter;
+    private final ResponseBody body;
+    private boolean closed;
+
+    JsonArrayIterator(JsonReader jsonReader, TypeAdapter<T> adapter, ResponseBody body) {
+        this.jsonReader = jsonReader;
+        this.adapter = adapter;
+        this.body = body;
+    }
+
+    /**
+     * Reads ahead to the next element. I/O and syntax errors are thrown as
+     * {@link JsonIOException}, after closing the body.
+     */
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (jsonReader.hasNext()) {
+                return true;
+            }
+            jsonReader.endArray();
+            if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonIOException("JSON document was not fully consumed.");
+            }
+            close();
+            return false;
+        } catch (IOException e) {
+            close();
+            throw new JsonIOException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return adapter.read(jsonReader);
+        } catch (IOException e) {
+            close();
+            throw new JsonIOException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            body.close();
+        }
+    }
+}
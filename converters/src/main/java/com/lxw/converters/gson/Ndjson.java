@@ -0,0 +1,23 @@
+package com.lxw.converters.gson;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 标记按 NDJSON（每行一条 JSON）编解码：方法上表示响应，@Body 参数上表示请求，见 NdjsonConverter
+ * </pre>
+ */
+@Documented
+@Target({METHOD, PARAMETER})
+@Retention(RUNTIME)
+public @interface Ndjson {
+}
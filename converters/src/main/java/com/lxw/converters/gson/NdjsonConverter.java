@@ -0,0 +1,89 @@
+package com.lxw.converters.gson;
+
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.lxw.retrofit.CloseableIterator;
+import com.lxw.retrofit.Converter;
+import com.lxw.retrofit.Retrofit;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Iterator;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : application/x-ndjson 的转换器，只处理带 @Ndjson 的方法和参数，需放在 GsonConverter 之前添加
+ * </pre>
+ */
+public class NdjsonConverter extends Converter.Factory {
+    private final Gson gson;
+
+    public static NdjsonConverter create() {
+        return create(new Gson());
+    }
+
+    public static NdjsonConverter create(Gson gson) {
+        if (gson == null) {
+            throw new NullPointerException("gson == null");
+        }
+        return new NdjsonConverter(gson);
+    }
+
+    private NdjsonConverter(Gson gson) {
+        this.gson = gson;
+    }
+
+    /** {@code @Ndjson} methods return {@code CloseableIterator<T>}, one element per line. */
+    @Nullable
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (!isAnnotated(annotations)) {
+            return null;
+        }
+        if (getRawType(type) != CloseableIterator.class || !(type instanceof ParameterizedType)) {
+            throw new IllegalStateException("@Ndjson methods must return CloseableIterator<Foo>");
+        }
+        Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+        return new NdjsonResponseBodyConverter<>(gson, gson.getAdapter(TypeToken.get(elementType)));
+    }
+
+    /**
+     * {@code @Ndjson @Body} parameters are an {@code Iterable<T>}, which is written again on
+     * retry, or an {@code Iterator<T>}, which can be written only once.
+     */
+    @Nullable
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (!isAnnotated(annotations)) {
+            return null;
+        }
+        Class<?> rawType = getRawType(type);
+        if (!(type instanceof ParameterizedType)
+                || ((ParameterizedType) type).getActualTypeArguments().length != 1
+                || !(Iterable.class.isAssignableFrom(rawType) || rawType == Iterator.class)) {
+            throw new IllegalStateException(
+                    "@Ndjson @Body must be parameterized as Iterable<Foo>, List<Foo> or Iterator<Foo>");
+        }
+        Type elementType = getParameterUpperBound(0, (ParameterizedType) type);
+        return new NdjsonRequestBodyConverter<>(gson, gson.getAdapter(TypeToken.get(elementType)));
+    }
+
+    private static boolean isAnnotated(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Ndjson) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,101 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lxw.retrofit.CloseableIterator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 每次从 source 读一行并解析成一条记录，跳过空行；只在内存里保留当前这一行
+ * </pre>
+ */
+final class NdjsonIterator<T> implements CloseableIterator<T> {
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+    private final ResponseBody body;
+    private final BufferedSource source;
+    private String nextLine;
+    private boolean closed;
+
+    NdjsonIterator(Gson gson, TypeAdapter<T> adapter, ResponseBody body) {
+        this.gson = gson;
+        this.adapter = adapter;
+        this.body = body;
+        this.source = body.source();
+    }
+
+    /** Reads ahead to the next non-blank line. I/O errors are thrown as {@link JsonIOException}. */
+    @Override
+    public boolean hasNext() {
+        if (nextLine != null) {
+            return true;
+        }
+        if (closed) {
+            return false;
+        }
+        try {
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (!line.trim().isEmpty()) {
+                    nextLine = line;
+                    return true;
+                }
+            }
+            close();
+            return false;
+        } catch (IOException e) {
+            close();
+            throw new JsonIOException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        try {
+            JsonReader jsonReader = gson.newJsonReader(new StringReader(line));
+            T record = adapter.read(jsonReader);
+            if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonIOException("NDJSON line holds more than one JSON value.");
+            }
+            return record;
+        } catch (IOException e) {
+            close();
+            throw new JsonIOException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            nextLine = null;
+            body.close();
+        }
+    }
+}
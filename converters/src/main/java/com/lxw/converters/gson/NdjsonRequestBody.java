@@ -0,0 +1,81 @@
+package com.lxw.converters.gson;
+
+import android.support.annotation.Nullable;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 在 writeTo 时逐条序列化记录，每条一行，以 chunked 方式上传
+ * </pre>
+ */
+final class NdjsonRequestBody<T> extends RequestBody {
+    private static final MediaType MEDIA_TYPE = MediaType.parse("application/x-ndjson; charset=UTF-8");
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+    private final @Nullable
+    Iterable<T> records;
+    private @Nullable
+    Iterator<T> iterator;
+
+    NdjsonRequestBody(Gson gson, TypeAdapter<T> adapter, @Nullable Iterable<T> records,
+                      @Nullable Iterator<T> iterator) {
+        this.gson = gson;
+        this.adapter = adapter;
+        this.records = records;
+        this.iterator = iterator;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1L;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        Iterator<T> iterator;
+        if (records != null) {
+            iterator = records.iterator();
+        } else {
+            synchronized (this) {
+                iterator = this.iterator;
+                this.iterator = null;
+            }
+            if (iterator == null) {
+                throw new IOException("An @Ndjson @Body Iterator can be written only once");
+            }
+        }
+        Writer writer = new OutputStreamWriter(sink.outputStream(), UTF_8);
+        JsonWriter jsonWriter = gson.newJsonWriter(writer);
+        //lenient 才能连续写多个顶层值；缩进去掉，保证一条记录只占一行
+        jsonWriter.setLenient(true);
+        jsonWriter.setIndent("");
+        while (iterator.hasNext()) {
+            adapter.write(jsonWriter, iterator.next());
+            writer.write('\n');
+        }
+        jsonWriter.flush();
+    }
+}
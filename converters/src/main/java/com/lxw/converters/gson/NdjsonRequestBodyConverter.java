@@ -0,0 +1,37 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.lxw.retrofit.Converter;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import okhttp3.RequestBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 把 Iterable 或 Iterator 包装成边写边序列化的 NDJSON 请求体
+ * </pre>
+ */
+final class NdjsonRequestBodyConverter<T> implements Converter<Object, RequestBody> {
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+
+    NdjsonRequestBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+        this.gson = gson;
+        this.adapter = adapter;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public RequestBody convert(Object value) throws IOException {
+        if (value instanceof Iterator) {
+            return new NdjsonRequestBody<>(gson, adapter, null, (Iterator<T>) value);
+        }
+        return new NdjsonRequestBody<>(gson, adapter, (Iterable<T>) value, null);
+    }
+}
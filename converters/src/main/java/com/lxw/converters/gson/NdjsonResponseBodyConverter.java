@@ -0,0 +1,33 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.lxw.retrofit.CloseableIterator;
+import com.lxw.retrofit.Converter;
+
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : 把 NDJSON 响应转换成按行读取的 CloseableIterator，响应体由迭代器负责关闭
+ * </pre>
+ */
+final class NdjsonResponseBodyConverter<T> implements Converter<ResponseBody, CloseableIterator<T>> {
+    private final Gson gson;
+    private final TypeAdapter<T> adapter;
+
+    NdjsonResponseBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+        this.gson = gson;
+        this.adapter = adapter;
+    }
+
+    @Override
+    public CloseableIterator<T> convert(ResponseBody value) throws IOException {
+        return new NdjsonIterator<>(gson, adapter, value);
+    }
+}
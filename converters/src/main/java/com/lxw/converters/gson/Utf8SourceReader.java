@@ -0,0 +1,203 @@
+package com.lxw.converters.gson;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : 直接从 BufferedSource 的字节解码 UTF-8 的 Reader，跳过 InputStreamReader 和 CharsetDecoder
+ * </pre>
+ */
+final class Utf8SourceReader extends Reader {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final ByteString UTF_8_BOM = ByteString.decodeHex("efbbbf");
+    private static final ByteString UTF_16_BE_BOM = ByteString.decodeHex("feff");
+    private static final ByteString UTF_16_LE_BOM = ByteString.decodeHex("fffe");
+    private static final ByteString UTF_32_BE_BOM = ByteString.decodeHex("0000feff");
+    private static final ByteString UTF_32_LE_BOM = ByteString.decodeHex("fffe0000");
+    private static final char REPLACEMENT = '\ufffd';
+
+    private final BufferedSource source;
+    private final byte[] bytes = new byte[8192];
+    private int pos;
+    private int limit;
+    /** Second half of a surrogate pair that did not fit into the caller's buffer. */
+    private int pendingLowSurrogate = -1;
+
+    private Utf8SourceReader(BufferedSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Returns a reader for {@code body}: this one for UTF-8 bodies, which is every body without
+     * a charset, {@link ResponseBody#charStream()} for other charsets, or an
+     * {@link InputStreamReader} over the same source for UTF-16/32 BOMs.
+     */
+    static Reader charStream(ResponseBody body) throws IOException {
+        MediaType contentType = body.contentType();
+        Charset charset = contentType != null ? contentType.charset(UTF_8) : UTF_8;
+        if (!UTF_8.equals(charset)) {
+            return body.charStream();
+        }
+        //body.source() 每次调用可能包一层新的 buffer，BOM 已经读进这个 source，之后只能从它解码
+        BufferedSource source = body.source();
+        if (source.rangeEquals(0, UTF_8_BOM)) {
+            source.skip(UTF_8_BOM.size());
+            return new Utf8SourceReader(source);
+        }
+        // A BOM overrides the declared charset. UTF-32LE is checked first, it starts like UTF-16LE.
+        Charset bomCharset = null;
+        ByteString bom = null;
+        if (source.rangeEquals(0, UTF_32_BE_BOM)) {
+            bomCharset = Charset.forName("UTF-32BE");
+            bom = UTF_32_BE_BOM;
+        } else if (source.rangeEquals(0, UTF_32_LE_BOM)) {
+            bomCharset = Charset.forName("UTF-32LE");
+            bom = UTF_32_LE_BOM;
+        } else if (source.rangeEquals(0, UTF_16_BE_BOM)) {
+            bomCharset = Charset.forName("UTF-16BE");
+            bom = UTF_16_BE_BOM;
+        } else if (source.rangeEquals(0, UTF_16_LE_BOM)) {
+            bomCharset = Charset.forName("UTF-16LE");
+            bom = UTF_16_LE_BOM;
+        }
+        if (bomCharset != null) {
+            source.skip(bom.size());
+            return new InputStreamReader(source.inputStream(), bomCharset);
+        }
+        return new Utf8SourceReader(source);
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int count) throws IOException {
+        if (count == 0) {
+            return 0;
+        }
+        int n = 0;
+        if (pendingLowSurrogate != -1) {
+            chars[offset + n++] = (char) pendingLowSurrogate;
+            pendingLowSurrogate = -1;
+        }
+        byte[] bytes = this.bytes;
+        while (n < count) {
+            if (pos == limit) {
+                // Block only while nothing has been decoded yet.
+                if (n > 0 && source.buffer().size() == 0) {
+                    break;
+                }
+                if (!fill(1)) {
+                    break;
+                }
+            }
+            // ASCII, the bulk of any JSON document, copied in a run with everything in locals.
+            int p = pos;
+            int out = offset + n;
+            int end = Math.min(limit, p + count - n);
+            while (p < end && bytes[p] >= 0) {
+                chars[out++] = (char) bytes[p++];
+            }
+            pos = p;
+            n = out - offset;
+            if (n == count || p == limit) {
+                continue;
+            }
+            int b = bytes[p];
+            int codePoint = decodeMultiByte(b & 0xff);
+            if (codePoint < 0x10000) {
+                chars[offset + n++] = (char) codePoint;
+            } else {
+                // Character.highSurrogate/lowSurrogate need API 19.
+                chars[offset + n++] = (char) (0xd7c0 + (codePoint >>> 10));
+                char low = (char) (0xdc00 + (codePoint & 0x3ff));
+                if (n < count) {
+                    chars[offset + n++] = low;
+                } else {
+                    pendingLowSurrogate = low;
+                }
+            }
+        }
+        return n == 0 ? -1 : n;
+    }
+
+    /** Decodes the sequence starting at {@code pos}, or U+FFFD for malformed input. */
+    private int decodeMultiByte(int lead) throws IOException {
+        int length;
+        int min;
+        int codePoint;
+        if ((lead & 0xe0) == 0xc0) {
+            length = 2;
+            min = 0x80;
+            codePoint = lead & 0x1f;
+        } else if ((lead & 0xf0) == 0xe0) {
+            length = 3;
+            min = 0x800;
+            codePoint = lead & 0x0f;
+        } else if ((lead & 0xf8) == 0xf0) {
+            length = 4;
+            min = 0x10000;
+            codePoint = lead & 0x07;
+        } else {
+            // A stray continuation byte or an invalid lead byte.
+            pos++;
+            return REPLACEMENT;
+        }
+        if (limit - pos < length) {
+            fill(length);
+        }
+        int available = Math.min(length, limit - pos);
+        int i = 1;
+        for (; i < available; i++) {
+            int b = bytes[pos + i];
+            if ((b & 0xc0) != 0x80) {
+                break;
+            }
+            codePoint = codePoint << 6 | (b & 0x3f);
+        }
+        if (i < length) {
+            // Truncated: replace the valid prefix and resume at the offending byte.
+            pos += i;
+            return REPLACEMENT;
+        }
+        pos += length;
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Moves unread bytes to the front and reads until at least {@code minimum} are buffered or
+     * the source is exhausted. Returns false if no bytes are left.
+     */
+    private boolean fill(int minimum) throws IOException {
+        if (pos > 0) {
+            System.arraycopy(bytes, pos, bytes, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < minimum) {
+            int read = source.read(bytes, limit, bytes.length - limit);
+            if (read == -1) {
+                break;
+            }
+            limit += read;
+        }
+        return limit > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,182 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.MalformedJsonException;
+import com.lxw.retrofit.CloseableIterator;
+import com.lxw.retrofit.Converter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : CloseableIterator 返回类型：空数组、逐个读取、格式错误的元素、提前 close 释放响应体
+ * </pre>
+ */
+public class GsonArrayIteratorConverterTest {
+    static final class Item {
+        String name;
+    }
+
+    @Test
+    public void emptyArray() throws IOException {
+        TrackingBody body = new TrackingBody("[]");
+        CloseableIterator<Item> items = convert(GsonConverter.create(), body);
+
+        assertFalse(items.hasNext());
+        assertTrue(body.closed);
+        try {
+            items.next();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    @Test
+    public void elementsAreReadOneAtATime() throws IOException {
+        TrackingBody body = new TrackingBody("[{\"name\":\"a\"}, {\"name\":\"b\"},\n{\"name\":\"c\"}]");
+        CloseableIterator<Item> items = convert(GsonConverter.create(), body);
+
+        assertEquals("a", items.next().name);
+        assertFalse(body.closed);
+        assertEquals("b", items.next().name);
+        assertEquals("c", items.next().name);
+        assertFalse(items.hasNext());
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void decodeUtf8FromSourceReadsTheSameElements() throws IOException {
+        String json = "[{\"name\":\"héllo\"},{\"name\":\"世界 😀\"}]";
+        assertEquals(names(convert(GsonConverter.create(), new TrackingBody(json))),
+                names(convert(GsonConverter.create().decodeUtf8FromSource(), new TrackingBody(json))));
+    }
+
+    @Test
+    public void malformedElementClosesTheBody() throws IOException {
+        TrackingBody body = new TrackingBody("[{\"name\":\"a\"},{\"name\":]");
+        CloseableIterator<Item> items = convert(GsonConverter.create(), body);
+
+        assertEquals("a", items.next().name);
+        try {
+            items.next();
+            fail();
+        } catch (JsonIOException expected) {
+            // Gson's reader is strict, so the syntax error surfaces as a MalformedJsonException.
+            assertTrue(expected.getCause() instanceof MalformedJsonException);
+        }
+        assertTrue(body.closed);
+        assertFalse(items.hasNext());
+    }
+
+    @Test
+    public void contentAfterTheArrayFails() throws IOException {
+        TrackingBody body = new TrackingBody("[] []");
+        CloseableIterator<Item> items = convert(GsonConverter.create(), body);
+
+        try {
+            items.hasNext();
+            fail();
+        } catch (JsonIOException expected) {
+            assertTrue(expected.getCause() instanceof MalformedJsonException);
+        }
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void nonArrayBodyFailsInConvertAndClosesTheBody() throws IOException {
+        TrackingBody body = new TrackingBody("{\"name\":\"a\"}");
+        try {
+            convert(GsonConverter.create(), body);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void closeBeforeTheEndReleasesTheBody() throws IOException {
+        TrackingBody body = new TrackingBody("[{\"name\":\"a\"},{\"name\":\"b\"}]");
+        CloseableIterator<Item> items = convert(GsonConverter.create(), body);
+
+        assertEquals("a", items.next().name);
+        items.close();
+
+        assertTrue(body.closed);
+        assertFalse(items.hasNext());
+        // A second close does nothing.
+        items.close();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CloseableIterator<Item> convert(GsonConverter factory, ResponseBody body)
+            throws IOException {
+        Converter<ResponseBody, ?> converter = factory.responseBodyConverter(
+                new TypeToken<CloseableIterator<Item>>() {
+                }.getType(), new Annotation[0], null);
+        return (CloseableIterator<Item>) converter.convert(body);
+    }
+
+    private static List<String> names(CloseableIterator<Item> items) {
+        List<String> names = new ArrayList<>();
+        while (items.hasNext()) {
+            names.add(items.next().name);
+        }
+        return names;
+    }
+
+    /** A response body that remembers whether its source was closed. */
+    static final class TrackingBody extends ResponseBody {
+        private final long contentLength;
+        private final BufferedSource source;
+        volatile boolean closed;
+
+        TrackingBody(String content) {
+            Buffer buffer = new Buffer().writeUtf8(content);
+            this.contentLength = buffer.size();
+            this.source = Okio.buffer(new ForwardingSource(buffer) {
+                @Override
+                public void close() throws IOException {
+                    closed = true;
+                    super.close();
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MediaType.parse("application/json; charset=UTF-8");
+        }
+
+        @Override
+        public long contentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : @Body 先序列化成字节数组与写入时直接序列化到 sink 的 JMH 对比，用 GC profiler 看每次分配的字节数
+ * </pre>
+ *
+ * The buffered body holds the whole document in memory until OkHttp writes it; the streaming
+ * one only holds the writer's buffers. {@code gc.alloc.rate.norm} shows the difference per
+ * request. Run {@link #main} from the unit test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GsonRequestBodyBenchmark {
+    /** Number of objects in the posted array; each is about 60 bytes of JSON. */
+    @Param({"100", "10000"})
+    public int items;
+
+    private List<Contributor> value;
+    private GsonRequestBodyConverter<List<Contributor>> buffered;
+    private GsonRequestBodyConverter<List<Contributor>> streaming;
+    private BufferedSink sink;
+
+    @Setup
+    public void setUp() throws IOException {
+        value = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            value.add(new Contributor("contributor" + i, i, false));
+        }
+        Gson gson = new Gson();
+        TypeToken<List<Contributor>> type = new TypeToken<List<Contributor>>() {
+        };
+        buffered = new GsonRequestBodyConverter<>(gson, gson.getAdapter(type), false);
+        streaming = new GsonRequestBodyConverter<>(gson, gson.getAdapter(type), true);
+        // OkHttp writes request bodies into a buffered socket sink, which this stands in for.
+        sink = Okio.buffer(Okio.blackhole());
+
+        Buffer a = new Buffer();
+        buffered.convert(value).writeTo(a);
+        Buffer b = new Buffer();
+        streaming.convert(value).writeTo(b);
+        if (!a.readByteString().equals(b.readByteString())) {
+            throw new AssertionError("Streaming and buffered bodies differ");
+        }
+    }
+
+    @Benchmark
+    public RequestBody buffered() throws IOException {
+        RequestBody body = buffered.convert(value);
+        body.writeTo(sink);
+        sink.flush();
+        return body;
+    }
+
+    @Benchmark
+    public RequestBody streaming() throws IOException {
+        RequestBody body = streaming.convert(value);
+        body.writeTo(sink);
+        sink.flush();
+        return body;
+    }
+
+    static final class Contributor {
+        final String login;
+        final int contributions;
+        final boolean site_admin;
+
+        Contributor(String login, int contributions, boolean siteAdmin) {
+            this.login = login;
+            this.contributions = contributions;
+            this.site_admin = siteAdmin;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(GsonRequestBodyBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,258 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.reflect.TypeToken;
+import com.lxw.converters.gson.GsonArrayIteratorConverterTest.TrackingBody;
+import com.lxw.retrofit.Call;
+import com.lxw.retrofit.CloseableIterator;
+import com.lxw.retrofit.Converter;
+import com.lxw.retrofit.Retrofit;
+import com.lxw.retrofit.http.Body;
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.POST;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/10
+ *     desc   : NdjsonConverter 测试：空流、空行、格式错误的记录、提前 close 释放响应体，以及 @Ndjson @Body 的分块上传
+ * </pre>
+ */
+public class NdjsonConverterTest {
+    static final class Item {
+        String name;
+
+        Item(String name) {
+            this.name = name;
+        }
+    }
+
+    interface Service {
+        @Ndjson
+        @GET("/")
+        Call<CloseableIterator<Item>> stream();
+
+        @GET("/")
+        Call<List<Item>> array();
+
+        @POST("/")
+        Call<ResponseBody> upload(@Ndjson @Body List<Item> items);
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .addConverterFactory(NdjsonConverter.create())
+                .addConverterFactory(GsonConverter.create())
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void emptyStream() throws IOException {
+        TrackingBody body = new TrackingBody("");
+        CloseableIterator<Item> items = convert(body);
+
+        assertFalse(items.hasNext());
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void blankLinesAreSkipped() throws IOException {
+        TrackingBody body = new TrackingBody(
+                "\n{\"name\":\"a\"}\r\n  \n\t\n{\"name\":\"b\"}\n\n");
+        CloseableIterator<Item> items = convert(body);
+
+        assertEquals(Arrays.asList("a", "b"), names(items));
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void lastLineWithoutNewline() throws IOException {
+        assertEquals(Arrays.asList("a", "b"),
+                names(convert(new TrackingBody("{\"name\":\"a\"}\n{\"name\":\"b\"}"))));
+    }
+
+    @Test
+    public void malformedRecordClosesTheBody() throws IOException {
+        TrackingBody body = new TrackingBody("{\"name\":\"a\"}\n{\"name\":\n{\"name\":\"c\"}\n");
+        CloseableIterator<Item> items = convert(body);
+
+        assertEquals("a", items.next().name);
+        try {
+            items.next();
+            fail();
+        } catch (JsonIOException expected) {
+            // The line ends inside the object.
+            assertTrue(expected.getCause() instanceof EOFException);
+        }
+        assertTrue(body.closed);
+        assertFalse(items.hasNext());
+    }
+
+    @Test
+    public void twoValuesOnOneLineFail() throws IOException {
+        TrackingBody body = new TrackingBody("{\"name\":\"a\"} {\"name\":\"b\"}\n");
+        CloseableIterator<Item> items = convert(body);
+
+        try {
+            items.next();
+            fail();
+        } catch (JsonIOException expected) {
+        }
+        assertTrue(body.closed);
+    }
+
+    @Test
+    public void closeBeforeTheEndReleasesTheBody() throws IOException {
+        TrackingBody body = new TrackingBody("{\"name\":\"a\"}\n{\"name\":\"b\"}\n");
+        CloseableIterator<Item> items = convert(body);
+
+        assertEquals("a", items.next().name);
+        // The second line is already read ahead; close drops it with the body.
+        assertTrue(items.hasNext());
+        items.close();
+
+        assertTrue(body.closed);
+        assertFalse(items.hasNext());
+    }
+
+    @Test
+    public void streamedFromTheServer() throws Throwable {
+        server.enqueue(new MockResponse()
+                .setHeader("Content-Type", "application/x-ndjson")
+                .setChunkedBody("{\"name\":\"a\"}\n{\"name\":\"b\"}\n{\"name\":\"c\"}\n", 5));
+
+        CloseableIterator<Item> items = service.stream().execute().body();
+        assertEquals(Arrays.asList("a", "b", "c"), names(items));
+    }
+
+    @Test
+    public void methodsWithoutTheAnnotationFallThroughToGson() throws Throwable {
+        server.enqueue(new MockResponse().setBody("[{\"name\":\"a\"}]"));
+
+        assertEquals("a", service.array().execute().body().get(0).name);
+    }
+
+    @Test
+    public void uploadIsChunkedOneRecordPerLine() throws Throwable {
+        server.enqueue(new MockResponse());
+
+        service.upload(Arrays.asList(new Item("a"), new Item("b\nc"))).execute();
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("application/x-ndjson; charset=UTF-8", request.getHeader("Content-Type"));
+        assertEquals("chunked", request.getHeader("Transfer-Encoding"));
+        assertNull(request.getHeader("Content-Length"));
+        // The newline inside the value is escaped, so each record stays on its own line.
+        assertEquals("{\"name\":\"a\"}\n{\"name\":\"b\\nc\"}\n", request.getBody().readUtf8());
+    }
+
+    @Test
+    public void iterableBodyIsWrittenAgain() throws IOException {
+        RequestBody body = requestBody(new TypeToken<List<Item>>() {
+        }, Arrays.asList(new Item("a")));
+
+        assertEquals("{\"name\":\"a\"}\n", write(body));
+        assertEquals("{\"name\":\"a\"}\n", write(body));
+    }
+
+    @Test
+    public void iteratorBodyIsWrittenOnlyOnce() throws IOException {
+        RequestBody body = requestBody(new TypeToken<Iterator<Item>>() {
+        }, Arrays.asList(new Item("a"), new Item("b")).iterator());
+
+        assertEquals("{\"name\":\"a\"}\n{\"name\":\"b\"}\n", write(body));
+        try {
+            write(body);
+            fail();
+        } catch (IOException expected) {
+            assertEquals("An @Ndjson @Body Iterator can be written only once", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void unannotatedTypesAreLeftToOtherFactories() {
+        NdjsonConverter factory = NdjsonConverter.create();
+        assertNull(factory.responseBodyConverter(
+                new TypeToken<CloseableIterator<Item>>() {
+                }.getType(), new Annotation[0], null));
+        assertNull(factory.requestBodyConverter(
+                new TypeToken<List<Item>>() {
+                }.getType(), new Annotation[0], null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CloseableIterator<Item> convert(ResponseBody body) throws IOException {
+        Converter<ResponseBody, ?> converter = NdjsonConverter.create(new Gson()).responseBodyConverter(
+                new TypeToken<CloseableIterator<Item>>() {
+                }.getType(), ndjson(), null);
+        return (CloseableIterator<Item>) converter.convert(body);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RequestBody requestBody(TypeToken<?> type, Object value) throws IOException {
+        Converter<Object, RequestBody> converter = (Converter<Object, RequestBody>)
+                NdjsonConverter.create().requestBodyConverter(type.getType(), ndjson(), null);
+        return converter.convert(value);
+    }
+
+    private static Annotation[] ndjson() {
+        try {
+            return Service.class.getMethod("stream").getAnnotations();
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static String write(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer.readUtf8();
+    }
+
+    private static List<String> names(CloseableIterator<Item> items) {
+        List<String> names = new ArrayList<>();
+        while (items.hasNext()) {
+            names.add(items.next().name);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,141 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : Utf8SourceReader 与 ResponseBody.charStream() 解析同一份 JSON 的 JMH 对比
+ * </pre>
+ *
+ * Run {@link #main} from the unit test classpath; JMH's annotation processor generates the
+ * benchmark harness when the test sources compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8SourceReaderBenchmark {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    /**
+     * {@code ascii} is 1000 small objects of plain JSON, {@code mixed} the same with Latin, CJK
+     * and emoji text in every value, and {@code list200k} a 200 KB list of GitHub-style user
+     * objects with URLs, which is the payload the fast path was written for.
+     */
+    @Param({"ascii", "mixed", "list200k"})
+    public String shape;
+
+    private byte[] document;
+    private TypeAdapter<JsonElement> adapter;
+    private Gson gson;
+    /** The size of JsonReader's own buffer. */
+    private final char[] chars = new char[1024];
+
+    @Setup
+    public void setUp() {
+        String json = "list200k".equals(shape)
+                ? users(200 * 1024)
+                : contributors("ascii".equals(shape) ? "contributor" : "héllo 世界 😀");
+        document = json.getBytes(Charset.forName("UTF-8"));
+        gson = new Gson();
+        adapter = gson.getAdapter(JsonElement.class);
+    }
+
+    private static String contributors(String login) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"login\":\"").append(login).append(i)
+                    .append("\",\"contributions\":").append(i)
+                    .append(",\"site_admin\":false}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static String users(int minLength) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; json.length() < minLength; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            String login = "user" + i;
+            json.append("{\"login\":\"").append(login)
+                    .append("\",\"id\":").append(100000 + i)
+                    .append(",\"avatar_url\":\"https://avatars.githubusercontent.com/u/")
+                    .append(100000 + i).append("?v=4\"")
+                    .append(",\"html_url\":\"https://github.com/").append(login).append('"')
+                    .append(",\"type\":\"User\",\"site_admin\":false,\"score\":")
+                    .append(i * 0.25d).append('}');
+        }
+        return json.append(']').toString();
+    }
+
+    @Benchmark
+    public JsonElement utf8SourceReader() throws IOException {
+        ResponseBody body = ResponseBody.create(JSON, document);
+        return adapter.read(new JsonReader(Utf8SourceReader.charStream(body)));
+    }
+
+    @Benchmark
+    public JsonElement charStream() throws IOException {
+        ResponseBody body = ResponseBody.create(JSON, document);
+        return adapter.read(gson.newJsonReader(body.charStream()));
+    }
+
+    @Benchmark
+    public int utf8SourceReaderDecodeOnly() throws IOException {
+        return drain(Utf8SourceReader.charStream(ResponseBody.create(JSON, document)));
+    }
+
+    @Benchmark
+    public int charStreamDecodeOnly() throws IOException {
+        return drain(ResponseBody.create(JSON, document).charStream());
+    }
+
+    private int drain(Reader reader) throws IOException {
+        int total = 0;
+        for (int read; (read = reader.read(chars, 0, chars.length)) != -1; ) {
+            total += read;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(Utf8SourceReaderBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,179 @@
+package com.lxw.converters.gson;
+
+import com.google.gson.JsonElement;
+import com.lxw.retrofit.Converter;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.nio.charset.Charset;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+import okio.Okio;
+import okio.Source;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : Utf8SourceReader 的 BOM 处理、非法 UTF-8 替换测试，以及打开和不打开 decodeUtf8FromSource 的解析结果一致
+ * </pre>
+ */
+public class Utf8SourceReaderTest {
+    private static final String TEXT = "{\"name\":\"héllo 世界 😀\"}";
+
+    @Test
+    public void utf8WithoutBom() throws IOException {
+        assertEquals(TEXT, read(body(ByteString.encodeUtf8(TEXT), null)));
+    }
+
+    @Test
+    public void utf8Bom() throws IOException {
+        assertEquals(TEXT, read(body(bom("efbbbf", TEXT, "UTF-8"), null)));
+    }
+
+    @Test
+    public void utf16BeBom() throws IOException {
+        assertEquals(TEXT, read(body(bom("feff", TEXT, "UTF-16BE"), null)));
+    }
+
+    @Test
+    public void utf16LeBom() throws IOException {
+        assertEquals(TEXT, read(body(bom("fffe", TEXT, "UTF-16LE"), null)));
+    }
+
+    @Test
+    public void utf32BeBom() throws IOException {
+        assertEquals(TEXT, read(body(bom("0000feff", TEXT, "UTF-32BE"), null)));
+    }
+
+    @Test
+    public void utf32LeBom() throws IOException {
+        assertEquals(TEXT, read(body(bom("fffe0000", TEXT, "UTF-32LE"), null)));
+    }
+
+    @Test
+    public void bomOverridesDeclaredUtf8() throws IOException {
+        MediaType json = MediaType.parse("application/json; charset=utf-8");
+        assertEquals(TEXT, read(body(bom("feff", TEXT, "UTF-16BE"), json)));
+    }
+
+    @Test
+    public void declaredCharset() throws IOException {
+        MediaType latin1 = MediaType.parse("text/plain; charset=ISO-8859-1");
+        ByteString bytes = ByteString.of((byte) 'h', (byte) 0xe9);
+        assertEquals("hé", read(body(bytes, latin1)));
+    }
+
+    @Test
+    public void overlongEncodings() throws IOException {
+        // '/' encoded in two, three and four bytes.
+        assertEquals("�", read(body(ByteString.decodeHex("c0af"), null)));
+        assertEquals("�", read(body(ByteString.decodeHex("e080af"), null)));
+        assertEquals("�", read(body(ByteString.decodeHex("f08080af"), null)));
+    }
+
+    @Test
+    public void invalidSequences() throws IOException {
+        // Stray continuation byte, invalid lead byte, encoded surrogate, beyond U+10FFFF.
+        assertEquals("a�b", read(body(ByteString.decodeHex("618062"), null)));
+        assertEquals("a�b", read(body(ByteString.decodeHex("61ff62"), null)));
+        assertEquals("�", read(body(ByteString.decodeHex("eda080"), null)));
+        assertEquals("�", read(body(ByteString.decodeHex("f4908080"), null)));
+    }
+
+    @Test
+    public void truncatedSequences() throws IOException {
+        // The valid prefix is replaced and decoding resumes at the offending byte.
+        assertEquals("�a", read(body(ByteString.decodeHex("e28261"), null)));
+        assertEquals("a�", read(body(ByteString.decodeHex("61e282"), null)));
+    }
+
+    @Test
+    public void sequenceAcrossBufferBoundary() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 8191; i++) {
+            builder.append('a');
+        }
+        builder.append("€😀");
+        String text = builder.toString();
+        assertEquals(text, read(body(ByteString.encodeUtf8(text), null)));
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossReads() throws IOException {
+        Reader reader = Utf8SourceReader.charStream(
+                body(ByteString.encodeUtf8("😀"), null));
+        char[] chars = new char[1];
+        assertEquals(1, reader.read(chars, 0, 1));
+        assertEquals('\ud83d', chars[0]);
+        assertEquals(1, reader.read(chars, 0, 1));
+        assertEquals('\ude00', chars[0]);
+        assertEquals(-1, reader.read(chars, 0, 1));
+    }
+
+    @Test
+    public void converterParsesTheSameWithEitherDecoder() throws IOException {
+        Converter<ResponseBody, ?> charStream = GsonConverter.create()
+                .responseBodyConverter(JsonElement.class, new Annotation[0], null);
+        Converter<ResponseBody, ?> fastPath = GsonConverter.create().decodeUtf8FromSource()
+                .responseBodyConverter(JsonElement.class, new Annotation[0], null);
+        String json = "[" + TEXT + ",\"plain ascii\",{\"n\":1.5}]";
+
+        Object expected = charStream.convert(body(ByteString.encodeUtf8(json), null));
+        assertEquals(expected, fastPath.convert(body(ByteString.encodeUtf8(json), null)));
+        assertEquals(expected, fastPath.convert(
+                body(bom("feff", json, "UTF-16BE"), MediaType.parse("application/json"))));
+    }
+
+    private static ByteString bom(String bomHex, String text, String charset) {
+        return new Buffer()
+                .write(ByteString.decodeHex(bomHex))
+                .writeString(text, Charset.forName(charset))
+                .readByteString();
+    }
+
+    private static String read(ResponseBody body) throws IOException {
+        Reader reader = Utf8SourceReader.charStream(body);
+        StringBuilder result = new StringBuilder();
+        char[] chars = new char[64];
+        for (int read; (read = reader.read(chars, 0, chars.length)) != -1; ) {
+            result.append(chars, 0, read);
+        }
+        reader.close();
+        return result.toString();
+    }
+
+    /**
+     * Like the body OkHttpCall hands to converters, every source() call wraps the connection
+     * in a fresh buffer, so bytes buffered by an earlier source are not seen again.
+     */
+    private static ResponseBody body(final ByteString bytes, final MediaType contentType) {
+        final Buffer connection = new Buffer().write(bytes);
+        return new ResponseBody() {
+            @Override
+            public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override
+            public long contentLength() {
+                return bytes.size();
+            }
+
+            @Override
+            public BufferedSource source() {
+                return Okio.buffer((Source) connection);
+            }
+        };
+    }
+}
@@ -2,6 +2,8 @@ package com.lxw.retrofit;
 
 import android.support.annotation.Nullable;
 
+import com.lxw.retrofit.http.Streaming;
+
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
@@ -24,7 +26,9 @@ public class BuiltInConverters extends Converter.Factory {
     @Override
     public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
         if (type == ResponseBody.class) {
-            return BufferingResponseBodyConverter.INSTANCE;
+            return isStreaming(annotations)
+                    ? StreamingResponseBodyConverter.INSTANCE
+                    : BufferingResponseBodyConverter.INSTANCE;
         }
         if (type == Void.class) {
             return VoidResponseBodyConverter.INSTANCE;
@@ -42,6 +46,17 @@ public class BuiltInConverters extends Converter.Factory {
         return null;
     }
 
+    /** Stateless, so every instance is interchangeable when comparing converter lists. */
+    @Override
+    public boolean equals(Object o) {
+        return o != null && o.getClass() == getClass();
+    }
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
     static final class RequestBodyConverter implements Converter<RequestBody, RequestBody> {
         private static final RequestBodyConverter INSTANCE = new RequestBodyConverter();
 
@@ -68,6 +83,26 @@ public class BuiltInConverters extends Converter.Factory {
         }
     }
 
+    private static boolean isStreaming(Annotation[] annotations) {
+        for (Annotation annotation : annotations) {
+            if (annotation instanceof Streaming) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Hands the socket-backed body to the caller, who must close it. */
+    static final class StreamingResponseBodyConverter
+            implements Converter<ResponseBody, ResponseBody> {
+        static final StreamingResponseBodyConverter INSTANCE = new StreamingResponseBodyConverter();
+
+        @Override
+        public ResponseBody convert(ResponseBody value) {
+            return new StreamingResponseBody(value);
+        }
+    }
+
     static final class VoidResponseBodyConverter implements Converter<ResponseBody, Void> {
         static final VoidResponseBodyConverter INSTANCE = new VoidResponseBodyConverter();
 
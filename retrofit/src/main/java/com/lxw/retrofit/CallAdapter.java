@@ -26,7 +26,7 @@ public interface CallAdapter<R, T> {
         CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit);
 
         protected static Type getParameterUpperBound(int index, ParameterizedType type) {
-            return getParameterUpperBound(index, type);
+            return Utils.getParameterUpperBound(index, type);
         }
 
 
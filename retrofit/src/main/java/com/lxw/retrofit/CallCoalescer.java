@@ -0,0 +1,197 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/12
+ *     desc   : @Coalesce 方法的单飞合并：同一请求在途时后来的调用只登记等待，交换完成后所有等待者拿到同一个转换结果
+ * </pre>
+ */
+final class CallCoalescer<T> {
+    //请求 key -> 在途的交换，完成或无人等待时移除
+    private final Map<String, Flight> flights = new HashMap<>();
+    private final AtomicLong exchangeCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /** Method, URL and headers; coalesced methods have no request body. */
+    static String key(Request request) {
+        return request.method() + ' ' + request.url() + '\n' + request.headers();
+    }
+
+    /**
+     * Adds {@code waiter} to the exchange in flight for the request of {@code call}. If there is
+     * none, {@code call} becomes that exchange and the returned flight must be dispatched by the
+     * caller; otherwise null is returned and {@code call} is never sent.
+     */
+    @Nullable
+    Flight join(okhttp3.Call call, OkHttpCall<T> parser, Waiter<T> waiter) {
+        String key = key(call.request());
+        Flight started = null;
+        synchronized (this) {
+            Flight flight = flights.get(key);
+            if (flight == null) {
+                flight = started = new Flight(key, call, parser);
+                flights.put(key, flight);
+            }
+            flight.waiters.add(waiter);
+            waiter.flight = flight;
+        }
+        if (started != null) {
+            exchangeCount.incrementAndGet();
+        } else {
+            coalescedCount.incrementAndGet();
+        }
+        return started;
+    }
+
+    /**
+     * Detaches {@code waiter} from its exchange, which is canceled if no one else waits on it.
+     * Returns false if the result was already handed to {@code waiter}, or it never joined.
+     */
+    boolean leave(Waiter<T> waiter) {
+        okhttp3.Call abandoned = null;
+        synchronized (this) {
+            Flight flight = waiter.flight;
+            if (flight == null || !flight.waiters.remove(waiter)) {
+                return false;
+            }
+            waiter.flight = null;
+            if (flight.waiters.isEmpty()) {
+                removeLocked(flight);
+                abandoned = flight.call;
+            }
+        }
+        if (abandoned != null) {
+            abandoned.cancel();
+        }
+        return true;
+    }
+
+    private void removeLocked(Flight flight) {
+        if (flights.get(flight.key) == flight) {
+            flights.remove(flight.key);
+        }
+    }
+
+    /** Exchanges sent over the network. */
+    long exchangeCount() {
+        return exchangeCount.get();
+    }
+
+    /** Calls that were answered by another call's exchange. */
+    long coalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /** Receives the result of the exchange it joined, exactly once unless it leaves first. */
+    abstract static class Waiter<T> {
+        //guarded by the coalescer
+        @Nullable
+        CallCoalescer<T>.Flight flight;
+
+        abstract void onResponse(Response<T> response);
+
+        abstract void onFailure(Throwable failure);
+    }
+
+    /** One exchange and the calls waiting on it. */
+    final class Flight implements okhttp3.Callback {
+        final String key;
+        final okhttp3.Call call;
+        //第一个调用负责解析，转换器与其它等待者相同
+        private final OkHttpCall<T> parser;
+        private final List<Waiter<T>> waiters = new ArrayList<>();
+
+        Flight(String key, okhttp3.Call call, OkHttpCall<T> parser) {
+            this.key = key;
+            this.call = call;
+            this.parser = parser;
+        }
+
+        @Override
+        public void onFailure(@NonNull okhttp3.Call call, @NonNull IOException e) {
+            complete(null, e);
+        }
+
+        @Override
+        public void onResponse(@NonNull okhttp3.Call call, @NonNull okhttp3.Response rawResponse) {
+            Response<T> response;
+            try {
+                response = parser.parseResponse(rawResponse);
+            } catch (Throwable e) {
+                complete(null, e);
+                return;
+            }
+            complete(response, null);
+        }
+
+        private void complete(@Nullable Response<T> response, @Nullable Throwable failure) {
+            List<Waiter<T>> delivered;
+            synchronized (CallCoalescer.this) {
+                removeLocked(this);
+                delivered = new ArrayList<>(waiters);
+                waiters.clear();
+                for (Waiter<T> waiter : delivered) {
+                    waiter.flight = null;
+                }
+            }
+            // A buffered ResponseBody can only be read once, so each waiter gets its own copy.
+            ByteString bytes = null;
+            ResponseBody shared = response != null ? sharedBody(response) : null;
+            if (shared != null && delivered.size() > 1) {
+                try {
+                    bytes = shared.source().readByteString();
+                } catch (IOException e) {
+                    response = null;
+                    failure = e;
+                }
+            }
+            for (Waiter<T> waiter : delivered) {
+                try {
+                    if (response == null) {
+                        waiter.onFailure(failure);
+                    } else {
+                        waiter.onResponse(bytes != null ? copy(response, bytes) : response);
+                    }
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Nullable
+    private static ResponseBody sharedBody(Response<?> response) {
+        if (!response.isSuccessful()) {
+            return response.errorBody();
+        }
+        Object body = response.body();
+        return body instanceof ResponseBody ? (ResponseBody) body : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Response<T> copy(Response<T> response, ByteString bytes) {
+        ResponseBody shared = sharedBody(response);
+        ResponseBody body = ResponseBody.create(shared.contentType(), bytes.size(),
+                new Buffer().write(bytes));
+        return response.isSuccessful()
+                ? Response.success((T) body, response.raw())
+                : Response.<T>error(body, response.raw());
+    }
+}
@@ -0,0 +1,15 @@
+package com.lxw.retrofit;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/09
+ *     desc   : 边读响应边产出元素的迭代器，读完最后一个元素时自动关闭；提前停止迭代的调用方必须 close，否则连接不会释放
+ * </pre>
+ */
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+}
@@ -0,0 +1,49 @@
+package com.lxw.retrofit;
+
+import java.lang.reflect.Method;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/12
+ *     desc   : 单个 @Coalesce 方法实际发出的交换数与被合并掉的调用数
+ * </pre>
+ */
+public final class CoalescingStats {
+    private final Method method;
+    private final long exchangeCount;
+    private final long coalescedCount;
+
+    CoalescingStats(Method method, long exchangeCount, long coalescedCount) {
+        this.method = method;
+        this.exchangeCount = exchangeCount;
+        this.coalescedCount = coalescedCount;
+    }
+
+    public Method method() {
+        return method;
+    }
+
+    /** Exchanges sent over the network. */
+    public long exchangeCount() {
+        return exchangeCount;
+    }
+
+    /** Calls answered by an exchange another call had already started. */
+    public long coalescedCount() {
+        return coalescedCount;
+    }
+
+    /** Share of all calls that did not need their own exchange, between 0 and 1. */
+    public double dedupRatio() {
+        long calls = exchangeCount + coalescedCount;
+        return calls > 0 ? (double) coalescedCount / calls : 0d;
+    }
+
+    @Override
+    public String toString() {
+        return method.getName() + ": " + (exchangeCount + coalescedCount) + " calls, "
+                + exchangeCount + " exchanges, " + Math.round(dedupRatio() * 100) + "% coalesced";
+    }
+}
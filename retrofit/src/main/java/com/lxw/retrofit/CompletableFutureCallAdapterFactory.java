@@ -0,0 +1,132 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/12
+ *     desc   : 支持 CompletableFuture<T> 和 CompletableFuture<Response<T>> 返回类型；基于 enquue，
+ *              等待结果时不占用线程，取消 future 会取消底层请求。由 Platform 在支持的平台上默认添加
+ * </pre>
+ */
+@RequiresApi(24)
+final class CompletableFutureCallAdapterFactory extends CallAdapter.Factory {
+    static final CallAdapter.Factory INSTANCE = new CompletableFutureCallAdapterFactory();
+
+    @Nullable
+    @Override
+    public CallAdapter<?, ?> get(Type returnType, Annotation[] annotations, Retrofit retrofit) {
+        if (getRawType(returnType) != CompletableFuture.class) {
+            return null;
+        }
+        if (!(returnType instanceof ParameterizedType)) {
+            throw new IllegalStateException("CompletableFuture return type must be parameterized"
+                    + " as CompletableFuture<Foo> or CompletableFuture<? extends Foo>");
+        }
+        Type innerType = getParameterUpperBound(0, (ParameterizedType) returnType);
+
+        if (getRawType(innerType) != Response.class) {
+            // Generic type is not Response<T>. Use it for body-only adapter.
+            return new BodyCallAdapter<>(innerType);
+        }
+
+        // Generic type is Response<T>. Extract T and create the Response version of the adapter.
+        if (!(innerType instanceof ParameterizedType)) {
+            throw new IllegalStateException("Response must be parameterized"
+                    + " as Response<Foo> or Response<? extends Foo>");
+        }
+        Type responseType = getParameterUpperBound(0, (ParameterizedType) innerType);
+        return new ResponseCallAdapter<>(responseType);
+    }
+
+    @RequiresApi(24)
+    private static final class BodyCallAdapter<R> implements CallAdapter<R, CompletableFuture<R>> {
+        private final Type responseType;
+
+        BodyCallAdapter(Type responseType) {
+            this.responseType = responseType;
+        }
+
+        @Override
+        public Type responseType() {
+            return responseType;
+        }
+
+        @Override
+        public CompletableFuture<R> adapt(final Call<R> call) {
+            final CompletableFuture<R> future = new CallCancelCompletableFuture<>(call);
+            call.enquue(new Callback<R>() {
+                @Override
+                public void onResponse(Call<R> call, Response<R> response) {
+                    if (response.isSuccessful()) {
+                        future.complete(response.body());
+                    } else {
+                        future.completeExceptionally(new HttpException(response));
+                    }
+                }
+
+                @Override
+                public void onFailure(Call<R> call, Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+            return future;
+        }
+    }
+
+    @RequiresApi(24)
+    private static final class ResponseCallAdapter<R>
+            implements CallAdapter<R, CompletableFuture<Response<R>>> {
+        private final Type responseType;
+
+        ResponseCallAdapter(Type responseType) {
+            this.responseType = responseType;
+        }
+
+        @Override
+        public Type responseType() {
+            return responseType;
+        }
+
+        @Override
+        public CompletableFuture<Response<R>> adapt(final Call<R> call) {
+            final CompletableFuture<Response<R>> future = new CallCancelCompletableFuture<>(call);
+            call.enquue(new Callback<R>() {
+                @Override
+                public void onResponse(Call<R> call, Response<R> response) {
+                    future.complete(response);
+                }
+
+                @Override
+                public void onFailure(Call<R> call, Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+            return future;
+        }
+    }
+
+    @RequiresApi(24)
+    private static final class CallCancelCompletableFuture<T> extends CompletableFuture<T> {
+        private final Call<?> call;
+
+        CallCancelCompletableFuture(Call<?> call) {
+            this.call = call;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            // Nothing blocks on the call, so it is cancelled whatever the flag says.
+            call.cancel();
+            return super.cancel(mayInterruptIfRunning);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Request;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/13
+ *     desc   : @CacheTtl 方法转换后的响应对象的内存缓存，按条数做 LRU 淘汰；命中时跳过网络和转换器，
+ *              过期的条目带 If-None-Match/If-Modified-Since 重新校验，304 时直接复用缓存的对象
+ * </pre>
+ */
+public final class ConvertedResponseCache {
+    private final int maxEntries;
+    //访问顺序的 LinkedHashMap，最久未用的条目先淘汰
+    private final LinkedHashMap<Key, CachedResponse> entries;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+
+    private ConvertedResponseCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** Holds at most {@code maxEntries} responses, evicting the least recently used. */
+    public static ConvertedResponseCache create(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries < 1: " + maxEntries);
+        }
+        return new ConvertedResponseCache(maxEntries);
+    }
+
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void evictAll() {
+        entries.clear();
+    }
+
+    /** Calls answered from the cache without touching the network. */
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    /** Calls whose response came from the network and was converted. */
+    public long missCount() {
+        return missCount.get();
+    }
+
+    /** Calls that sent a conditional request and reused the cached object on a 304. */
+    public long revalidationCount() {
+        return revalidationCount.get();
+    }
+
+    public double hitRate() {
+        return rate(hitCount.get());
+    }
+
+    public double revalidationRate() {
+        return rate(revalidationCount.get());
+    }
+
+    private double rate(long count) {
+        long calls = hitCount.get() + missCount.get() + revalidationCount.get();
+        return calls > 0 ? (double) count / calls : 0d;
+    }
+
+    @Nullable
+    synchronized CachedResponse get(Key key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(Key key, CachedResponse entry) {
+        entries.put(key, entry);
+    }
+
+    void recordHit() {
+        hitCount.incrementAndGet();
+    }
+
+    void recordMiss() {
+        missCount.incrementAndGet();
+    }
+
+    void recordRevalidation() {
+        revalidationCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "ConvertedResponseCache{size=" + size() + ", hits=" + hitCount() + ", misses="
+                + missCount() + ", revalidations=" + revalidationCount() + "}";
+    }
+
+    /**
+     * The response converter, which fixes the type of the cached object, and the method, URL
+     * and headers of the request.
+     */
+    static final class Key {
+        private final Object converter;
+        private final String request;
+
+        Key(Object converter, Request request) {
+            this.converter = converter;
+            this.request = CallCoalescer.key(request);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key
+                    && ((Key) o).converter == converter
+                    && ((Key) o).request.equals(request);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(converter) + request.hashCode();
+        }
+    }
+
+    static final class CachedResponse {
+        final Response<?> response;
+        private final @Nullable
+        String etag;
+        private final @Nullable
+        String lastModified;
+        private volatile long expiresAtNanos;
+
+        CachedResponse(Response<?> response, long ttlNanos) {
+            this.response = response;
+            this.etag = response.headers().get("ETag");
+            this.lastModified = response.headers().get("Last-Modified");
+            this.expiresAtNanos = System.nanoTime() + ttlNanos;
+        }
+
+        boolean isFresh() {
+            return System.nanoTime() - expiresAtNanos < 0;
+        }
+
+        /** Extends the entry after the server confirmed it with a 304. */
+        void refresh(long ttlNanos) {
+            expiresAtNanos = System.nanoTime() + ttlNanos;
+        }
+
+        /** Returns {@code request} made conditional on this entry, or null without a validator. */
+        @Nullable
+        Request conditional(Request request) {
+            if (etag == null && lastModified == null) {
+                return null;
+            }
+            Request.Builder builder = request.newBuilder();
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,632 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import okhttp3.Headers;
+import okio.Buffer;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/14
+ *     desc   : @CacheTtl 方法响应的磁盘缓存：记录追加写入 data 文件，key 的哈希表放在内存映射的 index 文件里，
+ *              进程重启后第一次调用直接按索引读出记录，不必走网络；每条记录带 CRC，超出大小时压缩
+ * </pre>
+ *
+ * Records hold the bytes the response converter read, not the converted object: there is no
+ * way to serialize an arbitrary {@code T}, while the converter turns the same bytes into the
+ * same object. After a restart each record is therefore converted again on its first read, which
+ * costs one conversion instead of a round trip; a {@link ConvertedResponseCache} in front of this
+ * one serves the calls after that.
+ *
+ * <p>A failed write never fails the call that made it; it is only counted in
+ * {@link #writeFailureCount()}.
+ */
+public final class DiskResponseCache implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DATA_MAGIC = 0x52444331;
+    private static final int RECORD_MAGIC = 0x52454331;
+    private static final int INDEX_MAGIC = 0x49445831;
+    private static final int DATA_HEADER_SIZE = 8;
+    //magic, slotCount, liveCount, pad, dataLength
+    private static final int INDEX_HEADER_SIZE = 24;
+    //keyHash, offset, length, pad
+    private static final int SLOT_SIZE = 24;
+    private static final int MIN_SLOTS = 256;
+    //magic, length, keyHash, expiresAtMillis
+    private static final int RECORD_HEADER_SIZE = 24;
+    private static final int EXPIRES_AT_OFFSET = 16;
+
+    private final File dataPath;
+    private final File indexPath;
+    private final long maxBytes;
+    private final RandomAccessFile dataFile;
+    private final FileChannel data;
+    private RandomAccessFile indexFile;
+    private MappedByteBuffer index;
+    private int slotCount;
+    private int liveCount;
+    private long dataLength;
+    private boolean closed;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong revalidationCount = new AtomicLong();
+    private final AtomicLong writeCount = new AtomicLong();
+    private final AtomicLong corruptionCount = new AtomicLong();
+    private final AtomicLong compactionCount = new AtomicLong();
+    private final AtomicLong writeFailureCount = new AtomicLong();
+
+    private DiskResponseCache(File directory, long maxBytes) throws IOException {
+        this.dataPath = new File(directory, "responses.data");
+        this.indexPath = new File(directory, "responses.index");
+        this.maxBytes = maxBytes;
+        this.dataFile = new RandomAccessFile(dataPath, "rw");
+        this.data = dataFile.getChannel();
+    }
+
+    /**
+     * Opens the cache in {@code directory}, creating it if needed. When the data file grows
+     * past {@code maxBytes} the oldest records are dropped until it is half that size.
+     */
+    public static DiskResponseCache open(File directory, long maxBytes) throws IOException {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maxBytes < 1: " + maxBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        DiskResponseCache cache = new DiskResponseCache(directory, maxBytes);
+        try {
+            cache.load();
+        } catch (IOException e) {
+            cache.close();
+            throw e;
+        }
+        return cache;
+    }
+
+    private void load() throws IOException {
+        long size = data.size();
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+        if (size < DATA_HEADER_SIZE || readFully(header, 0) < DATA_HEADER_SIZE
+                || header.getInt(0) != DATA_MAGIC) {
+            //不认识的文件，整个丢弃
+            if (size > 0) {
+                corruptionCount.incrementAndGet();
+            }
+            resetData();
+            size = DATA_HEADER_SIZE;
+        }
+
+        indexFile = new RandomAccessFile(indexPath, "rw");
+        long indexSize = indexFile.length();
+        int slots = indexSize >= INDEX_HEADER_SIZE
+                ? (int) ((indexSize - INDEX_HEADER_SIZE) / SLOT_SIZE)
+                : 0;
+        if (slots >= MIN_SLOTS) {
+            map(slots);
+            if (index.getInt(0) == INDEX_MAGIC && index.getInt(4) == slots
+                    && index.getLong(16) <= size) {
+                slotCount = slots;
+                liveCount = index.getInt(8);
+                dataLength = index.getLong(16);
+                if (dataLength < size) {
+                    // Records appended after the index was last updated.
+                    scan(dataLength);
+                }
+                return;
+            }
+            corruptionCount.incrementAndGet();
+        }
+        rebuildIndex(MIN_SLOTS);
+    }
+
+    /** Re-creates the index from the records in the data file. */
+    private void rebuildIndex(int minSlots) throws IOException {
+        map(minSlots);
+        clearIndex(minSlots);
+        dataLength = DATA_HEADER_SIZE;
+        scan(DATA_HEADER_SIZE);
+    }
+
+    /**
+     * Indexes the records from {@code offset} on. A record whose CRC fails is skipped; a header
+     * that makes no sense ends the scan and the file is cut there, since it is the tail of an
+     * append that did not finish.
+     */
+    private void scan(long offset) throws IOException {
+        long size = data.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, offset);
+            int length = header.getInt(4);
+            if (header.getInt(0) != RECORD_MAGIC || length < RECORD_HEADER_SIZE + 4
+                    || offset + length > size) {
+                break;
+            }
+            if (readRecord(offset, length) != null) {
+                putSlot(header.getLong(8), offset, length);
+            } else {
+                corruptionCount.incrementAndGet();
+            }
+            offset += length;
+        }
+        if (offset < size) {
+            corruptionCount.incrementAndGet();
+            data.truncate(offset);
+        }
+        dataLength = offset;
+        writeIndexHeader();
+    }
+
+    /** Returns the record for {@code key}, or null if it is missing or failed its checks. */
+    @Nullable
+    synchronized Record get(String key) throws IOException {
+        checkNotClosed();
+        long hash = hash(key);
+        int slot = findSlot(hash);
+        int position = slotPosition(slot);
+        long offset = index.getLong(position + 8);
+        if (offset == 0) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        Record record = readRecord(offset, index.getInt(position + 16));
+        if (record == null) {
+            // Left for the next put of this key to replace.
+            corruptionCount.incrementAndGet();
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (!record.key.equals(key)) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return record;
+    }
+
+    /** Appends a record for {@code key}; the previous one stays until the next compaction. */
+    synchronized void put(String key, long expiresAtMillis, @Nullable String contentType,
+                          @Nullable String etag, @Nullable String lastModified, byte[] body)
+            throws IOException {
+        checkNotClosed();
+        long hash = hash(key);
+        Buffer record = new Buffer();
+        record.writeInt(RECORD_MAGIC);
+        record.writeInt(0);
+        record.writeLong(hash);
+        record.writeLong(expiresAtMillis);
+        writeString(record, key);
+        writeString(record, contentType);
+        writeString(record, etag);
+        writeString(record, lastModified);
+        record.writeInt(body.length);
+        record.write(body);
+        byte[] bytes = new byte[(int) record.size() + 4];
+        record.read(bytes, 0, bytes.length - 4);
+        int length = bytes.length;
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.putInt(4, length);
+        buffer.putInt(length - 4, crc(bytes, length - 4));
+
+        long offset = dataLength;
+        writeFully(buffer, offset);
+        dataLength = offset + length;
+        putSlot(hash, offset, length);
+        writeIndexHeader();
+        writeCount.incrementAndGet();
+        if (dataLength > maxBytes) {
+            compact();
+        }
+    }
+
+    /** Moves the expiry of the record for {@code key} after the server confirmed it. */
+    synchronized void touch(String key, long expiresAtMillis) throws IOException {
+        checkNotClosed();
+        int position = slotPosition(findSlot(hash(key)));
+        long offset = index.getLong(position + 8);
+        int length = index.getInt(position + 16);
+        if (offset == 0 || readRecord(offset, length) == null) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        readFully(bytes, offset);
+        bytes.putLong(EXPIRES_AT_OFFSET, expiresAtMillis);
+        bytes.putInt(length - 4, crc(bytes.array(), length - 4));
+        bytes.rewind();
+        writeFully(bytes, offset);
+        revalidationCount.incrementAndGet();
+    }
+
+    /**
+     * Rewrites the data file with the newest live records that fit in half of
+     * {@code maxBytes}, so compaction does not run again on the next put.
+     */
+    private void compact() throws IOException {
+        List<long[]> live = new ArrayList<>(liveCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            int position = slotPosition(slot);
+            long offset = index.getLong(position + 8);
+            if (offset != 0) {
+                live.add(new long[]{offset, index.getInt(position + 16), index.getLong(position)});
+            }
+        }
+        Collections.sort(live, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return a[0] < b[0] ? 1 : (a[0] == b[0] ? 0 : -1);
+            }
+        });
+        List<long[]> kept = new ArrayList<>();
+        long keptBytes = DATA_HEADER_SIZE;
+        for (long[] record : live) {
+            if (keptBytes + record[1] > maxBytes / 2) {
+                break;
+            }
+            keptBytes += record[1];
+            kept.add(record);
+        }
+        // Oldest first, as they were appended.
+        Collections.reverse(kept);
+
+        File compacted = new File(dataPath.getPath() + ".tmp");
+        RandomAccessFile out = new RandomAccessFile(compacted, "rw");
+        long[] newOffsets = new long[kept.size()];
+        try {
+            FileChannel channel = out.getChannel();
+            channel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+            header.putInt(DATA_MAGIC).putInt(1).flip();
+            channel.write(header, 0);
+            long position = DATA_HEADER_SIZE;
+            for (int i = 0; i < kept.size(); i++) {
+                long[] record = kept.get(i);
+                newOffsets[i] = position;
+                long transferred = 0;
+                while (transferred < record[1]) {
+                    transferred += data.transferTo(record[0] + transferred, record[1] - transferred,
+                            channel.position(position + transferred));
+                }
+                position += record[1];
+            }
+            channel.force(false);
+        } finally {
+            out.close();
+        }
+
+        //先把索引标成无效：替换数据文件的途中崩溃，下次打开时会重建索引
+        index.putInt(0, 0);
+        index.force();
+        data.truncate(0);
+        data.position(0);
+        RandomAccessFile in = new RandomAccessFile(compacted, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            long transferred = 0;
+            while (transferred < size) {
+                transferred += channel.transferTo(transferred, size - transferred, data);
+            }
+        } finally {
+            in.close();
+        }
+        data.force(false);
+        compacted.delete();
+
+        clearIndex(slotCount);
+        for (int i = 0; i < kept.size(); i++) {
+            putSlot(kept.get(i)[2], newOffsets[i], (int) kept.get(i)[1]);
+        }
+        dataLength = keptBytes;
+        writeIndexHeader();
+        compactionCount.incrementAndGet();
+    }
+
+    @Nullable
+    private Record readRecord(long offset, int length) throws IOException {
+        if (length < RECORD_HEADER_SIZE + 4 || offset + length > data.size()) {
+            return null;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        if (readFully(bytes, offset) < length
+                || bytes.getInt(0) != RECORD_MAGIC
+                || bytes.getInt(4) != length
+                || bytes.getInt(length - 4) != crc(bytes.array(), length - 4)) {
+            return null;
+        }
+        Buffer buffer = new Buffer().write(bytes.array(), RECORD_HEADER_SIZE,
+                length - RECORD_HEADER_SIZE - 4);
+        try {
+            String key = readString(buffer);
+            String contentType = readString(buffer);
+            String etag = readString(buffer);
+            String lastModified = readString(buffer);
+            byte[] body = buffer.readByteArray(buffer.readInt());
+            return new Record(key, bytes.getLong(EXPIRES_AT_OFFSET), contentType, etag,
+                    lastModified, body);
+        } catch (IOException | RuntimeException e) {
+            // The CRC matched but the fields do not add up.
+            return null;
+        }
+    }
+
+    private int findSlot(long hash) {
+        int slot = (int) ((hash & Long.MAX_VALUE) % slotCount);
+        while (true) {
+            int position = slotPosition(slot);
+            if (index.getLong(position + 8) == 0 || index.getLong(position) == hash) {
+                return slot;
+            }
+            slot = (slot + 1) % slotCount;
+        }
+    }
+
+    private void putSlot(long hash, long offset, int length) throws IOException {
+        int position = slotPosition(findSlot(hash));
+        if (index.getLong(position + 8) == 0) {
+            //装载率超过一半时扩容
+            if ((liveCount + 1) * 2 > slotCount) {
+                growIndex();
+                position = slotPosition(findSlot(hash));
+            }
+            liveCount++;
+        }
+        index.putLong(position, hash);
+        index.putLong(position + 8, offset);
+        index.putInt(position + 16, length);
+    }
+
+    private void growIndex() throws IOException {
+        int oldSlots = slotCount;
+        long[][] slots = new long[liveCount][];
+        int n = 0;
+        for (int slot = 0; slot < oldSlots; slot++) {
+            int position = slotPosition(slot);
+            long offset = index.getLong(position + 8);
+            if (offset != 0) {
+                slots[n++] = new long[]{index.getLong(position), offset, index.getInt(position + 16)};
+            }
+        }
+        map(oldSlots * 2);
+        clearIndex(oldSlots * 2);
+        for (int i = 0; i < n; i++) {
+            putSlot(slots[i][0], slots[i][1], (int) slots[i][2]);
+        }
+    }
+
+    private void map(int slots) throws IOException {
+        long size = INDEX_HEADER_SIZE + (long) slots * SLOT_SIZE;
+        if (indexFile.length() != size) {
+            indexFile.setLength(size);
+        }
+        index = indexFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private void clearIndex(int slots) {
+        for (int position = 0; position < index.capacity(); position += 8) {
+            index.putLong(position, 0L);
+        }
+        slotCount = slots;
+        liveCount = 0;
+    }
+
+    private void writeIndexHeader() {
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, slotCount);
+        index.putInt(8, liveCount);
+        index.putLong(16, dataLength);
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private void resetData() throws IOException {
+        data.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(DATA_HEADER_SIZE);
+        header.putInt(DATA_MAGIC).putInt(1).flip();
+        writeFully(header, 0);
+    }
+
+    private int readFully(ByteBuffer buffer, long offset) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = data.read(buffer, offset + total);
+            if (read == -1) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private void writeFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            offset += data.write(buffer, offset);
+        }
+    }
+
+    private static void writeString(Buffer buffer, @Nullable String value) {
+        if (value == null) {
+            buffer.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        buffer.writeInt(bytes.length);
+        buffer.write(bytes);
+    }
+
+    @Nullable
+    private static String readString(Buffer buffer) throws IOException {
+        int length = buffer.readInt();
+        return length == -1 ? null : buffer.readString(length, UTF_8);
+    }
+
+    private static int crc(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+
+    /** 64-bit FNV-1a of the UTF-8 key; a collision only costs a miss, records carry the key. */
+    private static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        // Never 0, so a zeroed slot cannot match.
+        return hash != 0 ? hash : 1;
+    }
+
+    private void checkNotClosed() {
+        if (closed) {
+            throw new IllegalStateException("cache is closed");
+        }
+    }
+
+    /** Bytes in the data file, including records replaced since the last compaction. */
+    public synchronized long size() {
+        return dataLength;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int entryCount() {
+        return liveCount;
+    }
+
+    /** Records found and intact. */
+    public long hitCount() {
+        return hitCount.get();
+    }
+
+    public long missCount() {
+        return missCount.get();
+    }
+
+    /** Stale records the server confirmed with a 304. */
+    public long revalidationCount() {
+        return revalidationCount.get();
+    }
+
+    public long writeCount() {
+        return writeCount.get();
+    }
+
+    /** Records or files that failed their checks and were dropped. */
+    public long corruptionCount() {
+        return corruptionCount.get();
+    }
+
+    public long compactionCount() {
+        return compactionCount.get();
+    }
+
+    /** Records and expiry updates that could not be written, e.g. on a full disk or after close. */
+    public long writeFailureCount() {
+        return writeFailureCount.get();
+    }
+
+    void recordWriteFailure() {
+        writeFailureCount.incrementAndGet();
+    }
+
+    public synchronized void evictAll() throws IOException {
+        checkNotClosed();
+        resetData();
+        clearIndex(slotCount);
+        dataLength = DATA_HEADER_SIZE;
+        writeIndexHeader();
+    }
+
+    /** Writes the index and data file to disk. */
+    public synchronized void flush() throws IOException {
+        checkNotClosed();
+        data.force(false);
+        index.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (index != null) {
+                index.force();
+            }
+        } finally {
+            dataFile.close();
+            if (indexFile != null) {
+                indexFile.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DiskResponseCache{entries=" + entryCount() + ", bytes=" + size() + ", hits="
+                + hitCount() + ", misses=" + missCount() + ", corrupt=" + corruptionCount()
+                + ", writeFailures=" + writeFailureCount() + "}";
+    }
+
+    /** One cached response: the body the converter read and the headers needed to revalidate. */
+    static final class Record {
+        final String key;
+        final long expiresAtMillis;
+        final @Nullable
+        String contentType;
+        final @Nullable
+        String etag;
+        final @Nullable
+        String lastModified;
+        final byte[] body;
+
+        Record(String key, long expiresAtMillis, @Nullable String contentType,
+               @Nullable String etag, @Nullable String lastModified, byte[] body) {
+            this.key = key;
+            this.expiresAtMillis = expiresAtMillis;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        Headers headers() {
+            Headers.Builder builder = new Headers.Builder();
+            if (contentType != null) {
+                builder.add("Content-Type", contentType);
+            }
+            if (etag != null) {
+                builder.add("ETag", etag);
+            }
+            if (lastModified != null) {
+                builder.add("Last-Modified", lastModified);
+            }
+            return builder.build();
+        }
+    }
+}
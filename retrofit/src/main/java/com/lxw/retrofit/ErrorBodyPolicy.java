@@ -0,0 +1,111 @@
+package com.lxw.retrofit;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/08
+ *     desc   : 非 2xx 响应体的处理策略：限量缓存、截断并追加标记、或直接丢弃，并统计读取与丢弃的字节数
+ * </pre>
+ */
+public final class ErrorBodyPolicy {
+    private static final int BUFFER = 0;
+    private static final int TRUNCATE = 1;
+    private static final int DISCARD = 2;
+    private static final long SEGMENT_SIZE = 8192L;
+
+    private final int mode;
+    private final long maxBytes;
+    private final byte[] marker;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesDiscarded = new AtomicLong();
+
+    private ErrorBodyPolicy(int mode, long maxBytes, byte[] marker) {
+        this.mode = mode;
+        this.maxBytes = maxBytes;
+        this.marker = marker;
+    }
+
+    /**
+     * Reads error bodies of up to {@code maxBytes} bytes into memory before the call returns.
+     * Longer bodies are cut to their first {@code maxBytes} bytes.
+     */
+    public static ErrorBodyPolicy buffer(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes < 0: " + maxBytes);
+        }
+        return new ErrorBodyPolicy(BUFFER, maxBytes, new byte[0]);
+    }
+
+    /** Like {@link #buffer}, but appends {@code marker} to a body that was cut. */
+    public static ErrorBodyPolicy truncate(long maxBytes, String marker) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes < 0: " + maxBytes);
+        }
+        Utils.checkNotNull(marker, "marker == null");
+        return new ErrorBodyPolicy(TRUNCATE, maxBytes, marker.getBytes(Charset.forName("UTF-8")));
+    }
+
+    /**
+     * Never reads error bodies; {@link Response#errorBody()} is empty but keeps the content
+     * type.
+     */
+    public static ErrorBodyPolicy discard() {
+        return new ErrorBodyPolicy(DISCARD, 0L, new byte[0]);
+    }
+
+    /** Bytes read from error bodies, including bytes read past the limit and then dropped. */
+    public long bytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Bytes of error bodies that were not kept: bytes read and dropped, plus the unread rest of
+     * bodies whose length was declared.
+     */
+    public long bytesDiscarded() {
+        return bytesDiscarded.get();
+    }
+
+    /** Returns a detached copy of {@code body} according to this policy. Does not close it. */
+    ResponseBody apply(ResponseBody body) throws IOException {
+        MediaType contentType = body.contentType();
+        long contentLength = body.contentLength();
+        Buffer kept = new Buffer();
+        if (mode == DISCARD) {
+            if (contentLength > 0) {
+                bytesDiscarded.addAndGet(contentLength);
+            }
+            return ResponseBody.create(contentType, 0L, kept);
+        }
+
+        BufferedSource source = body.source();
+        while (kept.size() < maxBytes) {
+            long read = source.read(kept, Math.min(SEGMENT_SIZE, maxBytes - kept.size()));
+            if (read == -1) {
+                break;
+            }
+        }
+        long keptBytes = kept.size();
+        // exhausted() pulls at most a segment past the limit, which is then dropped.
+        boolean cut = keptBytes == maxBytes && !source.exhausted();
+        long overRead = cut ? source.buffer().size() : 0L;
+        bytesRead.addAndGet(keptBytes + overRead);
+        if (cut) {
+            bytesDiscarded.addAndGet(contentLength != -1 ? contentLength - keptBytes : overRead);
+            if (mode == TRUNCATE) {
+                kept.write(marker);
+            }
+        }
+        return ResponseBody.create(contentType, kept.size(), kept);
+    }
+}
@@ -44,6 +44,18 @@ class ExecutorCallAdapterFactory extends CallAdapter.Factory {
         };
     }
 
+    /** Factories posting to the same executor adapt every method identically. */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ExecutorCallAdapterFactory
+                && ((ExecutorCallAdapterFactory) o).callbackExecutor == callbackExecutor;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(callbackExecutor);
+    }
+
     private static final class ExecutorCallbackCall<T> implements Call<T> {
         final Executor callbackExecutor;
         final Call<T> delegate;
@@ -0,0 +1,238 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import okhttp3.Request;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/11
+ *     desc   : 把 Call 的请求直接下载到文件：响应体经固定大小的 direct ByteBuffer 写入 FileChannel，
+ *              内存占用与文件大小无关；中断后用 Range/If-Range 续传，完成后校验长度
+ * </pre>
+ */
+public final class FileDownloader {
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    private final okhttp3.Call.Factory callFactory;
+    private final int maxAttempts;
+
+    public FileDownloader(Retrofit retrofit) {
+        this(retrofit, 3);
+    }
+
+    /** {@code maxAttempts} counts the first attempt; each retry resumes where the last stopped. */
+    public FileDownloader(Retrofit retrofit, int maxAttempts) {
+        this(retrofit.callFactory(), maxAttempts);
+    }
+
+    FileDownloader(okhttp3.Call.Factory callFactory, int maxAttempts) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts < 1: " + maxAttempts);
+        }
+        this.callFactory = callFactory;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Downloads the request of {@code call} to {@code target} and returns it. The converter
+     * and call adapter of {@code call} are not used, so any return type will do.
+     *
+     * <p>Bytes are written to {@code target.part}, renamed to {@code target} once the length
+     * matches what the server announced. If an attempt fails, or an earlier download left a part
+     * file, the next request asks for the rest with {@code Range}, guarded by {@code If-Range}
+     * with the strong ETag or Last-Modified of the first response. A server that ignores the
+     * range or reports a changed resource sends the whole body, which replaces the part file.
+     * Unexpected statuses, such as 404, fail right away; only I/O errors are retried.
+     */
+    public File download(Call<?> call, File target) throws IOException {
+        Request request = call.request();
+        File part = new File(target.getPath() + ".part");
+        File validatorFile = new File(target.getPath() + ".part.validator");
+        ByteBuffer buffer = ByteBuffer.allocateDirect(TRANSFER_SIZE);
+        IOException failure = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            try {
+                transfer(request, part, validatorFile, buffer);
+                failure = null;
+                break;
+            } catch (UnexpectedResponseException e) {
+                throw e;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot replace " + target);
+        }
+        if (!part.renameTo(target)) {
+            throw new IOException("Cannot rename " + part + " to " + target);
+        }
+        validatorFile.delete();
+        return target;
+    }
+
+    private void transfer(Request request, File part, File validatorFile, ByteBuffer buffer)
+            throws IOException {
+        long offset = part.length();
+        String validator = offset > 0 ? readValidator(validatorFile) : null;
+        Request.Builder builder = request.newBuilder();
+        if (validator != null) {
+            builder.header("Range", "bytes=" + offset + "-").header("If-Range", validator);
+        } else {
+            //没有校验值无法确认服务端资源没变，只能从头下载
+            offset = 0;
+        }
+
+        okhttp3.Response response = callFactory.newCall(builder.build()).execute();
+        try {
+            int code = response.code();
+            long expectedLength;
+            if (code == 206 && validator != null) {
+                String contentRange = response.header("Content-Range");
+                long[] range = parseContentRange(contentRange);
+                if (range == null || range[0] != offset) {
+                    throw new UnexpectedResponseException("Unexpected Content-Range: " + contentRange);
+                }
+                expectedLength = range[1];
+            } else if (code == 416 && validator != null) {
+                long[] range = parseContentRange(response.header("Content-Range"));
+                if (range != null && range[1] == offset) {
+                    // The previous attempt had already written everything.
+                    return;
+                }
+                part.delete();
+                throw new IOException("Part file no longer matches the resource; restarting");
+            } else if (response.isSuccessful() && code != 206) {
+                offset = 0;
+                expectedLength = response.body().contentLength();
+                writeValidator(validatorFile, validator(response));
+            } else {
+                throw new UnexpectedResponseException("HTTP " + code + " " + response.message());
+            }
+
+            long length = write(response.body().source(), part, offset, buffer);
+            if (expectedLength != -1 && length != expectedLength) {
+                throw new IOException("Expected " + expectedLength + " bytes but got " + length);
+            }
+        } finally {
+            response.close();
+        }
+    }
+
+    /** Writes {@code source} to {@code part} at {@code offset} and returns the file length. */
+    private static long write(BufferedSource source, File part, long offset, ByteBuffer buffer)
+            throws IOException {
+        RandomAccessFile file = new RandomAccessFile(part, "rw");
+        try {
+            FileChannel channel = file.getChannel();
+            channel.truncate(offset);
+            channel.position(offset);
+            buffer.clear();
+            boolean exhausted = false;
+            while (!exhausted) {
+                // Fill the whole buffer so the file sees large writes, not one per okio segment.
+                while (buffer.hasRemaining()) {
+                    if (source.read(buffer) == -1) {
+                        exhausted = true;
+                        break;
+                    }
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+            channel.force(false);
+            return channel.size();
+        } finally {
+            // Whatever reached the file stays there for the next attempt to resume from.
+            file.close();
+        }
+    }
+
+    /** Returns {start, total} of {@code bytes start-end/total}, total -1 for {@code *}. */
+    @Nullable
+    static long[] parseContentRange(@Nullable String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+        int dash = contentRange.indexOf('-', 6);
+        int slash = contentRange.indexOf('/', 6);
+        if (slash == -1) {
+            return null;
+        }
+        try {
+            long start = dash != -1 && dash < slash
+                    ? Long.parseLong(contentRange.substring(6, dash).trim())
+                    : -1L;
+            String total = contentRange.substring(slash + 1).trim();
+            return new long[]{start, "*".equals(total) ? -1L : Long.parseLong(total)};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** If-Range only accepts a strong ETag or a Last-Modified date. */
+    @Nullable
+    static String validator(okhttp3.Response response) {
+        String etag = response.header("ETag");
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.header("Last-Modified");
+    }
+
+    @Nullable
+    private static String readValidator(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        BufferedSource source = Okio.buffer(Okio.source(file));
+        try {
+            String validator = source.readUtf8LineStrict();
+            return validator.isEmpty() ? null : validator;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            source.close();
+        }
+    }
+
+    private static void writeValidator(File file, @Nullable String validator) throws IOException {
+        if (validator == null) {
+            file.delete();
+            return;
+        }
+        BufferedSink sink = Okio.buffer(Okio.sink(file));
+        try {
+            sink.writeUtf8(validator).writeByte('\n');
+        } finally {
+            sink.close();
+        }
+    }
+
+    /** A response that retrying will not fix. */
+    static final class UnexpectedResponseException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        UnexpectedResponseException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/12
+ *     desc   : 非 2xx 响应转换成的异常，供只返回响应体的调用方式使用，例如 CompletableFuture<T>
+ * </pre>
+ */
+public class HttpException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final int code;
+    private final String message;
+    private final transient @Nullable
+    Response<?> response;
+
+    public HttpException(Response<?> response) {
+        super("HTTP " + response.code() + " " + response.message());
+        this.code = response.code();
+        this.message = response.message();
+        this.response = response;
+    }
+
+    /** HTTP status code. */
+    public int code() {
+        return code;
+    }
+
+    /** HTTP status message. */
+    public String message() {
+        return message;
+    }
+
+    /** The full HTTP response. Null if this exception was serialized. */
+    @Nullable
+    public Response<?> response() {
+        return response;
+    }
+}
@@ -0,0 +1,109 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+
+import static com.lxw.retrofit.ParameterSpec.readNullableUtf;
+import static com.lxw.retrofit.ParameterSpec.writeNullableUtf;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/04
+ *     desc   : 方法注解解析后的结果，与 baseUrl、转换器无关
+ * </pre>
+ */
+final class MethodMetadata {
+    private static final int FLAG_HAS_BODY = 1;
+    private static final int FLAG_FORM_ENCODED = 1 << 1;
+    private static final int FLAG_MULTIPART = 1 << 2;
+
+    final String httpMethod;
+    final @Nullable
+    String relativeUrl;
+    //relativeUrl 编译后的模板，不写入快照
+    final @Nullable
+    UrlTemplate urlTemplate;
+    final @Nullable
+    Headers headers;
+    final @Nullable
+    MediaType contentType;
+    final boolean hasBody;
+    final boolean isFormEncoded;
+    final boolean isMultipart;
+    final ParameterSpec[] parameters;
+
+    MethodMetadata(String httpMethod, @Nullable String relativeUrl,
+                   @Nullable UrlTemplate urlTemplate, @Nullable Headers headers,
+                   @Nullable MediaType contentType, boolean hasBody, boolean isFormEncoded,
+                   boolean isMultipart, ParameterSpec[] parameters) {
+        this.httpMethod = httpMethod;
+        this.relativeUrl = relativeUrl;
+        this.urlTemplate = urlTemplate;
+        this.headers = headers;
+        this.contentType = contentType;
+        this.hasBody = hasBody;
+        this.isFormEncoded = isFormEncoded;
+        this.isMultipart = isMultipart;
+        this.parameters = parameters;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeUTF(httpMethod);
+        writeNullableUtf(out, relativeUrl);
+        int headerCount = headers != null ? headers.size() : 0;
+        out.writeShort(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            out.writeUTF(headers.name(i));
+            out.writeUTF(headers.value(i));
+        }
+        writeNullableUtf(out, contentType != null ? contentType.toString() : null);
+        out.writeByte((hasBody ? FLAG_HAS_BODY : 0)
+                | (isFormEncoded ? FLAG_FORM_ENCODED : 0)
+                | (isMultipart ? FLAG_MULTIPART : 0));
+        out.writeShort(parameters.length);
+        for (ParameterSpec parameter : parameters) {
+            parameter.write(out);
+        }
+    }
+
+    static MethodMetadata read(DataInput in) throws IOException {
+        String httpMethod = in.readUTF();
+        String relativeUrl = readNullableUtf(in);
+        int headerCount = in.readUnsignedShort();
+        Headers headers = null;
+        if (headerCount > 0) {
+            Headers.Builder builder = new Headers.Builder();
+            for (int i = 0; i < headerCount; i++) {
+                builder.add(in.readUTF(), in.readUTF());
+            }
+            headers = builder.build();
+        }
+        String contentTypeString = readNullableUtf(in);
+        MediaType contentType = null;
+        if (contentTypeString != null) {
+            contentType = MediaType.parse(contentTypeString);
+            if (contentType == null) {
+                throw new IOException("Malformed content type: " + contentTypeString);
+            }
+        }
+        int flags = in.readUnsignedByte();
+        ParameterSpec[] parameters = new ParameterSpec[in.readUnsignedShort()];
+        for (int p = 0; p < parameters.length; p++) {
+            parameters[p] = ParameterSpec.read(in);
+        }
+        return new MethodMetadata(httpMethod, relativeUrl,
+                relativeUrl != null ? UrlTemplate.compile(relativeUrl) : null, headers, contentType,
+                (flags & FLAG_HAS_BODY) != 0,
+                (flags & FLAG_FORM_ENCODED) != 0,
+                (flags & FLAG_MULTIPART) != 0,
+                parameters);
+    }
+}
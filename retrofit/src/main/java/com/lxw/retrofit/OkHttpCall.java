@@ -4,8 +4,17 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.ResponseBody;
 import okio.Buffer;
@@ -35,6 +44,16 @@ public class OkHttpCall<T> implements Call<T> {
     Throwable creationFailure;
 
     private boolean executed;
+    //@Coalesce 方法登记在共享交换上的等待者
+    private @Nullable
+    CallCoalescer.Waiter<T> waiter;
+    //@CacheTtl 方法：转换结果存入内存和磁盘缓存的 key，以及发出条件请求时所依据的过期条目
+    private @Nullable
+    ConvertedResponseCache.Key cacheKey;
+    private @Nullable
+    String diskKey;
+    private @Nullable
+    ConvertedResponseCache.CachedResponse staleEntry;
 
     public OkHttpCall(ServiceMethod<T, ?> serviceMethod, Object[] args) {
         this.serviceMethod = serviceMethod;
@@ -52,7 +71,11 @@ public class OkHttpCall<T> implements Call<T> {
             executed = true;
             call = rawCall;
             failure = creationFailure;
-            if (call == null && failure == null) {
+            if (failure != null) {
+                //request() 已经构建失败过
+                throwCreationFailure(failure);
+            }
+            if (call == null) {
                 try {
                     call = rawCall = createRawCall();
                 } catch (IOException e) {
@@ -63,12 +86,46 @@ public class OkHttpCall<T> implements Call<T> {
             }
         }
 
+        if (serviceMethod.cacheTtlNanos() >= 0) {
+            Request request = call.request();
+            Response<T> cached = fromMemory(request);
+            if (cached == null && needsDisk()) {
+                cached = fromDisk(request);
+            }
+            if (cached != null) {
+                return cached;
+            }
+            call = revalidate(call);
+        }
+        CallCoalescer<T> coalescer = serviceMethod.coalescer();
+        if (coalescer != null) {
+            return executeCoalesced(coalescer, call);
+        }
         if (canceled) {
             call.cancel();
         }
         return parseResponse(call.execute());
     }
 
+    private Response<T> executeCoalesced(CallCoalescer<T> coalescer, okhttp3.Call call)
+            throws IOException {
+        BlockingWaiter<T> waiter = new BlockingWaiter<>();
+        join(coalescer, call, waiter);
+        try {
+            waiter.latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (coalescer.leave(waiter)) {
+                throw new InterruptedIOException("Interrupted while waiting for a coalesced call");
+            }
+            // The result arrived anyway.
+        }
+        if (waiter.failure != null) {
+            throwCreationFailure(waiter.failure);
+        }
+        return waiter.response;
+    }
+
     @Override
     public void enquue(final Callback<T> callback) {
         okhttp3.Call call;
@@ -94,18 +151,67 @@ public class OkHttpCall<T> implements Call<T> {
             callback.onFailure(this, failure);
             return;
         }
+        if (serviceMethod.cacheTtlNanos() >= 0) {
+            final Request request = call.request();
+            Response<T> cached = fromMemory(request);
+            if (cached != null) {
+                callback.onResponse(this, cached);
+                return;
+            }
+            if (needsDisk()) {
+                //读磁盘和执行转换器都不放在调用线程（通常是主线程），在后台线程上完成后再发送
+                final okhttp3.Call diskCall = call;
+                try {
+                    backgroundExecutor().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            Response<T> cached = fromDisk(request);
+                            if (cached != null) {
+                                callback.onResponse(OkHttpCall.this, cached);
+                                return;
+                            }
+                            send(revalidate(diskCall), callback);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    callback.onFailure(this, new IOException("Executor rejected the cache lookup", e));
+                }
+                return;
+            }
+            call = revalidate(call);
+        }
+        send(call, callback);
+    }
+
+    /** Sends {@code call}, joining an in-flight exchange for a {@code @Coalesce} method. */
+    private void send(okhttp3.Call call, final Callback<T> callback) {
+        CallCoalescer<T> coalescer = serviceMethod.coalescer();
+        if (coalescer != null) {
+            join(coalescer, call, new CallCoalescer.Waiter<T>() {
+                @Override
+                void onResponse(Response<T> response) {
+                    callback.onResponse(OkHttpCall.this, response);
+                }
+
+                @Override
+                void onFailure(Throwable failure) {
+                    callback.onFailure(OkHttpCall.this, failure);
+                }
+            });
+            return;
+        }
         if (canceled) {
             call.cancel();
         }
 
-        call.enqueue(new okhttp3.Callback() {
+        final okhttp3.Callback responseCallback = new okhttp3.Callback() {
             @Override
             public void onFailure(@NonNull okhttp3.Call call, @NonNull IOException e) {
                 callFailure(e);
             }
 
             @Override
-            public void onResponse(@NonNull okhttp3.Call call, @NonNull okhttp3.Response rawResponse) throws IOException {
+            public void onResponse(@NonNull okhttp3.Call call, @NonNull okhttp3.Response rawResponse) {
                 Response<T> response;
                 try {
                     response = parseResponse(rawResponse);
@@ -123,22 +229,234 @@ public class OkHttpCall<T> implements Call<T> {
                     t.printStackTrace();
                 }
             }
-        });
+        };
+
+        dispatch(call, responseCallback, serviceMethod.callExecutor());
+    }
+
+    /**
+     * Returns the response cached in memory if it is still fresh. Otherwise remembers where to
+     * store the converted response, and the stale entry to revalidate.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private Response<T> fromMemory(Request request) {
+        ConvertedResponseCache cache = serviceMethod.convertedResponseCache();
+        if (cache != null) {
+            ConvertedResponseCache.Key key =
+                    new ConvertedResponseCache.Key(serviceMethod.responseConverter(), request);
+            ConvertedResponseCache.CachedResponse entry = cache.get(key);
+            if (entry != null && entry.isFresh()) {
+                cache.recordHit();
+                return (Response<T>) entry.response;
+            }
+            cacheKey = key;
+            staleEntry = entry;
+        }
+        if (serviceMethod.diskResponseCache() != null) {
+            diskKey = serviceMethod.diskCacheKey(request);
+        }
+        return null;
+    }
+
+    /** Whether the disk cache has to be read: memory had no entry, e.g. right after a restart. */
+    private boolean needsDisk() {
+        return diskKey != null && staleEntry == null;
+    }
+
+    /**
+     * Converts the disk record for {@code request} and puts it into the memory cache. Returns the
+     * response if it is still fresh; otherwise the entry is kept for revalidation. This reads
+     * the disk and runs the converter, so {@link #enquue} calls it off the calling thread.
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private Response<T> fromDisk(Request request) {
+        ConvertedResponseCache.CachedResponse entry =
+                readDisk(serviceMethod.diskResponseCache(), diskKey, request);
+        if (entry == null) {
+            return null;
+        }
+        ConvertedResponseCache cache = serviceMethod.convertedResponseCache();
+        if (cacheKey != null) {
+            cache.put(cacheKey, entry);
+        }
+        if (entry.isFresh()) {
+            if (cacheKey != null) {
+                cache.recordHit();
+            }
+            return (Response<T>) entry.response;
+        }
+        staleEntry = entry;
+        return null;
+    }
+
+    /**
+     * Returns the call to send: with a stale entry that has a validator, a conditional one that
+     * replaces the raw call.
+     */
+    private okhttp3.Call revalidate(okhttp3.Call call) {
+        ConvertedResponseCache.CachedResponse entry = staleEntry;
+        Request conditional = entry != null ? entry.conditional(call.request()) : null;
+        if (conditional == null) {
+            staleEntry = null;
+            return call;
+        }
+        synchronized (this) {
+            return rawCall = serviceMethod.newCall(conditional);
+        }
+    }
+
+    /**
+     * Where {@link #enquue} reads the disk cache: the call executor, else the dispatcher's threads
+     * of an {@link OkHttpClient}, else a shared pool.
+     */
+    private Executor backgroundExecutor() {
+        Executor executor = serviceMethod.callExecutor();
+        if (executor != null) {
+            return executor;
+        }
+        okhttp3.Call.Factory callFactory = serviceMethod.callFactory();
+        if (callFactory instanceof OkHttpClient) {
+            return ((OkHttpClient) callFactory).dispatcher().executorService();
+        }
+        return DiskLookupExecutor.INSTANCE;
+    }
+
+    @Nullable
+    private ConvertedResponseCache.CachedResponse readDisk(DiskResponseCache diskCache,
+                                                           String diskKey, Request request) {
+        try {
+            DiskResponseCache.Record record = diskCache.get(diskKey);
+            if (record == null) {
+                return null;
+            }
+            MediaType contentType =
+                    record.contentType != null ? MediaType.parse(record.contentType) : null;
+            T body = serviceMethod.toResponse(ResponseBody.create(contentType, record.body));
+            if (body == null) {
+                return null;
+            }
+            okhttp3.Response rawResponse = new okhttp3.Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .headers(record.headers())
+                    .build();
+            long ttlNanos = TimeUnit.MILLISECONDS.toNanos(
+                    record.expiresAtMillis - System.currentTimeMillis());
+            return new ConvertedResponseCache.CachedResponse(
+                    Response.success(body, rawResponse), ttlNanos);
+        } catch (IOException | RuntimeException e) {
+            // An unreadable record, or one the converter no longer accepts, is a miss.
+            return null;
+        }
+    }
 
+    private void touchDisk(String diskKey) {
+        long expiresAtMillis = System.currentTimeMillis()
+                + TimeUnit.NANOSECONDS.toMillis(serviceMethod.cacheTtlNanos());
+        try {
+            serviceMethod.diskResponseCache().touch(diskKey, expiresAtMillis);
+        } catch (IOException | RuntimeException e) {
+            serviceMethod.diskResponseCache().recordWriteFailure();
+        }
+    }
+
+    /** A failed write only loses the record; the call itself has succeeded. */
+    private void toDisk(String diskKey, okhttp3.Response rawResponse, byte[] body) {
+        long expiresAtMillis = System.currentTimeMillis()
+                + TimeUnit.NANOSECONDS.toMillis(serviceMethod.cacheTtlNanos());
+        try {
+            serviceMethod.diskResponseCache().put(diskKey, expiresAtMillis,
+                    rawResponse.header("Content-Type"), rawResponse.header("ETag"),
+                    rawResponse.header("Last-Modified"), body);
+        } catch (IOException | RuntimeException e) {
+            serviceMethod.diskResponseCache().recordWriteFailure();
+        }
+    }
+
+    /**
+     * Sends {@code call} through OkHttp's dispatcher, or, with a {@code callExecutor}, executes it
+     * on that executor. Either way the result goes to {@code responseCallback}.
+     */
+    private static void dispatch(final okhttp3.Call call, final okhttp3.Callback responseCallback,
+                                 @Nullable Executor callExecutor) {
+        if (callExecutor == null) {
+            call.enqueue(responseCallback);
+            return;
+        }
+        //在 callExecutor（例如虚拟线程）上阻塞执行，结果走同一套回调
+        try {
+            callExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    okhttp3.Response rawResponse;
+                    try {
+                        rawResponse = call.execute();
+                    } catch (IOException e) {
+                        responseCallback.onFailure(call, e);
+                        return;
+                    }
+                    try {
+                        responseCallback.onResponse(call, rawResponse);
+                    } catch (IOException e) {
+                        responseCallback.onFailure(call, e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            responseCallback.onFailure(call, new IOException("Call executor rejected the call", e));
+        }
+    }
 
+    /**
+     * Registers {@code waiter} on the exchange for this call's request, sending {@code call} if
+     * none is in flight. A cancel that came first detaches the waiter right away.
+     */
+    private void join(CallCoalescer<T> coalescer, okhttp3.Call call, CallCoalescer.Waiter<T> waiter) {
+        synchronized (this) {
+            this.waiter = waiter;
+        }
+        CallCoalescer<T>.Flight flight = coalescer.join(call, this, waiter);
+        if (flight != null) {
+            dispatch(call, flight, serviceMethod.callExecutor());
+        }
+        if (canceled && coalescer.leave(waiter)) {
+            waiter.onFailure(new IOException("Canceled"));
+        }
     }
 
-    private Response<T> parseResponse(okhttp3.Response rawResponse) throws IOException {
+    @SuppressWarnings("unchecked")
+    Response<T> parseResponse(okhttp3.Response rawResponse) throws IOException {
         ResponseBody rawBody = rawResponse.body();
-        rawResponse = rawResponse.newBuilder()
-                .body(new NoContentResponseBody(rawBody.contentType(), rawBody.contentLength()))
-                .build();
+        //不再为每个响应 newBuilder 复制一份，raw() 第一次被调用时才替换成 NoContentResponseBody
         int code = rawResponse.code();
+        ConvertedResponseCache cache = serviceMethod.convertedResponseCache();
+        ConvertedResponseCache.Key cacheKey = this.cacheKey;
+        String diskKey = this.diskKey;
+        ConvertedResponseCache.CachedResponse staleEntry = this.staleEntry;
+        if (code == 304 && staleEntry != null) {
+            //服务端确认没变，直接复用缓存的对象，不再经过转换器
+            rawBody.close();
+            staleEntry.refresh(serviceMethod.cacheTtlNanos());
+            if (cacheKey != null) {
+                cache.recordRevalidation();
+            }
+            if (diskKey != null) {
+                touchDisk(diskKey);
+            }
+            return (Response<T>) staleEntry.response;
+        }
+        if (cacheKey != null) {
+            cache.recordMiss();
+        }
         if (code < 200 || code >= 300) {
             try {
-                // Buffer the entire body to avoid future I/O.
-                ResponseBody bufferedBody = Utils.buffer(rawBody);
-                return Response.error(bufferedBody, rawResponse);
+                // Read what the policy keeps now, so the connection is released here.
+                ResponseBody bufferedBody = serviceMethod.errorBodyPolicy().apply(rawBody);
+                return Response.errorDetached(bufferedBody, rawResponse);
             } finally {
                 rawBody.close();
             }
@@ -147,13 +465,30 @@ public class OkHttpCall<T> implements Call<T> {
         //205则是告知浏览器清除当前页面中的所有html表单元素，也就是表单重置。
         if (code == 204 || code == 205) {
             rawBody.close();
-            return Response.success(null, rawResponse);
+            return Response.successDetached(null, rawResponse);
+        }
+        ResponseBody convertedBody = rawBody;
+        byte[] diskBody = null;
+        if (diskKey != null && code == 200) {
+            //磁盘缓存存的是转换器读到的字节，先整体读出来
+            diskBody = rawBody.bytes();
+            convertedBody = ResponseBody.create(rawBody.contentType(), diskBody);
         }
         //todo 执行response 转换器
-        ExceptionCatchingRequestBody catchingBody = new ExceptionCatchingRequestBody(rawBody);
+        ExceptionCatchingRequestBody catchingBody = new ExceptionCatchingRequestBody(convertedBody);
         try {
             T body = serviceMethod.toResponse(catchingBody);
-            return Response.success(body, rawResponse);
+            Response<T> response = Response.successDetached(body, rawResponse);
+            if (code == 200 && body != null) {
+                if (cacheKey != null) {
+                    cache.put(cacheKey, new ConvertedResponseCache.CachedResponse(response,
+                            serviceMethod.cacheTtlNanos()));
+                }
+                if (diskBody != null) {
+                    toDisk(diskKey, rawResponse, diskBody);
+                }
+            }
+            return response;
         } catch (RuntimeException e) {
             // If the underlying source threw an exception, propagate that rather than indicating it was
             // a runtime exception.
@@ -166,15 +501,56 @@ public class OkHttpCall<T> implements Call<T> {
         return serviceMethod.toCall(args);
     }
 
+    /**
+     * The call factory of the {@link Retrofit} instance this call was created by. Adapters that
+     * open connections of their own use it, so one adapter serves every {@code newBuilder()} copy.
+     */
+    public okhttp3.Call.Factory callFactory() {
+        return serviceMethod.callFactory();
+    }
+
     @Override
     public boolean isExecuted() {
         return executed;
     }
 
 
+    /**
+     * Builds the raw call if needed and returns its request. The raw call is kept, so a later
+     * {@link #execute()} or {@link #enquue} sends exactly this request.
+     */
     @Override
-    public Request request() {
-        return null;
+    public synchronized Request request() {
+        okhttp3.Call call = rawCall;
+        if (call != null) {
+            return call.request();
+        }
+        if (creationFailure != null) {
+            if (creationFailure instanceof IOException) {
+                throw new RuntimeException("Unable to create request.", creationFailure);
+            } else if (creationFailure instanceof RuntimeException) {
+                throw (RuntimeException) creationFailure;
+            }
+            throw (Error) creationFailure;
+        }
+        try {
+            return (rawCall = createRawCall()).request();
+        } catch (RuntimeException | Error e) {
+            creationFailure = e;
+            throw e;
+        } catch (IOException e) {
+            creationFailure = e;
+            throw new RuntimeException("Unable to create request.", e);
+        }
+    }
+
+    private static void throwCreationFailure(Throwable failure) throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw (Error) failure;
     }
 
 
@@ -182,8 +558,18 @@ public class OkHttpCall<T> implements Call<T> {
     public void cancel() {
         canceled = true;
         okhttp3.Call call;
+        CallCoalescer.Waiter<T> waiter;
         synchronized (this) {
             call = this.rawCall;
+            waiter = this.waiter;
+        }
+        CallCoalescer<T> coalescer = serviceMethod.coalescer();
+        if (coalescer != null) {
+            //只退出共享的交换，其它等待者不受影响；最后一个退出时交换才被取消
+            if (waiter != null && coalescer.leave(waiter)) {
+                waiter.onFailure(new IOException("Canceled"));
+            }
+            return;
         }
         if (call != null) {
             call.cancel();
@@ -211,6 +597,35 @@ public class OkHttpCall<T> implements Call<T> {
 
     }
 
+    private static final class DiskLookupExecutor {
+        static final Executor INSTANCE = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                Thread thread = new Thread(runnable, "Retrofit disk cache");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    static final class BlockingWaiter<T> extends CallCoalescer.Waiter<T> {
+        final CountDownLatch latch = new CountDownLatch(1);
+        volatile Response<T> response;
+        volatile Throwable failure;
+
+        @Override
+        void onResponse(Response<T> response) {
+            this.response = response;
+            latch.countDown();
+        }
+
+        @Override
+        void onFailure(Throwable failure) {
+            this.failure = failure;
+            latch.countDown();
+        }
+    }
+
     static final class NoContentResponseBody extends ResponseBody {
         private final MediaType contentType;
         private final long contentLength;
@@ -22,33 +22,49 @@ public abstract class ParameterHandler<T> {
     abstract void apply(RequestBuilder builder, @Nullable T value) throws IOException;
 
     final ParameterHandler<Iterable<T>> iterable() {
-        return new ParameterHandler<Iterable<T>>() {
-            @Override
-            void apply(RequestBuilder builder, @Nullable Iterable<T> values)
-                    throws IOException {
-                if (values == null) {
-                    return;
-                }
-                for (T value : values) {
-                    ParameterHandler.this.apply(builder, value);
-                }
-            }
-        };
+        return new IterableHandler<>(this);
     }
 
     final ParameterHandler<Object> array() {
-        return new ParameterHandler<Object>() {
-            @Override
-            void apply(RequestBuilder builder, @Nullable Object values) throws IOException {
-                if (values == null) {
-                    return;
-                }
-                for (int i = 0, size = Array.getLength(values); i < size; i++) {
-                    ////noinspection unchecked
-                    ParameterHandler.this.apply(builder, (T) Array.get(values, i));
-                }
+        return new ArrayHandler<>(this);
+    }
+
+    /** Applies {@link #delegate} to each element. {@link RequestPlan} unwraps it. */
+    static final class IterableHandler<T> extends ParameterHandler<Iterable<T>> {
+        final ParameterHandler<T> delegate;
+
+        IterableHandler(ParameterHandler<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        void apply(RequestBuilder builder, @Nullable Iterable<T> values) throws IOException {
+            if (values == null) {
+                return;
             }
-        };
+            for (T value : values) {
+                delegate.apply(builder, value);
+            }
+        }
+    }
+
+    static final class ArrayHandler<T> extends ParameterHandler<Object> {
+        final ParameterHandler<T> delegate;
+
+        ArrayHandler(ParameterHandler<T> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        void apply(RequestBuilder builder, @Nullable Object values) throws IOException {
+            if (values == null) {
+                return;
+            }
+            for (int i = 0, size = Array.getLength(values); i < size; i++) {
+                //noinspection unchecked
+                delegate.apply(builder, (T) Array.get(values, i));
+            }
+        }
     }
 
     static final class RelativeUrl extends ParameterHandler<Object> {
@@ -60,12 +76,15 @@ public abstract class ParameterHandler<T> {
 
     static final class Path<T> extends ParameterHandler<T> {
         private final String name;
+        //在地址模板中的位置
+        private final int slot;
         private final Converter<T, String> valueConverter;
         private final boolean encoded;
 
-        public Path(String name, Converter<T, String> valueConverter,
+        public Path(String name, int slot, Converter<T, String> valueConverter,
                     boolean encoded) {
             this.name = name;
+            this.slot = slot;
             this.valueConverter = valueConverter;
             this.encoded = encoded;
         }
@@ -77,7 +96,7 @@ public abstract class ParameterHandler<T> {
                         "Path parameter \"" + name + "\" value must not be null.");
             }
 
-            builder.addPathParam(name, valueConverter.convert(value), encoded);
+            builder.addPathParam(slot, valueConverter.convert(value), encoded);
         }
     }
 
@@ -0,0 +1,71 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/04
+ *     desc   : 参数注解解析后的结果，只记录注解类型与名字，不包含转换器，可以写入快照
+ * </pre>
+ */
+final class ParameterSpec {
+    enum Kind {
+        URL, PATH, QUERY, QUERY_NAME, QUERY_MAP, HEADER, HEADER_MAP,
+        FIELD, FIELD_MAP, PART, RAW_PART, PART_MAP, BODY
+    }
+
+    final Kind kind;
+    final @Nullable
+    String name;
+    final boolean encoded;
+    /** Content-Transfer-Encoding of {@code @Part} and {@code @PartMap}. */
+    final @Nullable
+    String transferEncoding;
+
+    ParameterSpec(Kind kind, @Nullable String name, boolean encoded,
+                  @Nullable String transferEncoding) {
+        this.kind = kind;
+        this.name = name;
+        this.encoded = encoded;
+        this.transferEncoding = transferEncoding;
+    }
+
+    static ParameterSpec of(Kind kind) {
+        return new ParameterSpec(kind, null, false, null);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeByte(kind.ordinal());
+        writeNullableUtf(out, name);
+        out.writeBoolean(encoded);
+        writeNullableUtf(out, transferEncoding);
+    }
+
+    static ParameterSpec read(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        Kind[] kinds = Kind.values();
+        if (ordinal >= kinds.length) {
+            throw new IOException("Unknown parameter kind " + ordinal);
+        }
+        return new ParameterSpec(kinds[ordinal], readNullableUtf(in), in.readBoolean(),
+                readNullableUtf(in));
+    }
+
+    static void writeNullableUtf(DataOutput out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static @Nullable
+    String readNullableUtf(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
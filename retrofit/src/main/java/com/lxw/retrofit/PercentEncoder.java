@@ -0,0 +1,129 @@
+package com.lxw.retrofit;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/06
+ *     desc   : 查表方式的百分号编码，ASCII 不再逐个 indexOf，非 ASCII 直接写 UTF-8 转义到线程内复用的缓冲区
+ * </pre>
+ */
+final class PercentEncoder {
+    /** Encodes a path segment, as {@code HttpUrl.PATH_SEGMENT_ENCODE_SET} does. */
+    static final PercentEncoder PATH_SEGMENT =
+            new PercentEncoder(" \"<>^`{}|\\?#/", " \"<>^`{}|\\?#", false);
+    /** Encodes a query name or value, as {@code HttpUrl.Builder.addQueryParameter} does. */
+    static final PercentEncoder QUERY_COMPONENT =
+            new PercentEncoder(" !\"#$&'(),/:;<=>?@[]\\^`{|}~", " \"'<>#&=", true);
+
+    private static final char[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    /** Longest UTF-8 escape of one char: a 3-byte sequence is 9 chars, a surrogate pair 12. */
+    private static final int MAX_ESCAPE_PER_CHAR = 9;
+    /** Buffers grown past this are not kept, so one huge value does not pin memory. */
+    private static final int MAX_RETAINED_BUFFER = 8192;
+    private static final ThreadLocal<char[]> BUFFER = new ThreadLocal<char[]>() {
+        @Override
+        protected char[] initialValue() {
+            return new char[256];
+        }
+    };
+
+    /** ASCII characters to escape in raw input. Also includes controls, DEL and '%'. */
+    private final boolean[] encodeRaw = new boolean[128];
+    /** ASCII characters to escape in input that is already encoded. */
+    private final boolean[] encodeEncoded = new boolean[128];
+    /** Raw '+' is escaped and encoded '+' kept, because a query decodes '+' as a space. */
+    private final boolean plusIsSpace;
+
+    private PercentEncoder(String encodeSet, String reencodeSet, boolean plusIsSpace) {
+        for (int c = 0; c < 0x20; c++) {
+            encodeRaw[c] = true;
+            encodeEncoded[c] = true;
+        }
+        encodeRaw[0x7f] = true;
+        encodeEncoded[0x7f] = true;
+        encodeRaw['%'] = true;
+        for (int i = 0; i < encodeSet.length(); i++) {
+            encodeRaw[encodeSet.charAt(i)] = true;
+        }
+        for (int i = 0; i < reencodeSet.length(); i++) {
+            encodeEncoded[reencodeSet.charAt(i)] = true;
+        }
+        if (plusIsSpace) {
+            encodeRaw['+'] = true;
+        }
+        this.plusIsSpace = plusIsSpace;
+    }
+
+    /**
+     * Percent-encodes {@code input}. When {@code alreadyEncoded}, existing escapes are kept and
+     * tabs and line breaks are dropped. Input that needs no changes is returned as is.
+     */
+    String encode(String input, boolean alreadyEncoded) {
+        boolean[] table = alreadyEncoded ? encodeEncoded : encodeRaw;
+        for (int i = 0, limit = input.length(); i < limit; i++) {
+            char c = input.charAt(i);
+            if (c >= 0x80 || table[c]) {
+                return encode(input, i, table, alreadyEncoded);
+            }
+        }
+        return input;
+    }
+
+    private String encode(String input, int pos, boolean[] table, boolean alreadyEncoded) {
+        int limit = input.length();
+        int capacity = pos + (limit - pos) * MAX_ESCAPE_PER_CHAR;
+        char[] out = BUFFER.get();
+        if (out.length < capacity) {
+            out = new char[capacity];
+            if (capacity <= MAX_RETAINED_BUFFER) {
+                BUFFER.set(out);
+            }
+        }
+        input.getChars(0, pos, out, 0);
+        int n = pos;
+        for (int i = pos; i < limit; i++) {
+            char c = input.charAt(i);
+            if (c < 0x80) {
+                if (!table[c]) {
+                    out[n++] = c;
+                } else if (alreadyEncoded
+                        && (c == '\t' || c == '\n' || c == '\f' || c == '\r')) {
+                    // Skip this character.
+                } else if (c == '+' && plusIsSpace) {
+                    n = escape(out, n, '+');
+                } else {
+                    n = escape(out, n, c);
+                }
+            } else if (c < 0x800) {
+                n = escape(out, n, 0xc0 | (c >> 6));
+                n = escape(out, n, 0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < limit
+                    && Character.isLowSurrogate(input.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, input.charAt(++i));
+                n = escape(out, n, 0xf0 | (codePoint >> 18));
+                n = escape(out, n, 0x80 | ((codePoint >> 12) & 0x3f));
+                n = escape(out, n, 0x80 | ((codePoint >> 6) & 0x3f));
+                n = escape(out, n, 0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                // Okio writes an unpaired surrogate as '?'.
+                n = escape(out, n, '?');
+            } else {
+                n = escape(out, n, 0xe0 | (c >> 12));
+                n = escape(out, n, 0x80 | ((c >> 6) & 0x3f));
+                n = escape(out, n, 0x80 | (c & 0x3f));
+            }
+        }
+        return new String(out, 0, n);
+    }
+
+    private static int escape(char[] out, int n, int b) {
+        out[n] = '%';
+        out[n + 1] = HEX_DIGITS[(b >> 4) & 0xf];
+        out[n + 2] = HEX_DIGITS[b & 0xf];
+        return n + 3;
+    }
+}
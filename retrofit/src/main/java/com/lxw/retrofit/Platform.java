@@ -6,7 +6,13 @@ import android.os.Looper;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 /**
  * <pre>
@@ -32,7 +38,7 @@ public class Platform {
         } catch (ClassNotFoundException ignored) {
 
         }
-        return new Platform();
+        return new Jvm();
     }
 
     public @Nullable
@@ -47,7 +53,76 @@ public class Platform {
         return DefaultCallAdapterFactory.INSTANCE;
     }
 
+    /**
+     * The factories {@code Retrofit.Builder} appends after the user's: the one for
+     * {@code CompletableFuture} where it exists, then {@link #defaultCallAdapterFactory}.
+     */
+    List<? extends CallAdapter.Factory> defaultCallAdapterFactories(@Nullable Executor callbackExecutor) {
+        CallAdapter.Factory executorFactory = defaultCallAdapterFactory(callbackExecutor);
+        return hasJava8Types()
+                ? Arrays.asList(CompletableFutureCallAdapterFactory.INSTANCE, executorFactory)
+                : Collections.singletonList(executorFactory);
+    }
+
+    int defaultCallAdapterFactoriesSize() {
+        return hasJava8Types() ? 2 : 1;
+    }
+
+    /** Whether {@code java.util.concurrent.CompletableFuture} can be used. */
+    boolean hasJava8Types() {
+        return false;
+    }
+
+    /** An executor that starts a virtual thread per task, or null where there are none. */
+    public @Nullable
+    Executor virtualThreadExecutor() {
+        return null;
+    }
+
+    static class Jvm extends Platform {
+        //JDK 21 之前没有虚拟线程，反射查找，找不到就是 null
+        private static final Executor VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+        private static final boolean HAS_JAVA_8_TYPES = hasClass("java.util.concurrent.CompletableFuture");
+
+        @Override
+        boolean hasJava8Types() {
+            return HAS_JAVA_8_TYPES;
+        }
+
+        @Override
+        public @Nullable
+        Executor virtualThreadExecutor() {
+            return VIRTUAL_THREAD_EXECUTOR;
+        }
+
+        private static @Nullable
+        Executor findVirtualThreadExecutor() {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) factory.invoke(null);
+            } catch (NoSuchMethodException e) {
+                return null;
+            } catch (IllegalAccessException e) {
+                return null;
+            } catch (InvocationTargetException e) {
+                // JDK 19 and 20 have them as a preview feature only.
+                return null;
+            }
+        }
+
+        private static boolean hasClass(String name) {
+            try {
+                Class.forName(name);
+                return true;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+    }
+
     private static class Android extends Platform {
+        //所有实例共用一个主线程 Executor，newBuilder() 之外单独创建的实例也能共享方法解析结果
+        private static final Executor MAIN_THREAD_EXECUTOR = new MainThreadExecutor();
 
         @Override
         public CallAdapter.Factory defaultCallAdapterFactory(@Nullable Executor callbackExecutor) {
@@ -57,7 +132,12 @@ public class Platform {
 
         @Override
         public Executor defaulteCallbackExecutor() {
-            return new MainThreadExecutor();
+            return MAIN_THREAD_EXECUTOR;
+        }
+
+        @Override
+        boolean hasJava8Types() {
+            return Build.VERSION.SDK_INT >= 24;
         }
 
         static class MainThreadExecutor implements Executor {
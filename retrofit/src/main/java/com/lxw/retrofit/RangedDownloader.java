@@ -0,0 +1,321 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Request;
+import okio.BufferedSource;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/11
+ *     desc   : 多连接分段下载：先用 Range: bytes=0-0 探测长度与校验值，再把文件切块并发请求，
+ *              各块按偏移写入预分配的文件；服务端不支持 Range 时退回 FileDownloader 单连接下载
+ * </pre>
+ */
+public final class RangedDownloader {
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    private final okhttp3.Call.Factory callFactory;
+    private final int parallelism;
+    private final long chunkSize;
+    private final int maxAttemptsPerChunk;
+
+    RangedDownloader(Builder builder) {
+        this.callFactory = builder.retrofit.callFactory();
+        this.parallelism = builder.parallelism;
+        this.chunkSize = builder.chunkSize;
+        this.maxAttemptsPerChunk = builder.maxAttemptsPerChunk;
+    }
+
+    /**
+     * Downloads the request of {@code call} to {@code target}. Every chunk request carries
+     * {@code If-Range} with the validator from the probe, so a resource that changes midway
+     * fails the download instead of mixing versions. Resources without a length, a strong ETag
+     * or Last-Modified, or range support are downloaded over a single connection.
+     */
+    public Result download(Call<?> call, File target) throws IOException {
+        long start = System.nanoTime();
+        Request request = call.request();
+
+        long total;
+        String validator;
+        okhttp3.Response probe = callFactory.newCall(
+                request.newBuilder().header("Range", "bytes=0-0").build()).execute();
+        try {
+            if (!probe.isSuccessful()) {
+                throw new FileDownloader.UnexpectedResponseException(
+                        "HTTP " + probe.code() + " " + probe.message());
+            }
+            long[] range = probe.code() == 206
+                    ? FileDownloader.parseContentRange(probe.header("Content-Range"))
+                    : null;
+            total = range != null ? range[1] : -1L;
+            validator = FileDownloader.validator(probe);
+        } finally {
+            probe.close();
+        }
+        if (total <= 0 || validator == null) {
+            new FileDownloader(callFactory, maxAttemptsPerChunk).download(call, target);
+            return new Result(target.length(), 1, 0, System.nanoTime() - start);
+        }
+
+        int chunkCount = (int) ((total + chunkSize - 1) / chunkSize);
+        File part = new File(target.getPath() + ".part");
+        Set<okhttp3.Call> activeCalls =
+                Collections.newSetFromMap(new ConcurrentHashMap<okhttp3.Call, Boolean>());
+        AtomicInteger retries = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(parallelism, chunkCount), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "RangedDownloader chunk");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        RandomAccessFile file = new RandomAccessFile(part, "rw");
+        try {
+            file.setLength(total);
+            FileChannel channel = file.getChannel();
+            CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+            for (int i = 0; i < chunkCount; i++) {
+                long from = i * chunkSize;
+                long to = Math.min(from + chunkSize, total) - 1;
+                completion.submit(new Chunk(request, validator, channel, from, to, activeCalls, retries));
+            }
+            for (int i = 0; i < chunkCount; i++) {
+                try {
+                    completion.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                    throw new IOException(cause);
+                }
+            }
+            channel.force(false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + target);
+        } finally {
+            //有块失败时停掉其余仍在进行的请求
+            executor.shutdownNow();
+            for (okhttp3.Call active : activeCalls) {
+                active.cancel();
+            }
+            file.close();
+        }
+
+        if (target.exists() && !target.delete()) {
+            throw new IOException("Cannot replace " + target);
+        }
+        if (!part.renameTo(target)) {
+            throw new IOException("Cannot rename " + part + " to " + target);
+        }
+        return new Result(total, chunkCount, retries.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * One byte range; a failed attempt resumes at the first byte not yet written. I/O errors and
+     * 5xx, 408 and 429 responses are retried, other unexpected responses fail the download.
+     */
+    private final class Chunk implements Callable<Void> {
+        private final Request request;
+        private final String validator;
+        private final FileChannel channel;
+        private final long to;
+        private final Set<okhttp3.Call> activeCalls;
+        private final AtomicInteger retries;
+        private long position;
+
+        Chunk(Request request, String validator, FileChannel channel, long from, long to,
+              Set<okhttp3.Call> activeCalls, AtomicInteger retries) {
+            this.request = request;
+            this.validator = validator;
+            this.channel = channel;
+            this.position = from;
+            this.to = to;
+            this.activeCalls = activeCalls;
+            this.retries = retries;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(TRANSFER_SIZE, to - position + 1));
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    fetch(buffer);
+                    return null;
+                } catch (FileDownloader.UnexpectedResponseException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (attempt >= maxAttemptsPerChunk || Thread.currentThread().isInterrupted()) {
+                        throw e;
+                    }
+                    retries.incrementAndGet();
+                }
+            }
+        }
+
+        private void fetch(ByteBuffer buffer) throws IOException {
+            okhttp3.Call call = callFactory.newCall(request.newBuilder()
+                    .header("Range", "bytes=" + position + "-" + to)
+                    .header("If-Range", validator)
+                    .build());
+            activeCalls.add(call);
+            okhttp3.Response response = null;
+            try {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Another chunk failed; shutdownNow() interrupted this one.
+                    throw new InterruptedIOException();
+                }
+                response = call.execute();
+                int code = response.code();
+                if (code >= 500 || code == 408 || code == 429) {
+                    //服务端暂时不可用，和 I/O 错误一样从当前位置重试
+                    throw new IOException("HTTP " + code + " for bytes " + position + "-" + to);
+                }
+                long[] range = FileDownloader.parseContentRange(response.header("Content-Range"));
+                if (code != 206 || range == null || range[0] != position) {
+                    // A 200 here means the resource changed since the probe.
+                    throw new FileDownloader.UnexpectedResponseException("Unexpected response for bytes "
+                            + position + "-" + to + ": HTTP " + code);
+                }
+                BufferedSource source = response.body().source();
+                buffer.clear();
+                boolean exhausted = false;
+                while (!exhausted && position <= to) {
+                    while (buffer.hasRemaining()) {
+                        if (source.read(buffer) == -1) {
+                            exhausted = true;
+                            break;
+                        }
+                    }
+                    buffer.flip();
+                    // Never write past this chunk, even if the server sends more.
+                    buffer.limit((int) Math.min(buffer.limit(), to - position + 1));
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    buffer.clear();
+                }
+                if (position <= to) {
+                    throw new IOException("Chunk ended at " + position + ", expected " + (to + 1));
+                }
+            } finally {
+                activeCalls.remove(call);
+                if (response != null) {
+                    response.close();
+                }
+            }
+        }
+    }
+
+    /** Size and timing of a finished download. */
+    public static final class Result {
+        private final long bytes;
+        private final int chunks;
+        private final int retries;
+        private final long elapsedNanos;
+
+        Result(long bytes, int chunks, int retries, long elapsedNanos) {
+            this.bytes = bytes;
+            this.chunks = chunks;
+            this.retries = retries;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long bytes() {
+            return bytes;
+        }
+
+        /** 1 when the download fell back to a single connection. */
+        public int chunks() {
+            return chunks;
+        }
+
+        /** Chunk attempts that failed and were retried. */
+        public int retries() {
+            return retries;
+        }
+
+        /** Includes the probe request and the final rename. */
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public long bytesPerSecond() {
+            return elapsedNanos > 0 ? bytes * 1000000000L / elapsedNanos : 0L;
+        }
+
+        @Override
+        public String toString() {
+            return bytes + " bytes in " + chunks + " chunks, " + retries + " retries, "
+                    + bytesPerSecond() / 1024 + " KiB/s";
+        }
+    }
+
+    public static final class Builder {
+        private final Retrofit retrofit;
+        private int parallelism = 4;
+        private long chunkSize = 8L * 1024 * 1024;
+        private int maxAttemptsPerChunk = 3;
+
+        public Builder(Retrofit retrofit) {
+            Utils.checkNotNull(retrofit, "retrofit == null");
+            this.retrofit = retrofit;
+        }
+
+        /** Number of chunks fetched at the same time. Defaults to 4. */
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism < 1: " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /** Defaults to 8 MiB. */
+        public Builder chunkSize(long chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("chunkSize < 1: " + chunkSize);
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        /** Counts the first attempt. Defaults to 3. */
+        public Builder maxAttemptsPerChunk(int maxAttemptsPerChunk) {
+            if (maxAttemptsPerChunk < 1) {
+                throw new IllegalArgumentException("maxAttemptsPerChunk < 1: " + maxAttemptsPerChunk);
+            }
+            this.maxAttemptsPerChunk = maxAttemptsPerChunk;
+            return this;
+        }
+
+        public RangedDownloader build() {
+            return new RangedDownloader(this);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.lxw.retrofit;
+
+import java.lang.reflect.Method;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/07
+ *     desc   : 单个方法构建请求的次数与平均耗时，见 Retrofit.Builder#recordRequestBuildTime
+ * </pre>
+ */
+public final class RequestBuildTiming {
+    private final Method method;
+    private final long count;
+    private final long totalNanos;
+
+    RequestBuildTiming(Method method, long count, long totalNanos) {
+        this.method = method;
+        this.count = count;
+        this.totalNanos = totalNanos;
+    }
+
+    public Method method() {
+        return method;
+    }
+
+    /** Number of requests built for this method. */
+    public long count() {
+        return count;
+    }
+
+    /** Time spent applying arguments and building the {@code okhttp3.Request}, in nanos. */
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    public long averageNanos() {
+        return count > 0 ? totalNanos / count : 0L;
+    }
+
+    @Override
+    public String toString() {
+        return method.getName() + ": " + count + " requests, " + averageNanos() + "ns each";
+    }
+}
@@ -11,7 +11,6 @@ import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.Request;
 import okhttp3.RequestBody;
-import okio.Buffer;
 import okio.BufferedSink;
 
 /**
@@ -23,16 +22,15 @@ import okio.BufferedSink;
  * </pre>
  */
 public class RequestBuilder {
-    private static final char[] HEX_DIGITS = {
-            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
-            'A', 'B', 'C', 'D', 'E', 'F'
-    };
-//    private static final String PATH_SEGMENT_ALWAYS_ENCODE_SET = " \"<>^`{}|\\?#";
-    private static final String PATH_SEGMENT_ALWAYS_ENCODE_SET = " \"<>^`{}|\\?#";
     private final String method;
     private final HttpUrl baseUrl;
     private @Nullable
     String relativeUrl;
+    //预编译的地址模板与各占位符的值，第一次需要完整地址时才拼接
+    private final @Nullable
+    UrlTemplate urlTemplate;
+    private @Nullable
+    String[] pathValues;
     private @Nullable
     HttpUrl.Builder urlBuilder;
 
@@ -56,9 +54,25 @@ public class RequestBuilder {
                           boolean hasBody,
                           boolean isFormEncoded,
                           boolean isMultipart) {
+        this(method, baseUrl, relativeUrl, relativeUrl != null ? UrlTemplate.compile(relativeUrl) : null,
+                contentType, headers, hasBody, isFormEncoded, isMultipart);
+    }
+
+    RequestBuilder(String method, HttpUrl baseUrl,
+                   @Nullable String relativeUrl,
+                   @Nullable UrlTemplate urlTemplate,
+                   @Nullable MediaType contentType,
+                   @Nullable Headers headers,
+                   boolean hasBody,
+                   boolean isFormEncoded,
+                   boolean isMultipart) {
         this.method = method;
         this.baseUrl = baseUrl;
         this.relativeUrl = relativeUrl;
+        this.urlTemplate = urlTemplate;
+        if (urlTemplate != null && urlTemplate.slotCount() > 0) {
+            pathValues = new String[urlTemplate.slotCount()];
+        }
         this.requestBuilder = new Request.Builder();
         this.contentType = contentType;
         this.hasBody = hasBody;
@@ -79,62 +93,38 @@ public class RequestBuilder {
     }
 
     public void addPathParam(String name, String value, boolean encoded) {
-        if (relativeUrl == null) {
+        if (urlTemplate == null) {
             throw new AssertionError();
         }
-        relativeUrl = relativeUrl.replace("{" + name + "}", canonicalizeForPath(value, encoded));
+        int slot = urlTemplate.slot(name);
+        if (slot != -1) {
+            addPathParam(slot, value, encoded);
+        }
     }
 
-    private static String canonicalizeForPath(String input, boolean alreadyEncoded) {
-        int codePoint;
-        for (int i = 0, limit = input.length(); i < limit; i += Character.charCount(codePoint)) {
-            codePoint = input.codePointAt(i);
-            if (codePoint < 0x20 || codePoint >= 0x7f
-                    || PATH_SEGMENT_ALWAYS_ENCODE_SET.indexOf(codePoint) != -1
-                    || (!alreadyEncoded && (codePoint == '/' || codePoint == '%'))) {
-                // Slow path: the character at i requires encoding!
-                Buffer out = new Buffer();
-                out.writeUtf8(input, 0, i);
-                canonicalizeForPath(out, input, i, limit, alreadyEncoded);
-                return out.readUtf8();
-            }
+    void addPathParam(int slot, String value, boolean encoded) {
+        String[] pathValues = this.pathValues;
+        if (pathValues == null) {
+            throw new AssertionError();
+        }
+        // The first value wins, as a second replace of the same placeholder used to find nothing.
+        if (pathValues[slot] == null) {
+            pathValues[slot] = PercentEncoder.PATH_SEGMENT.encode(value, encoded);
         }
-        return input;
     }
 
-    private static void canonicalizeForPath(Buffer out, String input, int pos, int limit,
-                                            boolean alreadyEncoded) {
-        Buffer utf8Buffer = null;
-        // Lazily allocated.
-        int codePoint;
-        for (int i = pos; i < limit; i += Character.charCount(codePoint)) {
-            codePoint = input.codePointAt(i);
-            if (alreadyEncoded
-                    && (codePoint == '\t' || codePoint == '\n' || codePoint == '\f' || codePoint == '\r')) {
-                // Skip this character.
-            } else if (codePoint < 0x20 || codePoint >= 0x7f
-                    || PATH_SEGMENT_ALWAYS_ENCODE_SET.indexOf(codePoint) != -1
-                    || (!alreadyEncoded && (codePoint == '/' || codePoint == '%'))) {
-                // Percent encode this character.
-                if (utf8Buffer == null) {
-                    utf8Buffer = new Buffer();
-                }
-                utf8Buffer.writeUtf8CodePoint(codePoint);
-                while (!utf8Buffer.exhausted()) {
-                    int b = utf8Buffer.readByte() & 0xff;
-                    out.writeByte('%');
-                    out.writeByte(HEX_DIGITS[(b >> 4) & 0xf]);
-                    out.writeByte(HEX_DIGITS[b & 0xf]);
-                }
-            } else {
-                // This character doesn't need encoding. Just copy it over.
-                out.writeUtf8CodePoint(codePoint);
-            }
+    /** Assembles the path from its template once every @Path value is known. */
+    private void expandRelativeUrl() {
+        if (pathValues != null) {
+            relativeUrl = urlTemplate.expand(pathValues);
+            pathValues = null;
         }
     }
 
     public void addQueryParam(String name, String queryValue, boolean encoded) {
+        expandRelativeUrl();
         if (relativeUrl != null) {
+            // Resolving against the base keeps its already parsed scheme and host.
             urlBuilder = baseUrl.newBuilder(relativeUrl);
             if (urlBuilder == null) {
                 throw new IllegalArgumentException(
@@ -143,12 +133,10 @@ public class RequestBuilder {
             relativeUrl = null;
         }
 
-        if (encoded) {
-            urlBuilder.addEncodedQueryParameter(name, queryValue);
-        } else {
-            urlBuilder.addQueryParameter(name, queryValue);
-        }
-
+        // Canonicalized here, so HttpUrl's own pass over the encoded form finds nothing to do.
+        urlBuilder.addEncodedQueryParameter(
+                PercentEncoder.QUERY_COMPONENT.encode(name, encoded),
+                queryValue != null ? PercentEncoder.QUERY_COMPONENT.encode(queryValue, encoded) : null);
     }
 
     public void addHeader(String name, String value) {
@@ -185,6 +173,7 @@ public class RequestBuilder {
     }
 
     public Request build() {
+        expandRelativeUrl();
         HttpUrl url;
         HttpUrl.Builder urlBuilder = this.urlBuilder;
         if (urlBuilder != null) {
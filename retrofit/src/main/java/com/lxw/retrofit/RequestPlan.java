@@ -0,0 +1,182 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.Map;
+
+import okhttp3.MultipartBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/07
+ *     desc   : 每个方法的参数处理计划，按参数种类分派到具体的 final 类，集合/数组参数在这里直接展开
+ * </pre>
+ */
+final class RequestPlan {
+    private static final int OTHER = 0;
+    private static final int RELATIVE_URL = 1;
+    private static final int PATH = 2;
+    private static final int QUERY = 3;
+    private static final int QUERY_NAME = 4;
+    private static final int QUERY_MAP = 5;
+    private static final int HEADER = 6;
+    private static final int HEADER_MAP = 7;
+    private static final int FIELD = 8;
+    private static final int FIELD_MAP = 9;
+    private static final int PART = 10;
+    private static final int RAW_PART = 11;
+    private static final int PART_MAP = 12;
+    private static final int BODY = 13;
+
+    private static final int SINGLE = 0;
+    private static final int ITERABLE = 1;
+    private static final int ARRAY = 2;
+
+    /** Per parameter: the operation in the high bits, how the argument repeats in the low two. */
+    private final int[] steps;
+    /** Per parameter: the handler for a single value, with iterable and array wrappers removed. */
+    private final ParameterHandler<?>[] handlers;
+
+    private RequestPlan(int[] steps, ParameterHandler<?>[] handlers) {
+        this.steps = steps;
+        this.handlers = handlers;
+    }
+
+    static RequestPlan compile(ParameterHandler<?>[] parameterHandlers) {
+        int count = parameterHandlers.length;
+        int[] steps = new int[count];
+        ParameterHandler<?>[] handlers = new ParameterHandler<?>[count];
+        for (int p = 0; p < count; p++) {
+            ParameterHandler<?> handler = parameterHandlers[p];
+            int repeat = SINGLE;
+            if (handler instanceof ParameterHandler.IterableHandler) {
+                handler = ((ParameterHandler.IterableHandler<?>) handler).delegate;
+                repeat = ITERABLE;
+            } else if (handler instanceof ParameterHandler.ArrayHandler) {
+                handler = ((ParameterHandler.ArrayHandler<?>) handler).delegate;
+                repeat = ARRAY;
+            }
+            handlers[p] = handler;
+            steps[p] = operation(handler) << 2 | repeat;
+        }
+        return new RequestPlan(steps, handlers);
+    }
+
+    private static int operation(ParameterHandler<?> handler) {
+        Class<?> type = handler.getClass();
+        if (type == ParameterHandler.RelativeUrl.class) return RELATIVE_URL;
+        if (type == ParameterHandler.Path.class) return PATH;
+        if (type == ParameterHandler.Query.class) return QUERY;
+        if (type == ParameterHandler.QueryName.class) return QUERY_NAME;
+        if (type == ParameterHandler.QueryMap.class) return QUERY_MAP;
+        if (type == ParameterHandler.Header.class) return HEADER;
+        if (type == ParameterHandler.HeaderMap.class) return HEADER_MAP;
+        if (type == ParameterHandler.Field.class) return FIELD;
+        if (type == ParameterHandler.FieldMap.class) return FIELD_MAP;
+        if (type == ParameterHandler.Part.class) return PART;
+        if (type == ParameterHandler.RawPart.class) return RAW_PART;
+        if (type == ParameterHandler.PartMap.class) return PART_MAP;
+        if (type == ParameterHandler.Body.class) return BODY;
+        return OTHER;
+    }
+
+    /** {@code args} is null for a method without parameters, as a dynamic proxy passes it. */
+    void apply(RequestBuilder builder, @Nullable Object[] args) throws IOException {
+        int[] steps = this.steps;
+        ParameterHandler<?>[] handlers = this.handlers;
+        for (int p = 0, count = steps.length; p < count; p++) {
+            int step = steps[p];
+            int operation = step >>> 2;
+            ParameterHandler<?> handler = handlers[p];
+            Object value = args[p];
+            switch (step & 3) {
+                case SINGLE:
+                    apply(operation, handler, builder, value);
+                    break;
+                case ITERABLE:
+                    if (value != null) {
+                        for (Object element : (Iterable<?>) value) {
+                            apply(operation, handler, builder, element);
+                        }
+                    }
+                    break;
+                case ARRAY:
+                    if (value instanceof Object[]) {
+                        for (Object element : (Object[]) value) {
+                            apply(operation, handler, builder, element);
+                        }
+                    } else if (value != null) {
+                        // Primitive arrays are boxed one element at a time.
+                        for (int i = 0, size = Array.getLength(value); i < size; i++) {
+                            apply(operation, handler, builder, Array.get(value, i));
+                        }
+                    }
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+    }
+
+    /**
+     * Each case casts to a final handler class, so its call site only ever sees one receiver
+     * type and the JIT can bind and inline it directly.
+     */
+    @SuppressWarnings("unchecked")
+    private static void apply(int operation, ParameterHandler<?> handler, RequestBuilder builder,
+                              Object value) throws IOException {
+        switch (operation) {
+            case RELATIVE_URL:
+                ((ParameterHandler.RelativeUrl) handler).apply(builder, value);
+                break;
+            case PATH:
+                ((ParameterHandler.Path<Object>) handler).apply(builder, value);
+                break;
+            case QUERY:
+                ((ParameterHandler.Query<Object>) handler).apply(builder, value);
+                break;
+            case QUERY_NAME:
+                ((ParameterHandler.QueryName<Object>) handler).apply(builder, value);
+                break;
+            case QUERY_MAP:
+                ((ParameterHandler.QueryMap<Object>) handler).apply(builder,
+                        (Map<String, Object>) value);
+                break;
+            case HEADER:
+                ((ParameterHandler.Header<Object>) handler).apply(builder, value);
+                break;
+            case HEADER_MAP:
+                ((ParameterHandler.HeaderMap<Object>) handler).apply(builder,
+                        (Map<String, Object>) value);
+                break;
+            case FIELD:
+                ((ParameterHandler.Field<Object>) handler).apply(builder, value);
+                break;
+            case FIELD_MAP:
+                ((ParameterHandler.FieldMap<Object>) handler).apply(builder,
+                        (Map<String, Object>) value);
+                break;
+            case PART:
+                ((ParameterHandler.Part<Object>) handler).apply(builder, value);
+                break;
+            case RAW_PART:
+                ((ParameterHandler.RawPart) handler).apply(builder,
+                        (MultipartBody.Part) value);
+                break;
+            case PART_MAP:
+                ((ParameterHandler.PartMap<Object>) handler).apply(builder,
+                        (Map<String, Object>) value);
+                break;
+            case BODY:
+                ((ParameterHandler.Body<Object>) handler).apply(builder, value);
+                break;
+            default:
+                ((ParameterHandler<Object>) handler).apply(builder, value);
+                break;
+        }
+    }
+}
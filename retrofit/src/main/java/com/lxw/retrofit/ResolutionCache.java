@@ -0,0 +1,134 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import com.lxw.retrofit.http.Streaming;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/05
+ *     desc   : 缓存转换器与 CallAdapter 的查找结果，相同的 (类型, 注解, skipPast) 只遍历一次工厂列表
+ * </pre>
+ */
+final class ResolutionCache {
+    static final int CALL_ADAPTER = 0;
+    static final int RESPONSE_BODY = 1;
+    static final int REQUEST_BODY = 2;
+    static final int STRING = 3;
+    private static final String HTTP_ANNOTATION_PACKAGE = "com.lxw.retrofit.http.";
+
+    private final ConcurrentMap<Key, Object> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    @Nullable
+    Object get(Key key) {
+        Object result = cache.get(key);
+        if (result != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return result;
+    }
+
+    /** Failed lookups throw and are never stored, so a later call reports the same error. */
+    void put(Key key, Object value) {
+        cache.put(key, value);
+    }
+
+    long hitCount() {
+        return hitCount.get();
+    }
+
+    long missCount() {
+        return missCount.get();
+    }
+
+    static Key key(int kind, @Nullable Object skipPast, Type type, Annotation[] annotations) {
+        return new Key(kind, skipPast, type, keyAnnotations(annotations));
+    }
+
+    /**
+     * Drops the request-definition annotations ({@code @GET("/users/{id}")}, {@code @Path("id")},
+     * ...) from the key. They differ on nearly every method and parameter, so keeping them would
+     * make every lookup a miss, and converters never act on them. {@link Streaming} is kept
+     * because it changes which body converter is chosen.
+     */
+    private static Annotation[] keyAnnotations(Annotation[] annotations) {
+        int kept = 0;
+        for (Annotation annotation : annotations) {
+            if (!isRequestAnnotation(annotation)) {
+                kept++;
+            }
+        }
+        if (kept == annotations.length) {
+            return annotations;
+        }
+        Annotation[] result = new Annotation[kept];
+        int i = 0;
+        for (Annotation annotation : annotations) {
+            if (!isRequestAnnotation(annotation)) {
+                result[i++] = annotation;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isRequestAnnotation(Annotation annotation) {
+        Class<? extends Annotation> type = annotation.annotationType();
+        return type != Streaming.class
+                && type.getName().startsWith(HTTP_ANNOTATION_PACKAGE);
+    }
+
+    static final class Key {
+        private final int kind;
+        private final @Nullable
+        Object skipPast;
+        private final Type type;
+        private final Annotation[] annotations;
+        private final int hashCode;
+
+        Key(int kind, @Nullable Object skipPast, Type type, Annotation[] annotations) {
+            this.kind = kind;
+            this.skipPast = skipPast;
+            this.type = type;
+            this.annotations = annotations;
+            int result = kind;
+            result = 31 * result + System.identityHashCode(skipPast);
+            result = 31 * result + type.hashCode();
+            result = 31 * result + Arrays.hashCode(annotations);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode
+                    && kind == other.kind
+                    && skipPast == other.skipPast
+                    && Utils.equals(type, other.type)
+                    && Arrays.equals(annotations, other.annotations);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -78,7 +78,16 @@ public final class Response<T> {
     if (!rawResponse.isSuccessful()) {
       throw new IllegalArgumentException("rawResponse must be successful response");
     }
-    return new Response<>(rawResponse, body, null);
+    return new Response<>(rawResponse, body, null, false);
+  }
+
+  /**
+   * Like {@link #success(Object, okhttp3.Response)}, but {@link #raw()} hides the body of
+   * {@code rawResponse}, which has already been consumed. The response without a body is only
+   * built if {@link #raw()} is called.
+   */
+  static <T> Response<T> successDetached(@Nullable T body, okhttp3.Response rawResponse) {
+    return new Response<>(rawResponse, body, null, true);
   }
 
   /**
@@ -102,23 +111,44 @@ public final class Response<T> {
     if (rawResponse.isSuccessful()) {
       throw new IllegalArgumentException("rawResponse should not be successful response");
     }
-    return new Response<>(rawResponse, null, body);
+    return new Response<>(rawResponse, null, body, false);
+  }
+
+  /** Like {@link #error(ResponseBody, okhttp3.Response)}; see {@link #successDetached}. */
+  static <T> Response<T> errorDetached(ResponseBody body, okhttp3.Response rawResponse) {
+    return new Response<>(rawResponse, null, body, true);
   }
 
   private final okhttp3.Response rawResponse;
   private final @Nullable T body;
   private final @Nullable ResponseBody errorBody;
+  // When true, rawResponse still carries the consumed network body and raw() must hide it.
+  private final boolean detachBody;
+  private volatile @Nullable okhttp3.Response detachedRaw;
 
   private Response(okhttp3.Response rawResponse, @Nullable T body,
-                   @Nullable ResponseBody errorBody) {
+                   @Nullable ResponseBody errorBody, boolean detachBody) {
     this.rawResponse = rawResponse;
     this.body = body;
     this.errorBody = errorBody;
+    this.detachBody = detachBody;
   }
 
-  /** The raw response from the HTTP client. */
+  /** The raw response from the HTTP client. Its body cannot be read. */
   public okhttp3.Response raw() {
-    return rawResponse;
+    if (!detachBody) {
+      return rawResponse;
+    }
+    okhttp3.Response raw = detachedRaw;
+    if (raw == null) {
+      // Racing callers build equal copies; either one is fine.
+      ResponseBody rawBody = rawResponse.body();
+      raw = rawResponse.newBuilder()
+          .body(new OkHttpCall.NoContentResponseBody(rawBody.contentType(), rawBody.contentLength()))
+          .build();
+      detachedRaw = raw;
+    }
+    return raw;
   }
 
   /** HTTP status code. */
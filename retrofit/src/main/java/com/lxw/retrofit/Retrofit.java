@@ -4,15 +4,15 @@ import android.annotation.SuppressLint;
 import android.support.annotation.Nullable;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 
 import okhttp3.Call;
@@ -33,7 +33,9 @@ import static com.lxw.retrofit.Utils.checkNotNull;
  * </pre>
  */
 public class Retrofit {
-    private final Map<Method, ServiceMethod<?, ?>> serviceMethodCache = new ConcurrentHashMap<>();
+    private final ServiceMethodCache serviceMethodCache = new ServiceMethodCache();
+    //转换器与 CallAdapter 查找结果，所有 service 接口共享
+    private final ResolutionCache resolutionCache = new ResolutionCache();
     private final okhttp3.Call.Factory callFactory;
     private final HttpUrl baseUrl;
     //对返回结果  进行 转换
@@ -41,18 +43,63 @@ public class Retrofit {
     private final List<CallAdapter.Factory> callAdapterFactories;
     private final Executor callbackExecutor;
     private final boolean validateEagerly;
+    private final @Nullable
+    ServiceMethodSnapshot serviceMethodSnapshot;
+    //newBuilder() 出来的实例共享方法解析结果，只各自绑定 baseUrl 和 callFactory
+    private final SharedServiceMethods sharedServiceMethods;
+    private final boolean recordRequestBuildTime;
+    private final ErrorBodyPolicy errorBodyPolicy;
+    //不为 null 时 enquue 改为在这个 Executor 上阻塞执行，不走 OkHttp 的 Dispatcher
+    private final @Nullable
+    Executor callExecutor;
+    //@CacheTtl 方法的转换结果缓存，newBuilder() 出来的实例共用
+    private final @Nullable
+    ConvertedResponseCache convertedResponseCache;
+    //@CacheTtl 方法响应的磁盘缓存，进程重启后仍然有效
+    private final @Nullable
+    DiskResponseCache diskResponseCache;
 
 
     public Retrofit(Call.Factory callFactory, HttpUrl baseUrl,
                     List<Converter.Factory> converterFactories,
                     List<CallAdapter.Factory> callAdapterFactories,
                     Executor callbackExecutor, boolean validateEagerly) {
+        this(callFactory, baseUrl, converterFactories, callAdapterFactories, callbackExecutor,
+                validateEagerly, null);
+    }
+
+    public Retrofit(Call.Factory callFactory, HttpUrl baseUrl,
+                    List<Converter.Factory> converterFactories,
+                    List<CallAdapter.Factory> callAdapterFactories,
+                    Executor callbackExecutor, boolean validateEagerly,
+                    @Nullable ServiceMethodSnapshot serviceMethodSnapshot) {
+        this(callFactory, baseUrl, converterFactories, callAdapterFactories, callbackExecutor,
+                validateEagerly, serviceMethodSnapshot, new SharedServiceMethods(), false,
+                ErrorBodyPolicy.buffer(Long.MAX_VALUE), null, null, null);
+    }
+
+    Retrofit(Call.Factory callFactory, HttpUrl baseUrl,
+             List<Converter.Factory> converterFactories,
+             List<CallAdapter.Factory> callAdapterFactories,
+             Executor callbackExecutor, boolean validateEagerly,
+             @Nullable ServiceMethodSnapshot serviceMethodSnapshot,
+             SharedServiceMethods sharedServiceMethods, boolean recordRequestBuildTime,
+             ErrorBodyPolicy errorBodyPolicy, @Nullable Executor callExecutor,
+             @Nullable ConvertedResponseCache convertedResponseCache,
+             @Nullable DiskResponseCache diskResponseCache) {
         this.callFactory = callFactory;
         this.baseUrl = baseUrl;
         this.converterFactories = converterFactories;
         this.callAdapterFactories = callAdapterFactories;
         this.callbackExecutor = callbackExecutor;
         this.validateEagerly = validateEagerly;
+        this.serviceMethodSnapshot = serviceMethodSnapshot;
+        this.sharedServiceMethods = sharedServiceMethods;
+        this.recordRequestBuildTime = recordRequestBuildTime;
+        this.errorBodyPolicy = errorBodyPolicy;
+        this.callExecutor = callExecutor;
+        this.convertedResponseCache = convertedResponseCache;
+        this.diskResponseCache = diskResponseCache;
     }
 
     public Call.Factory callFactory() {
@@ -75,6 +122,32 @@ public class Retrofit {
         return callbackExecutor;
     }
 
+    public ErrorBodyPolicy errorBodyPolicy() {
+        return errorBodyPolicy;
+    }
+
+    /** The executor that runs {@link Call#enquue} calls, or null for OkHttp's dispatcher. */
+    public @Nullable
+    Executor callExecutor() {
+        return callExecutor;
+    }
+
+    /** The cache of converted {@link com.lxw.retrofit.http.CacheTtl @CacheTtl} responses. */
+    public @Nullable
+    ConvertedResponseCache convertedResponseCache() {
+        return convertedResponseCache;
+    }
+
+    /** The disk cache of {@link com.lxw.retrofit.http.CacheTtl @CacheTtl} responses. */
+    public @Nullable
+    DiskResponseCache diskResponseCache() {
+        return diskResponseCache;
+    }
+
+    boolean recordRequestBuildTime() {
+        return recordRequestBuildTime;
+    }
+
     public Builder newBuilder() {
         return new Builder(this);
     }
@@ -85,6 +158,11 @@ public class Retrofit {
         if (validateEagerly) {
             eagerlyValidateMethods(service);
         }
+        //优先使用编译期生成的实现类，没有的话再走动态代理
+        T generated = createGeneratedService(service);
+        if (generated != null) {
+            return generated;
+        }
         T t = (T) Proxy.newProxyInstance(service.getClassLoader(), new Class<?>[]{service},
                 new InvocationHandler() {
                     @Override
@@ -107,19 +185,139 @@ public class Retrofit {
         return t;
     }
 
-    private ServiceMethod<?, ?> loadServiceMethod(Method method) {
-        ServiceMethod<?, ?> result = serviceMethodCache.get(method);
-        if (result != null) {
-            return result;
+    /**
+     * Instantiates the implementation generated by the retrofit compiler for {@code service}, or
+     * returns null if none was generated so {@link #create} falls back to a dynamic proxy.
+     */
+    @SuppressWarnings("unchecked")
+    private @Nullable
+    <T> T createGeneratedService(Class<T> service) {
+        Class<?> generatedClass;
+        try {
+            generatedClass = Class.forName(Utils.generatedServiceName(service), true,
+                    service.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+        if (!service.isAssignableFrom(generatedClass)) {
+            return null;
         }
-        synchronized (serviceMethodCache) {
-            result = serviceMethodCache.get(method);
-            if (result == null) {
-                result = new ServiceMethod.Builder<>(this, method).build();
-                serviceMethodCache.put(method, result);
+        try {
+            Constructor<?> constructor = generatedClass.getConstructor(Retrofit.class);
+            return (T) constructor.newInstance(this);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Unable to find constructor for " + generatedClass, e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Unable to create " + generatedClass, cause);
+        } catch (InstantiationException e) {
+            throw new IllegalStateException("Unable to create " + generatedClass, e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Unable to create " + generatedClass, e);
+        }
+    }
+
+    /**
+     * Looks up the {@link ServiceMethod} for a method of {@code service}. Used by generated service
+     * implementations, which resolve each method once and keep it in a typed field.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ServiceMethod<Object, T> serviceMethod(Class<?> service, String name,
+                                                      Class<?>... parameterTypes) {
+        Method method;
+        try {
+            method = service.getDeclaredMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException("No method " + name + " on " + service.getName(), e);
+        }
+        return (ServiceMethod<Object, T>) loadServiceMethod(method);
+    }
+
+    ServiceMethod<?, ?> loadServiceMethod(Method method) {
+        return serviceMethodCache.get(this, method);
+    }
+
+    /**
+     * Parses {@code method}, or reuses the result of an instance created by {@link #newBuilder()}
+     * with the same converter and call adapter factories and binds it to this instance's base
+     * URL and call factory.
+     */
+    ServiceMethod<?, ?> parseServiceMethod(Method method) {
+        ServiceMethod<?, ?> shared =
+                sharedServiceMethods.get(method, converterFactories, callAdapterFactories);
+        if (shared == null) {
+            shared = sharedServiceMethods.putIfAbsent(method, converterFactories,
+                    callAdapterFactories, new ServiceMethod.Builder<>(this, method).build());
+        }
+        return shared.bind(this);
+    }
+
+    /**
+     * Returns how often each parsed method of {@code service} built a request and how long that
+     * took, in declaration order. Empty unless {@link Builder#recordRequestBuildTime} is enabled.
+     */
+    public List<RequestBuildTiming> requestBuildTimings(Class<?> service) {
+        List<RequestBuildTiming> timings = new ArrayList<>();
+        if (!recordRequestBuildTime) {
+            return timings;
+        }
+        for (Method method : service.getDeclaredMethods()) {
+            ServiceMethod<?, ?> serviceMethod = serviceMethodCache.getIfLoaded(method);
+            if (serviceMethod != null) {
+                timings.add(new RequestBuildTiming(method, serviceMethod.requestBuildCount(),
+                        serviceMethod.requestBuildNanos()));
+            }
+        }
+        return timings;
+    }
+
+    /**
+     * Exchanges and coalesced calls of each {@link com.lxw.retrofit.http.Coalesce @Coalesce}
+     * method of {@code service} that has been loaded.
+     */
+    public List<CoalescingStats> coalescingStats(Class<?> service) {
+        List<CoalescingStats> stats = new ArrayList<>();
+        for (Method method : service.getDeclaredMethods()) {
+            ServiceMethod<?, ?> serviceMethod = serviceMethodCache.getIfLoaded(method);
+            CallCoalescer<?> coalescer = serviceMethod != null ? serviceMethod.coalescer() : null;
+            if (coalescer != null) {
+                stats.add(new CoalescingStats(method, coalescer.exchangeCount(),
+                        coalescer.coalescedCount()));
             }
         }
-        return result;
+        return stats;
+    }
+
+    @Nullable
+    MethodMetadata snapshotMetadata(Method method) {
+        return serviceMethodSnapshot != null ? serviceMethodSnapshot.metadata(method) : null;
+    }
+
+    boolean isServiceMethodLoaded(Method method) {
+        return serviceMethodCache.contains(method);
+    }
+
+    /** Number of converter and call adapter lookups answered from the resolution cache. */
+    public long resolutionCacheHitCount() {
+        return resolutionCache.hitCount();
+    }
+
+    /** Number of converter and call adapter lookups that had to ask the factories. */
+    public long resolutionCacheMissCount() {
+        return resolutionCache.missCount();
+    }
+
+    /** Number of calls that waited for another thread to finish parsing the same method. */
+    public long serviceMethodWaitCount() {
+        return serviceMethodCache.waitCount();
+    }
+
+    /** Total time calls spent waiting for another thread to parse the same method, in nanos. */
+    public long serviceMethodWaitNanos() {
+        return serviceMethodCache.waitNanos();
     }
 
     private void eagerlyValidateMethods(Class<?> service) {
@@ -128,6 +326,21 @@ public class Retrofit {
         }
     }
 
+    /**
+     * Parses every method of {@code service} in parallel on a pool sized to the available
+     * processors, without blocking the caller. Use {@link ServiceMethodWarmup#await()} to wait
+     * for it and get per-method build times.
+     */
+    public ServiceMethodWarmup warmUp(Class<?> service) {
+        return warmUp(service, null);
+    }
+
+    /** Like {@link #warmUp(Class)}, but parses the methods on {@code executor}. */
+    public ServiceMethodWarmup warmUp(Class<?> service, @Nullable Executor executor) {
+        Utils.validateServiceInterface(service);
+        return ServiceMethodWarmup.start(this, service, executor);
+    }
+
     public CallAdapter<?, ?> callAdapter(Type returnType, Annotation[] annotations) {
         return nextCallAdapter(null, returnType, annotations);
     }
@@ -135,11 +348,18 @@ public class Retrofit {
     private CallAdapter<?, ?> nextCallAdapter(@Nullable CallAdapter skipPast, Type returnType, Annotation[] annotations) {
         checkNotNull(returnType, "returnType == null");
         checkNotNull(annotations, "annotations == null");
+        ResolutionCache.Key key =
+                ResolutionCache.key(ResolutionCache.CALL_ADAPTER, skipPast, returnType, annotations);
+        Object cached = resolutionCache.get(key);
+        if (cached != null) {
+            return (CallAdapter<?, ?>) cached;
+        }
         //start第一次返回0
         int start = callAdapterFactories.indexOf(skipPast) + 1;
         for (int i = start, count = callAdapterFactories.size(); i < count; i++) {
             CallAdapter<?, ?> adapter = callAdapterFactories.get(i).get(returnType, annotations, this);
             if (adapter != null) {
+                resolutionCache.put(key, adapter);
                 return adapter;
             }
         }
@@ -171,14 +391,25 @@ public class Retrofit {
             @Nullable Converter.Factory skipPast, Type type, Annotation[] annotations) {
         checkNotNull(type, "type == null");
         checkNotNull(annotations, "annotations == null");
+        ResolutionCache.Key key =
+                ResolutionCache.key(ResolutionCache.RESPONSE_BODY, skipPast, type, annotations);
+        Object cached = resolutionCache.get(key);
+        if (cached != null) {
+            // Cached under the same type, so it converts the same T.
+            @SuppressWarnings("unchecked")
+            Converter<ResponseBody, T> typed = (Converter<ResponseBody, T>) cached;
+            return typed;
+        }
 
         int start = converterFactories.indexOf(skipPast) + 1;
         for (int i = start, count = converterFactories.size(); i < count; i++) {
             Converter<ResponseBody, ?> converter =
                     converterFactories.get(i).responseBodyConverter(type, annotations, this);
             if (converter != null) {
-                //noinspection unchecked
-                return (Converter<ResponseBody, T>) converter;
+                resolutionCache.put(key, converter);
+                @SuppressWarnings("unchecked")
+                Converter<ResponseBody, T> typed = (Converter<ResponseBody, T>) converter;
+                return typed;
             }
         }
 
@@ -208,6 +439,19 @@ public class Retrofit {
         private final List<CallAdapter.Factory> callAdapterFactories = new ArrayList<>();
         private Executor callbackExecutor;
         private boolean validateEagerly;
+        private @Nullable
+        ServiceMethodSnapshot serviceMethodSnapshot;
+        private @Nullable
+        SharedServiceMethods sharedServiceMethods;
+        private boolean recordRequestBuildTime;
+        private @Nullable
+        ErrorBodyPolicy errorBodyPolicy;
+        private @Nullable
+        Executor callExecutor;
+        private @Nullable
+        ConvertedResponseCache convertedResponseCache;
+        private @Nullable
+        DiskResponseCache diskResponseCache;
         private final Platform platform;
 
         public Builder() {
@@ -220,10 +464,18 @@ public class Retrofit {
             baseUrl = retrofit.baseUrl;
             converterFactories.addAll(retrofit.converterFactories);
             converterFactories.remove(0);
-            callAdapterFactories.addAll(retrofit.callAdapterFactories);
-            callAdapterFactories.remove(callAdapterFactories.size() - 1);
+            //去掉 build() 时追加的默认 CallAdapter.Factory
+            callAdapterFactories.addAll(retrofit.callAdapterFactories.subList(0,
+                    retrofit.callAdapterFactories.size() - platform.defaultCallAdapterFactoriesSize()));
             callbackExecutor = retrofit.callbackExecutor;
             validateEagerly = retrofit.validateEagerly;
+            serviceMethodSnapshot = retrofit.serviceMethodSnapshot;
+            sharedServiceMethods = retrofit.sharedServiceMethods;
+            recordRequestBuildTime = retrofit.recordRequestBuildTime;
+            errorBodyPolicy = retrofit.errorBodyPolicy;
+            callExecutor = retrofit.callExecutor;
+            convertedResponseCache = retrofit.convertedResponseCache;
+            diskResponseCache = retrofit.diskResponseCache;
         }
 
 
@@ -255,6 +507,77 @@ public class Retrofit {
             return this;
         }
 
+        /**
+         * Reuses method annotations parsed in an earlier run, see
+         * {@link ServiceMethodSnapshot#capture}. Methods of interfaces that changed since the
+         * snapshot was taken are parsed as usual.
+         */
+        public Builder serviceMethodSnapshot(@Nullable ServiceMethodSnapshot snapshot) {
+            this.serviceMethodSnapshot = snapshot;
+            return this;
+        }
+
+        /**
+         * Counts the requests built by each method and the time spent building them, see
+         * {@link Retrofit#requestBuildTimings}. Costs two clock reads per call.
+         */
+        public Builder recordRequestBuildTime(boolean recordRequestBuildTime) {
+            this.recordRequestBuildTime = recordRequestBuildTime;
+            return this;
+        }
+
+        /**
+         * How bodies of non-2xx responses are read, see {@link ErrorBodyPolicy}. By default they
+         * are buffered whole.
+         */
+        public Builder errorBodyPolicy(ErrorBodyPolicy errorBodyPolicy) {
+            checkNotNull(errorBodyPolicy, "errorBodyPolicy == null");
+            this.errorBodyPolicy = errorBodyPolicy;
+            return this;
+        }
+
+        /**
+         * Runs {@link Call#enquue} calls as a blocking {@link Call#execute} on {@code callExecutor}
+         * instead of on OkHttp's dispatcher, whose per-host limits then no longer apply. Callbacks
+         * still go through the callback executor. Null restores the dispatcher.
+         */
+        public Builder callExecutor(@Nullable Executor callExecutor) {
+            this.callExecutor = callExecutor;
+            return this;
+        }
+
+        /**
+         * Runs every {@link Call#enquue} call on its own virtual thread, see
+         * {@link #callExecutor}. Throws if the JVM has no virtual threads.
+         */
+        public Builder useVirtualThreads() {
+            Executor executor = platform.virtualThreadExecutor();
+            if (executor == null) {
+                throw new IllegalStateException("Virtual threads are not available on this platform.");
+            }
+            return callExecutor(executor);
+        }
+
+        /**
+         * Keeps converted bodies of {@link com.lxw.retrofit.http.CacheTtl @CacheTtl} methods in
+         * {@code cache}, so repeated calls skip the converter. Null turns the cache off.
+         */
+        public Builder convertedResponseCache(@Nullable ConvertedResponseCache cache) {
+            this.convertedResponseCache = cache;
+            return this;
+        }
+
+        /**
+         * Also keeps responses of {@link com.lxw.retrofit.http.CacheTtl @CacheTtl} methods in
+         * {@code cache}, so they survive a restart. Best combined with
+         * {@link #convertedResponseCache}, which then serves the calls after the first. Null
+         * turns the disk cache off.
+         */
+        public Builder diskResponseCache(@Nullable DiskResponseCache cache) {
+            this.diskResponseCache = cache;
+            return this;
+        }
+
         public Builder addConverterFactory(Converter.Factory factory) {
             converterFactories.add(factory);
             return this;
@@ -294,16 +617,28 @@ public class Retrofit {
 
             List<CallAdapter.Factory> callAdapterFactories =
                     new ArrayList<>(this.callAdapterFactories);
-            //添加 ExecutorCallAdapterFactory
-            callAdapterFactories.add(platform.defaultCallAdapterFactory(callbackExecutor));
+            //添加 CompletableFutureCallAdapterFactory（平台支持时）和 ExecutorCallAdapterFactory
+            callAdapterFactories.addAll(platform.defaultCallAdapterFactories(callbackExecutor));
 
             List<Converter.Factory> converterFactories =
                     new ArrayList<>(1 + this.converterFactories.size());
             converterFactories.add(new BuiltInConverters());
             converterFactories.addAll(this.converterFactories);
 
+            ErrorBodyPolicy errorBodyPolicy = this.errorBodyPolicy;
+            if (errorBodyPolicy == null) {
+                errorBodyPolicy = ErrorBodyPolicy.buffer(Long.MAX_VALUE);
+            }
+
+            SharedServiceMethods sharedServiceMethods = this.sharedServiceMethods;
+            if (sharedServiceMethods == null) {
+                sharedServiceMethods = new SharedServiceMethods();
+            }
+
             return new Retrofit(callFactory, baseUrl, Collections.unmodifiableList(converterFactories),
-                    Collections.unmodifiableList(callAdapterFactories), callbackExecutor, validateEagerly
+                    Collections.unmodifiableList(callAdapterFactories), callbackExecutor, validateEagerly,
+                    serviceMethodSnapshot, sharedServiceMethods, recordRequestBuildTime,
+                    errorBodyPolicy, callExecutor, convertedResponseCache, diskResponseCache
             );
         }
 
@@ -314,19 +649,31 @@ public class Retrofit {
     public <T> Converter<T, String> stringConverter(Type type, Annotation[] annotations) {
         checkNotNull(type, "type == null");
         checkNotNull(annotations, "annotations == null");
+        ResolutionCache.Key key =
+                ResolutionCache.key(ResolutionCache.STRING, null, type, annotations);
+        Object cached = resolutionCache.get(key);
+        if (cached != null) {
+            // Cached under the same type, so it converts the same T.
+            @SuppressWarnings("unchecked")
+            Converter<T, String> typed = (Converter<T, String>) cached;
+            return typed;
+        }
 
+        Converter<?, String> result = BuiltInConverters.ToStringConverter.INSTANCE;
         for (int i = 0, count = converterFactories.size(); i < count; i++) {
             Converter<?, String> converter =
                     converterFactories.get(i).stringConverter(type, annotations, this);
             if (converter != null) {
-                //noinspection unchecked
-                return (Converter<T, String>) converter;
+                result = converter;
+                break;
             }
         }
 
-        // Nothing matched. Resort to default converter which just calls toString().
-        //noinspection unchecked
-        return (Converter<T, String>) BuiltInConverters.ToStringConverter.INSTANCE;
+        // Nothing matched falls back to the default converter which just calls toString().
+        resolutionCache.put(key, result);
+        @SuppressWarnings("unchecked")
+        Converter<T, String> typed = (Converter<T, String>) result;
+        return typed;
     }
 
     /**
@@ -348,6 +695,16 @@ public class Retrofit {
         checkNotNull(type, "type == null");
         checkNotNull(parameterAnnotations, "parameterAnnotations == null");
         checkNotNull(methodAnnotations, "methodAnnotations == null");
+        // Factories only see the parameter annotations, so those are all the key needs.
+        ResolutionCache.Key key = ResolutionCache.key(ResolutionCache.REQUEST_BODY, skipPast, type,
+                parameterAnnotations);
+        Object cached = resolutionCache.get(key);
+        if (cached != null) {
+            // Cached under the same type, so it converts the same T.
+            @SuppressWarnings("unchecked")
+            Converter<T, RequestBody> typed = (Converter<T, RequestBody>) cached;
+            return typed;
+        }
 
         int start = converterFactories.indexOf(skipPast) + 1;
         for (int i = start, count = converterFactories.size(); i < count; i++) {
@@ -355,8 +712,10 @@ public class Retrofit {
             Converter<?, RequestBody> converter =
                     factory.requestBodyConverter(type, parameterAnnotations, this);
             if (converter != null) {
-                //noinspection unchecked
-                return (Converter<T, RequestBody>) converter;
+                resolutionCache.put(key, converter);
+                @SuppressWarnings("unchecked")
+                Converter<T, RequestBody> typed = (Converter<T, RequestBody>) converter;
+                return typed;
             }
         }
 
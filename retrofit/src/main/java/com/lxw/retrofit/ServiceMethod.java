@@ -1,6 +1,10 @@
 package com.lxw.retrofit;
 
+import android.support.annotation.Nullable;
+
 import com.lxw.retrofit.http.Body;
+import com.lxw.retrofit.http.CacheTtl;
+import com.lxw.retrofit.http.Coalesce;
 import com.lxw.retrofit.http.Delete;
 import com.lxw.retrofit.http.Field;
 import com.lxw.retrofit.http.FieldMap;
@@ -21,8 +25,10 @@ import com.lxw.retrofit.http.Path;
 import com.lxw.retrofit.http.Query;
 import com.lxw.retrofit.http.QueryMap;
 import com.lxw.retrofit.http.QueryName;
+import com.lxw.retrofit.http.Streaming;
 import com.lxw.retrofit.http.Url;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
@@ -32,6 +38,8 @@ import java.net.URI;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -39,6 +47,7 @@ import okhttp3.Headers;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
+import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 
@@ -55,33 +64,151 @@ public class ServiceMethod<R, T> {
     private static final Pattern PARAM_URL_REGEX = Pattern.compile("\\{(" + PARAM + ")\\}");
     private static final Pattern PARAM_NAME_REGEX = Pattern.compile(PARAM);
 
+    private final Method method;
     private final okhttp3.Call.Factory callFactory;
     private final CallAdapter<R, T> callAdapter;
     private final HttpUrl baseUrl;
     private Converter<ResponseBody, R> responseConverter;
-    private final String httpMethod;
-    private final String relativeUrl;
-    private final Headers headers;
-    private final MediaType contentType;
-    private final boolean isFormEncoded;
-    private final boolean isMultipart;
-    private final ParameterHandler<?>[] parameterHandlers;
-    private final boolean hasBody;
+    //方法注解解析结果，可写入快照
+    final MethodMetadata metadata;
+    //参数处理计划，由 parameterHandlers 展开而来
+    private final RequestPlan requestPlan;
+    //解析耗时，用于启动预热报告
+    final long callAdapterNanos;
+    final long converterNanos;
+    final long parameterNanos;
+    //构建请求的次数与耗时，只有开启 recordRequestBuildTime 时才统计
+    private final @Nullable
+    AtomicLong requestBuildCount;
+    private final @Nullable
+    AtomicLong requestBuildNanos;
+    //非 2xx 响应体的处理策略，来自绑定的 Retrofit
+    private final ErrorBodyPolicy errorBodyPolicy;
+    //enquue 阻塞执行所用的 Executor，来自绑定的 Retrofit
+    private final @Nullable
+    Executor callExecutor;
+    //@Coalesce 方法合并在途的相同请求，其它方法为 null
+    private final @Nullable
+    CallCoalescer<R> coalescer;
+    //转换结果缓存，来自绑定的 Retrofit；没有 @CacheTtl 的方法 cacheTtlNanos 为 -1，不使用
+    private final @Nullable
+    ConvertedResponseCache convertedResponseCache;
+    private final @Nullable
+    DiskResponseCache diskResponseCache;
+    private final long cacheTtlNanos;
 
 
     public ServiceMethod(Builder<R, T> builder) {
+        this.method = builder.method;
         this.callFactory = builder.retrofit.callFactory();
         this.callAdapter = builder.callAdapter;
         this.baseUrl = builder.retrofit.baseUrl();
         this.responseConverter = builder.responseConverter;
-        this.httpMethod = builder.httpMethod;
-        this.relativeUrl = builder.relativeUrl;
-        this.headers = builder.headers;
-        this.contentType = builder.contentType;
-        this.hasBody = builder.hasBody;
-        this.isFormEncoded = builder.isFormEncoded;
-        this.isMultipart = builder.isMultipart;
-        this.parameterHandlers = builder.parameterHandlers;
+        this.metadata = builder.metadata;
+        this.requestPlan = RequestPlan.compile(builder.parameterHandlers);
+        this.callAdapterNanos = builder.callAdapterNanos;
+        this.converterNanos = builder.converterNanos;
+        this.parameterNanos = builder.parameterNanos;
+        this.requestBuildCount = null;
+        this.requestBuildNanos = null;
+        this.errorBodyPolicy = builder.retrofit.errorBodyPolicy();
+        this.callExecutor = builder.retrofit.callExecutor();
+        this.coalescer = builder.coalesce ? new CallCoalescer<R>() : null;
+        this.convertedResponseCache = builder.retrofit.convertedResponseCache();
+        this.diskResponseCache = builder.retrofit.diskResponseCache();
+        this.cacheTtlNanos = builder.cacheTtlNanos;
+    }
+
+    private ServiceMethod(ServiceMethod<R, T> parsed, Retrofit retrofit) {
+        this.method = parsed.method;
+        this.callFactory = retrofit.callFactory();
+        this.callAdapter = parsed.callAdapter;
+        this.baseUrl = retrofit.baseUrl();
+        this.responseConverter = parsed.responseConverter;
+        this.metadata = parsed.metadata;
+        this.requestPlan = parsed.requestPlan;
+        this.callAdapterNanos = parsed.callAdapterNanos;
+        this.converterNanos = parsed.converterNanos;
+        this.parameterNanos = parsed.parameterNanos;
+        boolean record = retrofit.recordRequestBuildTime();
+        this.requestBuildCount = record ? new AtomicLong() : null;
+        this.requestBuildNanos = record ? new AtomicLong() : null;
+        this.errorBodyPolicy = retrofit.errorBodyPolicy();
+        this.callExecutor = retrofit.callExecutor();
+        //换了 callFactory 等配置的绑定不与原来的共用在途交换
+        this.coalescer = parsed.coalescer != null ? new CallCoalescer<R>() : null;
+        this.convertedResponseCache = retrofit.convertedResponseCache();
+        this.diskResponseCache = retrofit.diskResponseCache();
+        this.cacheTtlNanos = parsed.cacheTtlNanos;
+    }
+
+    /**
+     * Returns this method bound to the base URL, call factory, error body policy, call executor
+     * and response caches of {@code retrofit}. The parsed annotations, parameter handlers, converter and
+     * call adapter are shared, not copied. A binding that records request build times always gets
+     * its own counters.
+     */
+    ServiceMethod<R, T> bind(Retrofit retrofit) {
+        if (!retrofit.recordRequestBuildTime() && requestBuildCount == null
+                && callFactory == retrofit.callFactory()
+                && baseUrl.equals(retrofit.baseUrl())
+                && errorBodyPolicy == retrofit.errorBodyPolicy()
+                && callExecutor == retrofit.callExecutor()
+                && convertedResponseCache == retrofit.convertedResponseCache()
+                && diskResponseCache == retrofit.diskResponseCache()) {
+            return this;
+        }
+        return new ServiceMethod<>(this, retrofit);
+    }
+
+    ErrorBodyPolicy errorBodyPolicy() {
+        return errorBodyPolicy;
+    }
+
+    @Nullable
+    Executor callExecutor() {
+        return callExecutor;
+    }
+
+    @Nullable
+    CallCoalescer<R> coalescer() {
+        return coalescer;
+    }
+
+    /** The cache for this method's converted responses, or null if they are not cached. */
+    @Nullable
+    ConvertedResponseCache convertedResponseCache() {
+        return cacheTtlNanos >= 0 ? convertedResponseCache : null;
+    }
+
+    @Nullable
+    DiskResponseCache diskResponseCache() {
+        return cacheTtlNanos >= 0 ? diskResponseCache : null;
+    }
+
+    /**
+     * Key of the disk cache record for {@code request}. The response type stands in for the
+     * converter, which does not survive a restart.
+     */
+    String diskCacheKey(Request request) {
+        return callAdapter.responseType() + "\n" + CallCoalescer.key(request);
+    }
+
+    long cacheTtlNanos() {
+        return cacheTtlNanos;
+    }
+
+    /** Identifies the type of converted bodies in {@link ConvertedResponseCache} keys. */
+    Object responseConverter() {
+        return responseConverter;
+    }
+
+    okhttp3.Call.Factory callFactory() {
+        return callFactory;
+    }
+
+    okhttp3.Call newCall(Request request) {
+        return callFactory.newCall(request);
     }
 
     public T adapt(Call<R> okHttpCall) {
@@ -89,18 +216,32 @@ public class ServiceMethod<R, T> {
     }
 
     public okhttp3.Call toCall(Object[] args) throws IOException {
+        AtomicLong requestBuildNanos = this.requestBuildNanos;
+        long start = requestBuildNanos != null ? System.nanoTime() : 0L;
+        MethodMetadata metadata = this.metadata;
         RequestBuilder requestBuilder = new RequestBuilder(
-                httpMethod,
-                baseUrl, relativeUrl, contentType, headers, hasBody,
-                isFormEncoded, isMultipart
+                metadata.httpMethod,
+                baseUrl, metadata.relativeUrl, metadata.urlTemplate, metadata.contentType,
+                metadata.headers,
+                metadata.hasBody, metadata.isFormEncoded, metadata.isMultipart
         );
-        int argumentCount = args.length;
-        ParameterHandler<Object>[] handlers = (ParameterHandler<Object>[]) parameterHandlers;
-        for (int p = 0; p < argumentCount; p++) {
-            handlers[p].apply(requestBuilder, args[p]);
+        requestPlan.apply(requestBuilder, args);
+        Request request = requestBuilder.build();
+        if (requestBuildNanos != null) {
+            requestBuildNanos.addAndGet(System.nanoTime() - start);
+            requestBuildCount.incrementAndGet();
         }
+        return callFactory.newCall(request);
+    }
+
+    /** Number of requests built, or 0 unless request build times are recorded. */
+    long requestBuildCount() {
+        return requestBuildCount != null ? requestBuildCount.get() : 0L;
+    }
 
-        return callFactory.newCall(requestBuilder.build());
+    /** Total time spent building those requests, in nanoseconds. */
+    long requestBuildNanos() {
+        return requestBuildNanos != null ? requestBuildNanos.get() : 0L;
     }
 
     R toResponse(ResponseBody body) throws IOException {
@@ -127,23 +268,32 @@ public class ServiceMethod<R, T> {
         boolean isFormEncoded;
         boolean isMultipart;
         String relativeUrl;
+        UrlTemplate urlTemplate;
         Headers headers;
         MediaType contentType;
         Set<String> relativeUrlParamNames;
         Converter<ResponseBody, T> responseConverter;
         CallAdapter<T, R> callAdapter;
         ParameterHandler[] parameterHandlers;
+        MethodMetadata metadata;
+        long callAdapterNanos;
+        long converterNanos;
+        long parameterNanos;
+        boolean coalesce;
+        long cacheTtlNanos = -1L;
 
         public Builder(Retrofit retrofit, Method method) {
             this.retrofit = retrofit;
             this.method = method;
             methodAnnotations = method.getAnnotations();
             parameterAnnotationArray = method.getParameterAnnotations();
-            parameterTypes = method.getParameterTypes();
+            parameterTypes = method.getGenericParameterTypes();
         }
 
         public ServiceMethod build() {
+            long start = System.nanoTime();
             callAdapter = createCallAdapter();
+            callAdapterNanos = System.nanoTime() - start;
             responseType = callAdapter.responseType();
             if (responseType == Response.class || responseType == okhttp3.Response.class) {
                 throw methodError("'"
@@ -151,7 +301,16 @@ public class ServiceMethod<R, T> {
                         + "' is not a valid response body type. Did you mean ResponseBody?");
             }
             //TODO 获得Response转换器  BufferingResponseBodyConverter
+            start = System.nanoTime();
             responseConverter = createResponseConverter();
+            converterNanos = System.nanoTime() - start;
+
+            //快照中已有解析结果时，跳过注解解析与校验，只重新绑定转换器
+            MethodMetadata snapshot = retrofit.snapshotMetadata(method);
+            if (snapshot != null && snapshot.parameters.length == parameterTypes.length) {
+                return buildFromMetadata(snapshot);
+            }
+
             //解析方法上的 注解
             for (Annotation methodAnnotation : methodAnnotations) {
                 parseMethodAnnnoatation(methodAnnotation);
@@ -173,7 +332,9 @@ public class ServiceMethod<R, T> {
                 }
             }
             //多少个参数
+            start = System.nanoTime();
             int parameterCount = parameterAnnotationArray.length;
+            ParameterSpec[] parameterSpecs = new ParameterSpec[parameterCount];
             parameterHandlers = new ParameterHandler[parameterCount];
 
             for (int p = 0; p < parameterCount; p++) {
@@ -184,14 +345,16 @@ public class ServiceMethod<R, T> {
                                     "wildcard: %s",
                             parameterType);
                 }
-                ;
                 Annotation[] parameterAnnotations = parameterAnnotationArray[p];
                 if (parameterAnnotations == null) {
                     throw parameterError(p, "No Retrofit annotation found.");
                 }
                 //解析参数上的注解
-                parameterHandlers[p] = parseParameter(p, parameterAnnotations, parameterType);
+                parameterSpecs[p] = parseParameter(p, parameterAnnotations);
+                parameterHandlers[p] = createParameterHandler(p, parameterSpecs[p],
+                        parameterType, parameterAnnotations);
             }
+            parameterNanos = System.nanoTime() - start;
             if (relativeUrl == null && !gotUrl) {
                 throw methodError("Missing either @%s URL or @Url parameter.", httpMethod);
             }
@@ -205,16 +368,75 @@ public class ServiceMethod<R, T> {
                 throw methodError("Multipart method must contain at least one @Part.");
             }
 
+            metadata = new MethodMetadata(httpMethod, relativeUrl, urlTemplate, headers,
+                    contentType, hasBody, isFormEncoded, isMultipart, parameterSpecs);
+            coalesce = parseCoalesce();
+            cacheTtlNanos = parseCacheTtl();
+            return new ServiceMethod<>(this);
+        }
+
+        private ServiceMethod<T, R> buildFromMetadata(MethodMetadata metadata) {
+            long start = System.nanoTime();
+            this.metadata = metadata;
+            httpMethod = metadata.httpMethod;
+            relativeUrl = metadata.relativeUrl;
+            urlTemplate = metadata.urlTemplate;
+            int parameterCount = parameterTypes.length;
+            parameterHandlers = new ParameterHandler<?>[parameterCount];
+            for (int p = 0; p < parameterCount; p++) {
+                parameterHandlers[p] = createParameterHandler(p, metadata.parameters[p],
+                        parameterTypes[p], parameterAnnotationArray[p]);
+            }
+            parameterNanos = System.nanoTime() - start;
+            coalesce = parseCoalesce();
+            cacheTtlNanos = parseCacheTtl();
             return new ServiceMethod<>(this);
         }
 
-        private ParameterHandler parseParameter(int p, Annotation[] annotations, Type parameterType) {
+        /** Only idempotent methods whose converted body can be handed to several callers. */
+        private boolean parseCoalesce() {
+            if (!method.isAnnotationPresent(Coalesce.class)) {
+                return false;
+            }
+            if (!"GET".equals(httpMethod) && !"HEAD".equals(httpMethod)) {
+                throw methodError("@Coalesce can only be used with GET or HEAD.");
+            }
+            Class<?> rawResponseType = Utils.getRawType(responseType);
+            if (method.isAnnotationPresent(Streaming.class)
+                    || (Closeable.class.isAssignableFrom(rawResponseType)
+                    && rawResponseType != ResponseBody.class)) {
+                throw methodError("@Coalesce cannot be used with a streamed response body.");
+            }
+            return true;
+        }
+
+        /** Returns the TTL of {@link CacheTtl} in nanos, or -1 if responses are not cached. */
+        private long parseCacheTtl() {
+            CacheTtl cacheTtl = method.getAnnotation(CacheTtl.class);
+            if (cacheTtl == null) {
+                return -1L;
+            }
+            if (!"GET".equals(httpMethod)) {
+                throw methodError("@CacheTtl can only be used with GET.");
+            }
+            if (cacheTtl.value() < 0) {
+                throw methodError("@CacheTtl must not be negative: %s", cacheTtl.value());
+            }
+            //ResponseBody 只能读一次，不能交给多个调用方
+            Class<?> rawResponseType = Utils.getRawType(responseType);
+            if (Closeable.class.isAssignableFrom(rawResponseType)) {
+                throw methodError("@CacheTtl cannot be used with a ResponseBody or streamed body.");
+            }
+            return cacheTtl.unit().toNanos(cacheTtl.value());
+        }
+
+        private ParameterSpec parseParameter(int p, Annotation[] annotations) {
             //判断 参数是否有且只有一个注解
-            ParameterHandler<?> result = null;
+            ParameterSpec result = null;
             //虽然可以给参数多个注解，但这里强制只允许一个
             for (Annotation annotation : annotations) {
-                ParameterHandler<?> annotationAction = parseParameterAnnotation(p, parameterType, annotations, annotation);
-                if (annotationAction == null) {
+                ParameterSpec annotationSpec = parseParameterAnnotation(p, annotation);
+                if (annotationSpec == null) {
                     continue;
                 }
 
@@ -222,7 +444,7 @@ public class ServiceMethod<R, T> {
                     throw parameterError(p, "Multiple Retrofit annotations found, only one " +
                             "allowed.");
                 }
-                result = annotationAction;
+                result = annotationSpec;
             }
             if (result == null) {
                 throw parameterError(p, "No Retrofit annotation found.");
@@ -231,10 +453,8 @@ public class ServiceMethod<R, T> {
             return result;
         }
 
-        private ParameterHandler<?> parseParameterAnnotation(int p,
-                                                             Type parameterType,
-                                                             Annotation[] annotations,
-                                                             Annotation annotation) {
+        /** Validates a parameter annotation against the rest of the method. */
+        private ParameterSpec parseParameterAnnotation(int p, Annotation annotation) {
             if (annotation instanceof Url) {
                 if (gotUrl) {
                     throw parameterError(p, "Multiple @Url method annotations found.");
@@ -251,17 +471,7 @@ public class ServiceMethod<R, T> {
                     throw parameterError(p, "@Url cannot be used with @%s URL", httpMethod);
                 }
                 gotUrl = true;
-                if (parameterType == HttpUrl.class
-                        || parameterType == String.class
-                        || parameterType == URI.class
-                        || (parameterType instanceof Class && "android.net.Uri".equals(((Class<?>) parameterType)
-                        .getName()))) {
-                    return new ParameterHandler.RelativeUrl();
-                } else {
-                    throw parameterError(p,
-                            "@Url must be okhttp3.HttpUrl, String, java.net.URI, or android.net" +
-                                    ".Uri type.");
-                }
+                return ParameterSpec.of(ParameterSpec.Kind.URL);
             } else if (annotation instanceof Path) {
                 if (gotQuery) {
                     throw parameterError(p, "A @Path parameter must not come after a @Query.");
@@ -277,201 +487,42 @@ public class ServiceMethod<R, T> {
                 Path path = (Path) annotation;
                 String name = path.value();
                 validatePathName(p, name);
-
-                Converter<Object, String> converter = retrofit.stringConverter(parameterType, annotations);
-                return new ParameterHandler.Path<>(name, converter, path.encoded());
+                return new ParameterSpec(ParameterSpec.Kind.PATH, name, path.encoded(), null);
             } else if (annotation instanceof Query) {
                 Query query = (Query) annotation;
-                String name = query.value();
-                boolean encoded = query.encoded();
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
                 gotQuery = true;
-                if (Iterable.class.isAssignableFrom(rawParameterType)) {
-                    if (!(parameterType instanceof ParameterizedType)) {
-                        throw parameterError(p, rawParameterType.getSimpleName()
-                                + " must include generic type (e.g., "
-                                + rawParameterType.getSimpleName()
-                                + "<String>)");
-                    }
-                    ParameterizedType parameterizedType = (ParameterizedType) parameterType;
-                    Type iterableType = Utils.getParameterUpperBound(0, parameterizedType);
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(iterableType, annotations);
-                    return new ParameterHandler.Query<>(name, converter, encoded);
-                } else if (rawParameterType.isArray()) {
-                    Class<?> arrayComponentType = boxIfPrimitive(rawParameterType).getComponentType();
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(arrayComponentType, annotations);
-                    return new ParameterHandler.Query<>(name, converter, encoded).array();
-                } else {
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(parameterType, annotations);
-                    return new ParameterHandler.Query<>(name, converter, encoded);
-                }
-
+                return new ParameterSpec(ParameterSpec.Kind.QUERY, query.value(), query.encoded(),
+                        null);
             } else if (annotation instanceof QueryName) {
                 QueryName query = (QueryName) annotation;
-                boolean encoded = query.encoded();
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
                 gotQuery = true;
-                if (Iterable.class.isAssignableFrom(rawParameterType)) {
-                    if (!(parameterType instanceof ParameterizedType)) {
-                        throw parameterError(p, rawParameterType.getSimpleName()
-                                + " must include generic type (e.g., "
-                                + rawParameterType.getSimpleName()
-                                + "<String>)");
-                    }
-                    ParameterizedType parameterizedType = (ParameterizedType) parameterType;
-                    Type iterableType = Utils.getParameterUpperBound(0, parameterizedType);
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(iterableType, annotations);
-                    return new ParameterHandler.QueryName<>(converter, encoded).iterable();
-                } else if (rawParameterType.isArray()) {
-                    Class<?> arrayComponentType = boxIfPrimitive(rawParameterType
-                            .getComponentType());
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(arrayComponentType, annotations);
-                    return new ParameterHandler.QueryName<>(converter, encoded).array();
-                } else {
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(parameterType, annotations);
-                    return new ParameterHandler.QueryName<>(converter, encoded);
-                }
+                return new ParameterSpec(ParameterSpec.Kind.QUERY_NAME, null, query.encoded(),
+                        null);
             } else if (annotation instanceof QueryMap) {
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
-                if (!Map.class.isAssignableFrom(rawParameterType)) {
-                    throw parameterError(p, "@QueryMap parameter type must be Map.");
-                }
-                Type mapType = Utils.getSupertype(parameterType, rawParameterType, Map.class);
-                if (!(mapType instanceof ParameterizedType)) {
-                    throw parameterError(p, "Map must include generic types (e.g., Map<String, " +
-                            "String>)");
-                }
-                ParameterizedType parameterizedType = (ParameterizedType) mapType;
-                Type keyType = Utils.getParameterUpperBound(0, parameterizedType);
-                if (String.class != keyType) {
-                    throw parameterError(p, "@QueryMap keys must be of type String: " + keyType);
-                }
-                Type valueType = Utils.getParameterUpperBound(1, parameterizedType);
-                Converter<?, String> valueConverter =
-                        retrofit.stringConverter(valueType, annotations);
-
-                return new ParameterHandler.QueryMap<>(valueConverter, ((QueryMap) annotation)
-                        .encoded());
-
+                return new ParameterSpec(ParameterSpec.Kind.QUERY_MAP, null,
+                        ((QueryMap) annotation).encoded(), null);
             } else if (annotation instanceof Header) {
-                Header header = (Header) annotation;
-                String name = header.value();
-
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
-                if (Iterable.class.isAssignableFrom(rawParameterType)) {
-                    if (!(parameterType instanceof ParameterizedType)) {
-                        throw parameterError(p, rawParameterType.getSimpleName()
-                                + " must include generic type (e.g., "
-                                + rawParameterType.getSimpleName()
-                                + "<String>)");
-                    }
-                    ParameterizedType parameterizedType = (ParameterizedType) parameterType;
-                    Type iterableType = Utils.getParameterUpperBound(0, parameterizedType);
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(iterableType, annotations);
-                    return new ParameterHandler.Header<>(name, converter).iterable();
-                } else if (rawParameterType.isArray()) {
-                    Class<?> arrayComponentType = boxIfPrimitive(rawParameterType
-                            .getComponentType());
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(arrayComponentType, annotations);
-                    return new ParameterHandler.Header<>(name, converter).array();
-                } else {
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(parameterType, annotations);
-                    return new ParameterHandler.Header<>(name, converter);
-                }
-
+                return new ParameterSpec(ParameterSpec.Kind.HEADER, ((Header) annotation).value(),
+                        false, null);
             } else if (annotation instanceof HeaderMap) {
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
-                if (!Map.class.isAssignableFrom(rawParameterType)) {
-                    throw parameterError(p, "@HeaderMap parameter type must be Map.");
-                }
-                Type mapType = Utils.getSupertype(parameterType, rawParameterType, Map.class);
-                if (!(mapType instanceof ParameterizedType)) {
-                    throw parameterError(p, "Map must include generic types (e.g., Map<String, " +
-                            "String>)");
-                }
-                ParameterizedType parameterizedType = (ParameterizedType) mapType;
-                Type keyType = Utils.getParameterUpperBound(0, parameterizedType);
-                if (String.class != keyType) {
-                    throw parameterError(p, "@HeaderMap keys must be of type String: " + keyType);
-                }
-                Type valueType = Utils.getParameterUpperBound(1, parameterizedType);
-                Converter<?, String> valueConverter =
-                        retrofit.stringConverter(valueType, annotations);
-
-                return new ParameterHandler.HeaderMap<>(valueConverter);
-
+                return ParameterSpec.of(ParameterSpec.Kind.HEADER_MAP);
             } else if (annotation instanceof Field) {
                 if (!isFormEncoded) {
                     throw parameterError(p, "@Field parameters can only be used with form " +
                             "encoding.");
                 }
                 Field field = (Field) annotation;
-                String name = field.value();
-                boolean encoded = field.encoded();
-
                 gotField = true;
-
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
-                if (Iterable.class.isAssignableFrom(rawParameterType)) {
-                    if (!(parameterType instanceof ParameterizedType)) {
-                        throw parameterError(p, rawParameterType.getSimpleName()
-                                + " must include generic type (e.g., "
-                                + rawParameterType.getSimpleName()
-                                + "<String>)");
-                    }
-                    ParameterizedType parameterizedType = (ParameterizedType) parameterType;
-                    Type iterableType = Utils.getParameterUpperBound(0, parameterizedType);
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(iterableType, annotations);
-                    return new ParameterHandler.Field<>(name, converter, encoded).iterable();
-                } else if (rawParameterType.isArray()) {
-                    Class<?> arrayComponentType = boxIfPrimitive(rawParameterType
-                            .getComponentType());
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(arrayComponentType, annotations);
-                    return new ParameterHandler.Field<>(name, converter, encoded).array();
-                } else {
-                    Converter<?, String> converter =
-                            retrofit.stringConverter(parameterType, annotations);
-                    return new ParameterHandler.Field<>(name, converter, encoded);
-                }
-
+                return new ParameterSpec(ParameterSpec.Kind.FIELD, field.value(), field.encoded(),
+                        null);
             } else if (annotation instanceof FieldMap) {
                 if (!isFormEncoded) {
                     throw parameterError(p, "@FieldMap parameters can only be used with form " +
                             "encoding.");
                 }
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
-                if (!Map.class.isAssignableFrom(rawParameterType)) {
-                    throw parameterError(p, "@FieldMap parameter type must be Map.");
-                }
-                Type mapType = Utils.getSupertype(parameterType, rawParameterType, Map.class);
-                if (!(mapType instanceof ParameterizedType)) {
-                    throw parameterError(p,
-                            "Map must include generic types (e.g., Map<String, String>)");
-                }
-                ParameterizedType parameterizedType = (ParameterizedType) mapType;
-                Type keyType = Utils.getParameterUpperBound(0, parameterizedType);
-                if (String.class != keyType) {
-                    throw parameterError(p, "@FieldMap keys must be of type String: " + keyType);
-                }
-                Type valueType = Utils.getParameterUpperBound(1, parameterizedType);
-                Converter<?, String> valueConverter =
-                        retrofit.stringConverter(valueType, annotations);
-
                 gotField = true;
-                return new ParameterHandler.FieldMap<>(valueConverter, ((FieldMap) annotation)
-                        .encoded());
-
+                return new ParameterSpec(ParameterSpec.Kind.FIELD_MAP, null,
+                        ((FieldMap) annotation).encoded(), null);
             } else if (annotation instanceof Part) {
                 if (!isMultipart) {
                     throw parameterError(p, "@Part parameters can only be used with multipart " +
@@ -481,18 +532,163 @@ public class ServiceMethod<R, T> {
                 gotPart = true;
 
                 String partName = part.value();
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
+                //没有名字的话，只能使用 MultipartBody.Part 来上传
                 if (partName.isEmpty()) {
+                    return ParameterSpec.of(ParameterSpec.Kind.RAW_PART);
+                }
+                return new ParameterSpec(ParameterSpec.Kind.PART, partName, false,
+                        part.encoding());
+            } else if (annotation instanceof PartMap) {
+                if (!isMultipart) {
+                    throw parameterError(p, "@PartMap parameters can only be used with multipart " +
+                            "encoding.");
+                }
+                gotPart = true;
+                return new ParameterSpec(ParameterSpec.Kind.PART_MAP, null, false,
+                        ((PartMap) annotation).encoding());
+            //如果使用默认的requestBodyConverter  只能使用requestBody上传对象
+            } else if (annotation instanceof Body) {
+                if (isFormEncoded || isMultipart) {
+                    throw parameterError(p,
+                            "@Body parameters cannot be used with form or multi-part encoding.");
+                }
+                if (gotBody) {
+                    throw parameterError(p, "Multiple @Body method annotations found.");
+                }
+                gotBody = true;
+                return ParameterSpec.of(ParameterSpec.Kind.BODY);
+            }
+
+            return null; // Not a Retrofit annotation.
+        }
+
+        /** Checks the parameter type for {@code spec} and binds its converter. */
+        private ParameterHandler<?> createParameterHandler(int p, ParameterSpec spec,
+                                                           Type parameterType,
+                                                           Annotation[] annotations) {
+            switch (spec.kind) {
+                case URL:
+                    if (parameterType == HttpUrl.class
+                            || parameterType == String.class
+                            || parameterType == URI.class
+                            || (parameterType instanceof Class && "android.net.Uri".equals(((Class<?>) parameterType)
+                            .getName()))) {
+                        return new ParameterHandler.RelativeUrl();
+                    } else {
+                        throw parameterError(p,
+                                "@Url must be okhttp3.HttpUrl, String, java.net.URI, or android.net" +
+                                        ".Uri type.");
+                    }
+                case PATH: {
+                    Converter<Object, String> converter =
+                            retrofit.stringConverter(parameterType, annotations);
+                    return new ParameterHandler.Path<>(spec.name, urlTemplate.slot(spec.name),
+                            converter, spec.encoded);
+                }
+                case QUERY: {
+                    Class<?> rawParameterType = Utils.getRawType(parameterType);
+                    if (Iterable.class.isAssignableFrom(rawParameterType)) {
+                        Type iterableType = iterableType(p, parameterType, rawParameterType);
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(iterableType, annotations);
+                        return new ParameterHandler.Query<>(spec.name, converter, spec.encoded)
+                                .iterable();
+                    } else if (rawParameterType.isArray()) {
+                        Class<?> arrayComponentType = boxIfPrimitive(rawParameterType
+                                .getComponentType());
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(arrayComponentType, annotations);
+                        return new ParameterHandler.Query<>(spec.name, converter, spec.encoded)
+                                .array();
+                    } else {
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(parameterType, annotations);
+                        return new ParameterHandler.Query<>(spec.name, converter, spec.encoded);
+                    }
+                }
+                case QUERY_NAME: {
+                    Class<?> rawParameterType = Utils.getRawType(parameterType);
+                    if (Iterable.class.isAssignableFrom(rawParameterType)) {
+                        Type iterableType = iterableType(p, parameterType, rawParameterType);
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(iterableType, annotations);
+                        return new ParameterHandler.QueryName<>(converter, spec.encoded)
+                                .iterable();
+                    } else if (rawParameterType.isArray()) {
+                        Class<?> arrayComponentType = boxIfPrimitive(rawParameterType
+                                .getComponentType());
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(arrayComponentType, annotations);
+                        return new ParameterHandler.QueryName<>(converter, spec.encoded).array();
+                    } else {
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(parameterType, annotations);
+                        return new ParameterHandler.QueryName<>(converter, spec.encoded);
+                    }
+                }
+                case QUERY_MAP: {
+                    Type valueType = mapValueType(p, parameterType, "@QueryMap");
+                    Converter<?, String> valueConverter =
+                            retrofit.stringConverter(valueType, annotations);
+                    return new ParameterHandler.QueryMap<>(valueConverter, spec.encoded);
+                }
+                case HEADER: {
+                    Class<?> rawParameterType = Utils.getRawType(parameterType);
+                    if (Iterable.class.isAssignableFrom(rawParameterType)) {
+                        Type iterableType = iterableType(p, parameterType, rawParameterType);
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(iterableType, annotations);
+                        return new ParameterHandler.Header<>(spec.name, converter).iterable();
+                    } else if (rawParameterType.isArray()) {
+                        Class<?> arrayComponentType = boxIfPrimitive(rawParameterType
+                                .getComponentType());
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(arrayComponentType, annotations);
+                        return new ParameterHandler.Header<>(spec.name, converter).array();
+                    } else {
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(parameterType, annotations);
+                        return new ParameterHandler.Header<>(spec.name, converter);
+                    }
+                }
+                case HEADER_MAP: {
+                    Type valueType = mapValueType(p, parameterType, "@HeaderMap");
+                    Converter<?, String> valueConverter =
+                            retrofit.stringConverter(valueType, annotations);
+                    return new ParameterHandler.HeaderMap<>(valueConverter);
+                }
+                case FIELD: {
+                    Class<?> rawParameterType = Utils.getRawType(parameterType);
+                    if (Iterable.class.isAssignableFrom(rawParameterType)) {
+                        Type iterableType = iterableType(p, parameterType, rawParameterType);
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(iterableType, annotations);
+                        return new ParameterHandler.Field<>(spec.name, converter, spec.encoded)
+                                .iterable();
+                    } else if (rawParameterType.isArray()) {
+                        Class<?> arrayComponentType = boxIfPrimitive(rawParameterType
+                                .getComponentType());
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(arrayComponentType, annotations);
+                        return new ParameterHandler.Field<>(spec.name, converter, spec.encoded)
+                                .array();
+                    } else {
+                        Converter<?, String> converter =
+                                retrofit.stringConverter(parameterType, annotations);
+                        return new ParameterHandler.Field<>(spec.name, converter, spec.encoded);
+                    }
+                }
+                case FIELD_MAP: {
+                    Type valueType = mapValueType(p, parameterType, "@FieldMap");
+                    Converter<?, String> valueConverter =
+                            retrofit.stringConverter(valueType, annotations);
+                    return new ParameterHandler.FieldMap<>(valueConverter, spec.encoded);
+                }
+                case RAW_PART: {
                     //如果是 Iterable或者Array 的话 ，使用MultiPartBody来构建上传
+                    Class<?> rawParameterType = Utils.getRawType(parameterType);
                     if (Iterable.class.isAssignableFrom(rawParameterType)) {
-                        if (!(parameterType instanceof ParameterizedType)) {
-                            throw parameterError(p, rawParameterType.getSimpleName()
-                                    + " must include generic type (e.g., "
-                                    + rawParameterType.getSimpleName()
-                                    + "<String>)");
-                        }
-                        ParameterizedType parameterizedType = (ParameterizedType) parameterType;
-                        Type iterableType = Utils.getParameterUpperBound(0, parameterizedType);
+                        Type iterableType = iterableType(p, parameterType, rawParameterType);
                         if (!MultipartBody.Part.class.isAssignableFrom(Utils.getRawType
                                 (iterableType))) {
                             throw parameterError(p,
@@ -515,21 +711,15 @@ public class ServiceMethod<R, T> {
                                 "@Part annotation must supply a name or use MultipartBody.Part " +
                                         "parameter type.");
                     }
-                } else {
+                }
+                case PART: {
                     okhttp3.Headers headers =
-                            okhttp3.Headers.of("Content-Disposition", "form-data; name=\"" + partName +
+                            okhttp3.Headers.of("Content-Disposition", "form-data; name=\"" + spec.name +
                                             "\"",
-                                    "Content-Transfer-Encoding", part.encoding());
-
+                                    "Content-Transfer-Encoding", spec.transferEncoding);
+                    Class<?> rawParameterType = Utils.getRawType(parameterType);
                     if (Iterable.class.isAssignableFrom(rawParameterType)) {
-                        if (!(parameterType instanceof ParameterizedType)) {
-                            throw parameterError(p, rawParameterType.getSimpleName()
-                                    + " must include generic type (e.g., "
-                                    + rawParameterType.getSimpleName()
-                                    + "<String>)");
-                        }
-                        ParameterizedType parameterizedType = (ParameterizedType) parameterType;
-                        Type iterableType = Utils.getParameterUpperBound(0, parameterizedType);
+                        Type iterableType = iterableType(p, parameterType, rawParameterType);
                         if (MultipartBody.Part.class.isAssignableFrom(Utils.getRawType
                                 (iterableType))) {
                             throw parameterError(p, "@Part parameters using the MultipartBody" +
@@ -562,63 +752,58 @@ public class ServiceMethod<R, T> {
                         return new ParameterHandler.Part<>(headers, converter);
                     }
                 }
-
-            } else if (annotation instanceof PartMap) {
-                if (!isMultipart) {
-                    throw parameterError(p, "@PartMap parameters can only be used with multipart " +
-                            "encoding.");
-                }
-                gotPart = true;
-                Class<?> rawParameterType = Utils.getRawType(parameterType);
-                if (!Map.class.isAssignableFrom(rawParameterType)) {
-                    throw parameterError(p, "@PartMap parameter type must be Map.");
-                }
-                Type mapType = Utils.getSupertype(parameterType, rawParameterType, Map.class);
-                if (!(mapType instanceof ParameterizedType)) {
-                    throw parameterError(p, "Map must include generic types (e.g., Map<String, " +
-                            "String>)");
-                }
-                ParameterizedType parameterizedType = (ParameterizedType) mapType;
-
-                Type keyType = Utils.getParameterUpperBound(0, parameterizedType);
-                if (String.class != keyType) {
-                    throw parameterError(p, "@PartMap keys must be of type String: " + keyType);
-                }
-
-                Type valueType = Utils.getParameterUpperBound(1, parameterizedType);
-                if (MultipartBody.Part.class.isAssignableFrom(Utils.getRawType(valueType))) {
-                    throw parameterError(p, "@PartMap values cannot be MultipartBody.Part. "
-                            + "Use @Part List<Part> or a different value type instead.");
-                }
-
-                Converter<?, RequestBody> valueConverter =
-                        retrofit.requestBodyConverter(valueType, annotations, methodAnnotations);
-
-                PartMap partMap = (PartMap) annotation;
-                return new ParameterHandler.PartMap<>(valueConverter, partMap.encoding());
-            //如果使用默认的requestBodyConverter  只能使用requestBody上传对象
-            } else if (annotation instanceof Body) {
-                if (isFormEncoded || isMultipart) {
-                    throw parameterError(p,
-                            "@Body parameters cannot be used with form or multi-part encoding.");
-                }
-                if (gotBody) {
-                    throw parameterError(p, "Multiple @Body method annotations found.");
-                }
-
-                Converter<?, RequestBody> converter;
-                try {
-                    converter = retrofit.requestBodyConverter(parameterType, annotations, methodAnnotations);
-                } catch (RuntimeException e) {
-                    // Wide exception range because factories are user code.
-                    throw parameterError(e, p, "Unable to create @Body converter for %s", parameterTypes);
+                case PART_MAP: {
+                    Type valueType = mapValueType(p, parameterType, "@PartMap");
+                    if (MultipartBody.Part.class.isAssignableFrom(Utils.getRawType(valueType))) {
+                        throw parameterError(p, "@PartMap values cannot be MultipartBody.Part. "
+                                + "Use @Part List<Part> or a different value type instead.");
+                    }
+                    Converter<?, RequestBody> valueConverter =
+                            retrofit.requestBodyConverter(valueType, annotations, methodAnnotations);
+                    return new ParameterHandler.PartMap<>(valueConverter, spec.transferEncoding);
+                }
+                case BODY: {
+                    Converter<?, RequestBody> converter;
+                    try {
+                        converter = retrofit.requestBodyConverter(parameterType, annotations, methodAnnotations);
+                    } catch (RuntimeException e) {
+                        // Wide exception range because factories are user code.
+                        throw parameterError(e, p, "Unable to create @Body converter for %s", parameterType);
+                    }
+                    return new ParameterHandler.Body<>(converter);
                 }
-                gotBody = true;
-                return new ParameterHandler.Body<>(converter);
+                default:
+                    throw new AssertionError(spec.kind);
             }
+        }
 
-            return null; // Not a Retrofit annotation.
+        private Type iterableType(int p, Type parameterType, Class<?> rawParameterType) {
+            if (!(parameterType instanceof ParameterizedType)) {
+                throw parameterError(p, rawParameterType.getSimpleName()
+                        + " must include generic type (e.g., "
+                        + rawParameterType.getSimpleName()
+                        + "<String>)");
+            }
+            return Utils.getParameterUpperBound(0, (ParameterizedType) parameterType);
+        }
 
+        /** Validates a {@code Map<String, V>} parameter and returns {@code V}. */
+        private Type mapValueType(int p, Type parameterType, String annotationName) {
+            Class<?> rawParameterType = Utils.getRawType(parameterType);
+            if (!Map.class.isAssignableFrom(rawParameterType)) {
+                throw parameterError(p, annotationName + " parameter type must be Map.");
+            }
+            Type mapType = Utils.getSupertype(parameterType, rawParameterType, Map.class);
+            if (!(mapType instanceof ParameterizedType)) {
+                throw parameterError(p, "Map must include generic types (e.g., Map<String, " +
+                        "String>)");
+            }
+            ParameterizedType parameterizedType = (ParameterizedType) mapType;
+            Type keyType = Utils.getParameterUpperBound(0, parameterizedType);
+            if (String.class != keyType) {
+                throw parameterError(p, annotationName + " keys must be of type String: " + keyType);
+            }
+            return Utils.getParameterUpperBound(1, parameterizedType);
         }
 
         private void validatePathName(int p, String name) {
@@ -658,6 +843,7 @@ public class ServiceMethod<R, T> {
                 if (headersToParse.length == 0) {
                     throw methodError("@Headers annotation is empty.");
                 }
+                headers = parseHeaders(headersToParse);
             } else if (annotation instanceof Multipart) {
                 if (isFormEncoded) {
                     throw methodError("Only one encoding annotation is allowed.");
@@ -671,6 +857,30 @@ public class ServiceMethod<R, T> {
             }
         }
 
+        private Headers parseHeaders(String[] headers) {
+            Headers.Builder builder = new Headers.Builder();
+            for (String header : headers) {
+                int colon = header.indexOf(':');
+                if (colon == -1 || colon == 0 || colon == header.length() - 1) {
+                    throw methodError(
+                            "@Headers value must be in the form \"Name: Value\". Found: \"%s\"", header);
+                }
+                String headerName = header.substring(0, colon);
+                String headerValue = header.substring(colon + 1).trim();
+                //Content-Type 单独保存，请求时交给 RequestBody
+                if ("Content-Type".equalsIgnoreCase(headerName)) {
+                    MediaType type = MediaType.parse(headerValue);
+                    if (type == null) {
+                        throw methodError("Malformed content type: %s", headerValue);
+                    }
+                    contentType = type;
+                } else {
+                    builder.add(headerName, headerValue);
+                }
+            }
+            return builder.build();
+        }
+
 
         private void parseHttpMethodAndPath(String httpMethod, String value, boolean hasBody) {
             if (this.httpMethod != null) {
@@ -691,6 +901,7 @@ public class ServiceMethod<R, T> {
                 }
             }
             this.relativeUrl = value;
+            this.urlTemplate = UrlTemplate.compile(value);
             //todo 解析出地址中的参数 {xx} （?之前的）
             this.relativeUrlParamNames = parsePathParameters(value);
 
@@ -0,0 +1,119 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/03
+ *     desc   : 按方法缓存 ServiceMethod，不同方法可以并发解析，只有同一个方法的调用者才会互相等待
+ * </pre>
+ */
+final class ServiceMethodCache {
+    private final ConcurrentMap<Method, FutureTask<ServiceMethod<?, ?>>> cache =
+            new ConcurrentHashMap<>();
+    private final AtomicLong waitCount = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    ServiceMethod<?, ?> get(final Retrofit retrofit, final Method method) {
+        FutureTask<ServiceMethod<?, ?>> task = cache.get(method);
+        if (task == null) {
+            FutureTask<ServiceMethod<?, ?>> newTask = new FutureTask<>(
+                    new Callable<ServiceMethod<?, ?>>() {
+                        @Override
+                        public ServiceMethod<?, ?> call() {
+                            return retrofit.parseServiceMethod(method);
+                        }
+                    });
+            task = cache.putIfAbsent(method, newTask);
+            if (task == null) {
+                //抢到的线程在自己的线程里解析，其他线程只等待这一个方法
+                task = newTask;
+                newTask.run();
+            }
+        }
+        if (task.isDone()) {
+            return getDone(method, task);
+        }
+        long start = System.nanoTime();
+        try {
+            return getDone(method, task);
+        } finally {
+            waitCount.incrementAndGet();
+            waitNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private ServiceMethod<?, ?> getDone(Method method, FutureTask<ServiceMethod<?, ?>> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    // Forget the failure so the next caller parses again and sees the same error.
+                    cache.remove(method, task);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The parsed {@code method}, or null while nobody asked for it, while it is being parsed and
+     * after its parse failed. Never blocks and never throws the parse error.
+     */
+    @Nullable
+    ServiceMethod<?, ?> getIfLoaded(Method method) {
+        FutureTask<ServiceMethod<?, ?>> task = cache.get(method);
+        if (task == null || !task.isDone()) {
+            return null;
+        }
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            // A done task returns without waiting, so this is not expected.
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /** True once {@code method} has been parsed successfully. */
+    boolean contains(Method method) {
+        return getIfLoaded(method) != null;
+    }
+
+    /** Number of lookups that had to wait for another thread to finish parsing the method. */
+    long waitCount() {
+        return waitCount.get();
+    }
+
+    /** Total time spent by those lookups waiting, in nanoseconds. */
+    long waitNanos() {
+        return waitNanos.get();
+    }
+}
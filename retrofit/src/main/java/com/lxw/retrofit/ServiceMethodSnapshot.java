@@ -0,0 +1,232 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/04
+ *     desc   : 把方法注解的解析结果保存到文件，下次启动时直接读取，只需重新绑定转换器和 CallAdapter
+ * </pre>
+ */
+public final class ServiceMethodSnapshot {
+    private static final int MAGIC = 0x52534d53; // "RSMS"
+    private static final int VERSION = 1;
+    private static final Object INVALID = new Object();
+
+    private final Map<String, ServiceEntry> services;
+    /** Service class to its entry once the interface hash matched, or {@link #INVALID}. */
+    private final ConcurrentMap<Class<?>, Object> checked = new ConcurrentHashMap<>();
+
+    private ServiceMethodSnapshot(Map<String, ServiceEntry> services) {
+        this.services = services;
+    }
+
+    /**
+     * Parses every method of {@code services} with {@code retrofit} and records the result. Any
+     * validation error is thrown here, as {@link Retrofit#create} with eager validation would.
+     */
+    public static ServiceMethodSnapshot capture(Retrofit retrofit, Class<?>... services) {
+        Map<String, ServiceEntry> entries = new LinkedHashMap<>();
+        for (Class<?> service : services) {
+            Utils.validateServiceInterface(service);
+            Map<String, MethodMetadata> methods = new LinkedHashMap<>();
+            for (Method method : sortedMethods(service)) {
+                methods.put(methodKey(method), retrofit.loadServiceMethod(method).metadata);
+            }
+            entries.put(service.getName(), new ServiceEntry(serviceHash(service), methods));
+        }
+        return new ServiceMethodSnapshot(Collections.unmodifiableMap(entries));
+    }
+
+    /**
+     * Reads a snapshot written by {@link #write}. A missing or corrupt file throws; callers
+     * should then build the {@link Retrofit} without a snapshot.
+     */
+    public static ServiceMethodSnapshot read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a service method snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            int serviceCount = in.readInt();
+            Map<String, ServiceEntry> entries = new LinkedHashMap<>();
+            for (int s = 0; s < serviceCount; s++) {
+                String serviceName = in.readUTF();
+                long hash = in.readLong();
+                int methodCount = in.readInt();
+                Map<String, MethodMetadata> methods = new LinkedHashMap<>();
+                for (int m = 0; m < methodCount; m++) {
+                    methods.put(in.readUTF(), MethodMetadata.read(in));
+                }
+                entries.put(serviceName, new ServiceEntry(hash, methods));
+            }
+            return new ServiceMethodSnapshot(Collections.unmodifiableMap(entries));
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Writes the snapshot to a temporary file and renames it over {@code file}. */
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(services.size());
+            for (Map.Entry<String, ServiceEntry> service : services.entrySet()) {
+                out.writeUTF(service.getKey());
+                out.writeLong(service.getValue().hash);
+                Map<String, MethodMetadata> methods = service.getValue().methods;
+                out.writeInt(methods.size());
+                for (Map.Entry<String, MethodMetadata> method : methods.entrySet()) {
+                    out.writeUTF(method.getKey());
+                    method.getValue().write(out);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            file.delete();
+            if (!temp.renameTo(file)) {
+                throw new IOException("Unable to rename " + temp + " to " + file);
+            }
+        }
+    }
+
+    /** Number of service interfaces recorded in this snapshot. */
+    public int serviceCount() {
+        return services.size();
+    }
+
+    /**
+     * Returns the recorded metadata for {@code method}, or null if the snapshot does not cover it
+     * or its interface changed since the snapshot was captured.
+     */
+    @Nullable
+    MethodMetadata metadata(Method method) {
+        Class<?> service = method.getDeclaringClass();
+        Object entry = checked.get(service);
+        if (entry == null) {
+            ServiceEntry recorded = services.get(service.getName());
+            entry = recorded != null && recorded.hash == serviceHash(service) ? recorded : INVALID;
+            checked.put(service, entry);
+        }
+        if (entry == INVALID) {
+            return null;
+        }
+        return ((ServiceEntry) entry).methods.get(methodKey(method));
+    }
+
+    private static Method[] sortedMethods(Class<?> service) {
+        Method[] methods = service.getDeclaredMethods();
+        Arrays.sort(methods, new Comparator<Method>() {
+            @Override
+            public int compare(Method a, Method b) {
+                return methodKey(a).compareTo(methodKey(b));
+            }
+        });
+        return methods;
+    }
+
+    private static String methodKey(Method method) {
+        StringBuilder builder = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(parameterTypes[i].getName());
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * 64-bit FNV-1a over the generic signature of every method, mixed with the CRC32 of the class
+     * file where the class loader can serve it. Annotations are not parsed for this. On Android,
+     * where class files cannot be read, a change to annotations alone is not seen: capture a new
+     * snapshot for each app version.
+     */
+    static long serviceHash(Class<?> service) {
+        long hash = 0xcbf29ce484222325L;
+        for (Method method : sortedMethods(service)) {
+            hash = fnv(hash, method.toGenericString());
+        }
+        long crc = classFileCrc(service);
+        if (crc != -1) {
+            hash = fnv(hash, Long.toHexString(crc));
+        }
+        return hash;
+    }
+
+    /** The CRC32 of {@code service}'s class file, or -1 if it cannot be read. */
+    private static long classFileCrc(Class<?> service) {
+        ClassLoader loader = service.getClassLoader();
+        InputStream in = loader != null
+                ? loader.getResourceAsStream(service.getName().replace('.', '/') + ".class")
+                : null;
+        if (in == null) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try {
+            try {
+                for (int read; (read = in.read(buffer)) != -1; ) {
+                    crc.update(buffer, 0, read);
+                }
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        return crc.getValue();
+    }
+
+    private static long fnv(long hash, String value) {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class ServiceEntry {
+        final long hash;
+        final Map<String, MethodMetadata> methods;
+
+        ServiceEntry(long hash, Map<String, MethodMetadata> methods) {
+            this.hash = hash;
+            this.methods = methods;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/03
+ *     desc   : 并行预解析 service 接口的所有方法，可以在后台运行并等待，完成后给出每个方法的耗时报告
+ * </pre>
+ */
+public final class ServiceMethodWarmup {
+    private final Class<?> service;
+    private final Method[] methods;
+    private final MethodTiming[] timings;
+    private final AtomicInteger remaining;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final long startNanos;
+    private volatile long endNanos;
+
+    ServiceMethodWarmup(Class<?> service, Method[] methods) {
+        this.service = service;
+        this.methods = methods;
+        this.timings = new MethodTiming[methods.length];
+        this.remaining = new AtomicInteger(methods.length);
+        this.startNanos = System.nanoTime();
+        if (methods.length == 0) {
+            endNanos = startNanos;
+            done.countDown();
+        }
+    }
+
+    static ServiceMethodWarmup start(final Retrofit retrofit, Class<?> service,
+                                     @Nullable Executor executor) {
+        final ServiceMethodWarmup warmup =
+                new ServiceMethodWarmup(service, service.getDeclaredMethods());
+        final ExecutorService ownedExecutor = executor == null && warmup.methods.length > 0
+                ? newDefaultExecutor(warmup.methods.length) : null;
+        Executor target = ownedExecutor != null ? ownedExecutor : executor;
+        for (int i = 0; i < warmup.methods.length; i++) {
+            final int index = i;
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    warmup.load(retrofit, index);
+                    if (ownedExecutor != null && warmup.isDone()) {
+                        ownedExecutor.shutdown();
+                    }
+                }
+            };
+            try {
+                target.execute(task);
+            } catch (RejectedExecutionException e) {
+                // A saturated caller executor should slow warm-up down, not lose methods.
+                task.run();
+            }
+        }
+        return warmup;
+    }
+
+    private static ExecutorService newDefaultExecutor(int methodCount) {
+        int threads = Math.max(1,
+                Math.min(methodCount, Runtime.getRuntime().availableProcessors()));
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Retrofit warmup " + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private void load(Retrofit retrofit, int index) {
+        Method method = methods[index];
+        try {
+            boolean cached = retrofit.isServiceMethodLoaded(method);
+            ServiceMethod<?, ?> serviceMethod = retrofit.loadServiceMethod(method);
+            timings[index] = new MethodTiming(method, cached, serviceMethod.callAdapterNanos,
+                    serviceMethod.converterNanos, serviceMethod.parameterNanos);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (remaining.decrementAndGet() == 0) {
+                endNanos = System.nanoTime();
+                done.countDown();
+            }
+        }
+    }
+
+    public Class<?> service() {
+        return service;
+    }
+
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    /**
+     * Blocks until every method has been parsed.
+     *
+     * @throws IllegalArgumentException the first validation error, as eager validation would.
+     */
+    public Report await() throws InterruptedException {
+        done.await();
+        return report();
+    }
+
+    public Report await(long timeout, TimeUnit unit)
+            throws InterruptedException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException("Warmup of " + service.getName() + " not finished after "
+                    + timeout + " " + unit);
+        }
+        return report();
+    }
+
+    private Report report() {
+        RuntimeException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+        List<MethodTiming> entries = new ArrayList<>(timings.length);
+        Collections.addAll(entries, timings);
+        return new Report(service, Collections.unmodifiableList(entries), endNanos - startNanos);
+    }
+
+    /** Build times for every method of one service interface. */
+    public static final class Report {
+        private final Class<?> service;
+        private final List<MethodTiming> methods;
+        private final long elapsedNanos;
+
+        Report(Class<?> service, List<MethodTiming> methods, long elapsedNanos) {
+            this.service = service;
+            this.methods = methods;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Class<?> service() {
+            return service;
+        }
+
+        public List<MethodTiming> methods() {
+            return methods;
+        }
+
+        /** Wall-clock time from the start of the warm-up until the last method was parsed. */
+        public long elapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /** Sum of the per-method build times, i.e. what a sequential warm-up would have taken. */
+        public long totalBuildNanos() {
+            long total = 0;
+            for (MethodTiming timing : methods) {
+                total += timing.totalNanos();
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("Warmup of ")
+                    .append(service.getName())
+                    .append(": ")
+                    .append(methods.size())
+                    .append(" methods in ")
+                    .append(TimeUnit.NANOSECONDS.toMicros(elapsedNanos))
+                    .append("us (")
+                    .append(TimeUnit.NANOSECONDS.toMicros(totalBuildNanos()))
+                    .append("us of parsing)");
+            for (MethodTiming timing : methods) {
+                builder.append("\n   * ").append(timing);
+            }
+            return builder.toString();
+        }
+    }
+
+    /** How long one method took to build, split by phase. */
+    public static final class MethodTiming {
+        private final Method method;
+        private final boolean cached;
+        private final long callAdapterNanos;
+        private final long converterNanos;
+        private final long parameterNanos;
+
+        MethodTiming(Method method, boolean cached, long callAdapterNanos, long converterNanos,
+                     long parameterNanos) {
+            this.method = method;
+            this.cached = cached;
+            this.callAdapterNanos = callAdapterNanos;
+            this.converterNanos = converterNanos;
+            this.parameterNanos = parameterNanos;
+        }
+
+        public Method method() {
+            return method;
+        }
+
+        /** True if the method had already been parsed before this warm-up started. */
+        public boolean cached() {
+            return cached;
+        }
+
+        public long callAdapterNanos() {
+            return callAdapterNanos;
+        }
+
+        /** Time spent locating the response body converter. */
+        public long converterNanos() {
+            return converterNanos;
+        }
+
+        /** Time spent parsing parameter annotations, including their converters. */
+        public long parameterNanos() {
+            return parameterNanos;
+        }
+
+        public long totalNanos() {
+            return callAdapterNanos + converterNanos + parameterNanos;
+        }
+
+        @Override
+        public String toString() {
+            return method.getName()
+                    + ": adapter=" + TimeUnit.NANOSECONDS.toMicros(callAdapterNanos) + "us"
+                    + ", converter=" + TimeUnit.NANOSECONDS.toMicros(converterNanos) + "us"
+                    + ", parameters=" + TimeUnit.NANOSECONDS.toMicros(parameterNanos) + "us"
+                    + (cached ? " (cached)" : "");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/05
+ *     desc   : 跨 Retrofit 实例共享的方法解析结果，newBuilder() 出来的实例只需绑定自己的 baseUrl 和 callFactory
+ * </pre>
+ */
+final class SharedServiceMethods {
+    private final ConcurrentMap<Key, ServiceMethod<?, ?>> parsed = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a method parsed by any instance with the same converter and call adapter factories,
+     * or null if none has parsed it yet.
+     */
+    @Nullable
+    ServiceMethod<?, ?> get(Method method, List<Converter.Factory> converterFactories,
+                            List<CallAdapter.Factory> callAdapterFactories) {
+        return parsed.get(new Key(method, converterFactories, callAdapterFactories));
+    }
+
+    /** Stores {@code serviceMethod} unless another instance won the race, and returns the winner. */
+    ServiceMethod<?, ?> putIfAbsent(Method method, List<Converter.Factory> converterFactories,
+                                    List<CallAdapter.Factory> callAdapterFactories,
+                                    ServiceMethod<?, ?> serviceMethod) {
+        ServiceMethod<?, ?> existing = parsed.putIfAbsent(
+                new Key(method, converterFactories, callAdapterFactories), serviceMethod);
+        return existing != null ? existing : serviceMethod;
+    }
+
+    /**
+     * Converters and call adapters are chosen by the factory lists alone, so two instances whose
+     * lists are equal resolve every method identically.
+     */
+    private static final class Key {
+        private final Method method;
+        private final List<Converter.Factory> converterFactories;
+        private final List<CallAdapter.Factory> callAdapterFactories;
+        private final int hashCode;
+
+        Key(Method method, List<Converter.Factory> converterFactories,
+            List<CallAdapter.Factory> callAdapterFactories) {
+            this.method = method;
+            this.converterFactories = converterFactories;
+            this.callAdapterFactories = callAdapterFactories;
+            int result = method.hashCode();
+            result = 31 * result + converterFactories.hashCode();
+            result = 31 * result + callAdapterFactories.hashCode();
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hashCode == other.hashCode
+                    && method.equals(other.method)
+                    && converterFactories.equals(other.converterFactories)
+                    && callAdapterFactories.equals(other.callAdapterFactories);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
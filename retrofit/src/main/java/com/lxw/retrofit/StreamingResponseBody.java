@@ -0,0 +1,112 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/08
+ *     desc   : @Streaming 方法返回的响应体，直接读 socket 不做缓存，调用方负责关闭；未关闭就被回收的会计入泄漏并关闭连接
+ * </pre>
+ */
+public final class StreamingResponseBody extends ResponseBody {
+    private static final ReferenceQueue<StreamingResponseBody> QUEUE = new ReferenceQueue<>();
+    /** Keeps the references reachable until their body is closed or found leaked. */
+    private static final Set<LeakReference> OPEN =
+            Collections.newSetFromMap(new ConcurrentHashMap<LeakReference, Boolean>());
+    private static final AtomicLong LEAKED = new AtomicLong();
+
+    private final ResponseBody delegate;
+    private final LeakReference reference;
+    private @Nullable
+    BufferedSource source;
+
+    StreamingResponseBody(ResponseBody delegate) {
+        reapLeaked();
+        this.delegate = delegate;
+        this.reference = new LeakReference(this, delegate);
+        OPEN.add(reference);
+    }
+
+    /** Number of streaming bodies that were garbage collected without being closed. */
+    public static long leakedCount() {
+        reapLeaked();
+        return LEAKED.get();
+    }
+
+    /** Number of streaming bodies handed out and not yet closed. */
+    public static int openCount() {
+        reapLeaked();
+        return OPEN.size();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() {
+        return delegate.contentLength();
+    }
+
+    /**
+     * The returned source, and streams built on it, keep this body reachable, so a caller that
+     * only holds on to {@link #byteStream()} is not reported as a leak.
+     */
+    @Override
+    public synchronized BufferedSource source() {
+        if (source == null) {
+            source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() {
+                    StreamingResponseBody.this.close();
+                }
+            });
+        }
+        return source;
+    }
+
+    @Override
+    public void close() {
+        if (OPEN.remove(reference)) {
+            reference.clear();
+        }
+        delegate.close();
+    }
+
+    private static void reapLeaked() {
+        Reference<? extends StreamingResponseBody> reference;
+        while ((reference = QUEUE.poll()) != null) {
+            LeakReference leaked = (LeakReference) reference;
+            if (OPEN.remove(leaked)) {
+                LEAKED.incrementAndGet();
+                leaked.delegate.close();
+            }
+        }
+    }
+
+    private static final class LeakReference extends PhantomReference<StreamingResponseBody> {
+        final ResponseBody delegate;
+
+        LeakReference(StreamingResponseBody referent, ResponseBody delegate) {
+            super(referent, QUEUE);
+            this.delegate = delegate;
+        }
+    }
+}
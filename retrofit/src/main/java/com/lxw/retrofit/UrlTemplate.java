@@ -0,0 +1,108 @@
+package com.lxw.retrofit;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/06
+ *     desc   : 预编译的相对地址模板，按 字面量/占位符 分段，请求时一次拼接出路径，不再逐个 String.replace
+ * </pre>
+ */
+final class UrlTemplate {
+    private static final Pattern PARAM_URL_REGEX =
+            Pattern.compile("\\{([a-zA-Z][a-zA-Z0-9_-]*)\\}");
+
+    /** One more literal than placeholders; literal i comes before placeholder i. */
+    private final String[] literals;
+    /** Slot of each placeholder, in the order they appear in the URL. */
+    private final int[] placeholderSlots;
+    /** Distinct placeholder names, indexed by slot. */
+    private final String[] names;
+    private final int literalLength;
+
+    private UrlTemplate(String[] literals, int[] placeholderSlots, String[] names) {
+        this.literals = literals;
+        this.placeholderSlots = placeholderSlots;
+        this.names = names;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    static UrlTemplate compile(String relativeUrl) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        Matcher matcher = PARAM_URL_REGEX.matcher(relativeUrl);
+        int last = 0;
+        while (matcher.find()) {
+            literals.add(relativeUrl.substring(last, matcher.start()));
+            String name = matcher.group(1);
+            int slot = names.indexOf(name);
+            if (slot == -1) {
+                slot = names.size();
+                names.add(name);
+            }
+            slots.add(slot);
+            last = matcher.end();
+        }
+        literals.add(relativeUrl.substring(last));
+        int[] placeholderSlots = new int[slots.size()];
+        for (int i = 0; i < placeholderSlots.length; i++) {
+            placeholderSlots[i] = slots.get(i);
+        }
+        return new UrlTemplate(literals.toArray(new String[literals.size()]), placeholderSlots,
+                names.toArray(new String[names.size()]));
+    }
+
+    /** Number of distinct placeholder names. */
+    int slotCount() {
+        return names.length;
+    }
+
+    /** Returns the slot of {@code name}, or -1 if the URL has no such placeholder. */
+    int slot(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Assembles the relative URL from already canonicalized slot values. A placeholder without a
+     * value is kept verbatim, as {@code String.replace} would have left it.
+     */
+    String expand(@Nullable String[] values) {
+        if (placeholderSlots.length == 0) {
+            return literals[0];
+        }
+        int length = literalLength;
+        for (int slot : placeholderSlots) {
+            length += values[slot] != null ? values[slot].length() : names[slot].length() + 2;
+        }
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(literals[0]);
+        for (int i = 0; i < placeholderSlots.length; i++) {
+            int slot = placeholderSlots[i];
+            String value = values[slot];
+            if (value != null) {
+                builder.append(value);
+            } else {
+                builder.append('{').append(names[slot]).append('}');
+            }
+            builder.append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+}
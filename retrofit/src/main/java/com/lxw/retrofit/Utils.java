@@ -80,6 +80,18 @@ public final class Utils {
         return paramType;
     }
 
+    /**
+     * Name of the class the retrofit compiler generates for {@code service}: the binary name with
+     * nesting separators flattened, e.g. {@code SimpleService$GitHub} becomes
+     * {@code SimpleService_GitHub_Impl} in the same package.
+     */
+    static String generatedServiceName(Class<?> service) {
+        String name = service.getName();
+        int lastDot = name.lastIndexOf('.');
+        String packagePrefix = lastDot == -1 ? "" : name.substring(0, lastDot + 1);
+        return packagePrefix + name.substring(lastDot + 1).replace('$', '_') + "_Impl";
+    }
+
     public static <T> void validateServiceInterface(Class<T> service) {
         if (!service.isInterface()) {
             throw new IllegalArgumentException("API declarations must be interfaces.");
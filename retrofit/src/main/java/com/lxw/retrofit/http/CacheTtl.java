@@ -0,0 +1,30 @@
+package com.lxw.retrofit.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/13
+ *     desc   : 转换后的响应对象在 ConvertedResponseCache 中的有效期，过期后带 ETag/Last-Modified 重新校验
+ * </pre>
+ *
+ * Only for {@link GET} methods, and only when the Retrofit instance has a
+ * {@link com.lxw.retrofit.ConvertedResponseCache} or a {@link com.lxw.retrofit.DiskResponseCache}.
+ * Cached bodies are handed to every caller, so they should not be mutated.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface CacheTtl {
+    long value();
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+}
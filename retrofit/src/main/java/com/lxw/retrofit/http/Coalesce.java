@@ -0,0 +1,26 @@
+package com.lxw.retrofit.http;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/12
+ *     desc   : 合并同时进行的相同请求：方法、URL 和请求头都相同的调用共用一次网络交换和同一个转换结果
+ * </pre>
+ *
+ * Only for {@link GET} and {@link HEAD} methods whose body is not streamed. Callers share the
+ * converted body, so it should not be mutated. Canceling one call detaches it from the shared
+ * exchange, which is only canceled once every call waiting on it is.
+ */
+@Documented
+@Target(METHOD)
+@Retention(RUNTIME)
+public @interface Coalesce {
+}
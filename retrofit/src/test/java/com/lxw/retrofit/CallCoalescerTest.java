@@ -0,0 +1,209 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.Coalesce;
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.Query;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/12
+ *     desc   : @Coalesce 的单飞合并、单个调用取消不影响其它等待者、全部取消时取消交换，以及每个等待者各自一份响应体
+ * </pre>
+ */
+public class CallCoalescerTest {
+    private static final int CALLERS = 5;
+
+    interface Service {
+        @Coalesce
+        @GET("/")
+        Call<ResponseBody> get(@Query("q") String q);
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final GateDispatcher dispatcher = new GateDispatcher();
+    //每个 OkHttpCall 都会创建自己的 okhttp3.Call，只有第一个调用的那个真正发出
+    private final List<okhttp3.Call> rawCalls = new CopyOnWriteArrayList<>();
+    private Retrofit retrofit;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(dispatcher);
+        server.start();
+        final OkHttpClient client = new OkHttpClient();
+        retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .callFactory(new okhttp3.Call.Factory() {
+                    @Override
+                    public okhttp3.Call newCall(Request request) {
+                        okhttp3.Call call = client.newCall(request);
+                        rawCalls.add(call);
+                        return call;
+                    }
+                })
+                .build();
+        service = retrofit.create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        dispatcher.release.countDown();
+        server.shutdown();
+    }
+
+    @Test
+    public void identicalCallsShareOneExchange() throws Exception {
+        List<RecordingCallback> callbacks = enqueue(CALLERS, "a");
+        dispatcher.awaitArrival();
+        dispatcher.release.countDown();
+
+        for (RecordingCallback callback : callbacks) {
+            // Every caller reads its own copy of the one body.
+            assertEquals("hello", callback.await());
+        }
+        assertEquals(1, server.getRequestCount());
+        CoalescingStats stats = retrofit.coalescingStats(Service.class).get(0);
+        assertEquals(1, stats.exchangeCount());
+        assertEquals(CALLERS - 1, stats.coalescedCount());
+        assertEquals(0.8d, stats.dedupRatio(), 1e-9);
+    }
+
+    @Test
+    public void differentRequestsAreNotCoalesced() throws Exception {
+        dispatcher.release.countDown();
+        RecordingCallback a = enqueue(1, "a").get(0);
+        RecordingCallback b = enqueue(1, "b").get(0);
+
+        assertEquals("hello", a.await());
+        assertEquals("hello", b.await());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, retrofit.coalescingStats(Service.class).get(0).exchangeCount());
+    }
+
+    @Test
+    public void cancelingOneCallerLeavesTheOthersWaiting() throws Exception {
+        List<Call<ResponseBody>> calls = new ArrayList<>();
+        List<RecordingCallback> callbacks = enqueue(CALLERS, "a", calls);
+        dispatcher.awaitArrival();
+
+        // The first caller is the one whose call was sent.
+        calls.get(0).cancel();
+        assertEquals("Canceled", callbacks.get(0).await());
+        assertFalse(rawCalls.get(0).isCanceled());
+        dispatcher.release.countDown();
+
+        for (RecordingCallback callback : callbacks.subList(1, CALLERS)) {
+            assertEquals("hello", callback.await());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void cancelingEveryCallerCancelsTheExchange() throws Exception {
+        List<Call<ResponseBody>> calls = new ArrayList<>();
+        List<RecordingCallback> callbacks = enqueue(CALLERS, "a", calls);
+        dispatcher.awaitArrival();
+
+        for (int i = 0; i < CALLERS - 1; i++) {
+            calls.get(i).cancel();
+            assertFalse(rawCalls.get(0).isCanceled());
+        }
+        calls.get(CALLERS - 1).cancel();
+
+        assertTrue(rawCalls.get(0).isCanceled());
+        for (RecordingCallback callback : callbacks) {
+            assertEquals("Canceled", callback.await());
+        }
+
+        // The canceled exchange is gone, so the next call starts a new one.
+        dispatcher.release.countDown();
+        assertEquals("hello", enqueue(1, "a").get(0).await());
+        assertEquals(2, server.getRequestCount());
+        assertEquals(2, retrofit.coalescingStats(Service.class).get(0).exchangeCount());
+    }
+
+    private List<RecordingCallback> enqueue(int count, String q) {
+        return enqueue(count, q, new ArrayList<Call<ResponseBody>>());
+    }
+
+    private List<RecordingCallback> enqueue(int count, String q, List<Call<ResponseBody>> calls) {
+        List<RecordingCallback> callbacks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Call<ResponseBody> call = service.get(q);
+            RecordingCallback callback = new RecordingCallback();
+            calls.add(call);
+            callbacks.add(callback);
+            call.enquue(callback);
+        }
+        return callbacks;
+    }
+
+    /** Holds every request until {@link #release} opens. */
+    static final class GateDispatcher extends Dispatcher {
+        final CountDownLatch arrived = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            arrived.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return new MockResponse().setBody("hello");
+        }
+
+        void awaitArrival() throws InterruptedException {
+            assertTrue(arrived.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /** The body as a string, or the failure message. */
+    static final class RecordingCallback implements Callback<ResponseBody> {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile String result;
+
+        @Override
+        public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+            try {
+                result = response.body().string();
+            } catch (IOException e) {
+                result = e.toString();
+            }
+            latch.countDown();
+        }
+
+        @Override
+        public void onFailure(Call<ResponseBody> call, Throwable t) {
+            result = t.getMessage();
+            latch.countDown();
+        }
+
+        String await() throws InterruptedException {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/14
+ *     desc   : 对 100ms 的本地接口并发 enquue，比较 OkHttp 默认调度器与 callExecutor 的并发数和耗时
+ * </pre>
+ *
+ * 50 calls keep this fast enough for every build; CallExecutorThroughput runs 10,000 at once.
+ */
+public class CallExecutorLoadTest {
+    private static final int CALLS = 50;
+    private static final long LATENCY_MILLIS = 100;
+
+    interface Service {
+        @GET("/")
+        Call<Void> get();
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        // MockWebServer serves each connection on its own thread, so slow responses overlap.
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                int current = inFlight.incrementAndGet();
+                for (int max; current > (max = maxInFlight.get()); ) {
+                    if (maxInFlight.compareAndSet(max, current)) {
+                        break;
+                    }
+                }
+                try {
+                    Thread.sleep(LATENCY_MILLIS);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                return new MockResponse();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void defaultDispatcherRunsFivePerHost() throws Exception {
+        long millis = enqueueAll(builder());
+
+        // OkHttp's dispatcher allows 5 requests per host, so the calls run in 10 waves.
+        assertEquals(5, maxInFlight.get());
+        assertTrue(millis + " ms", millis >= CALLS / 5 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void callExecutorRunsCallsConcurrently() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            long millis = enqueueAll(builder().callExecutor(executor));
+
+            assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() > 5);
+            // Faster than the dispatcher's 5 per host can possibly be.
+            assertTrue(millis + " ms", millis < CALLS / 5 * LATENCY_MILLIS);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void virtualThreads() throws Exception {
+        Retrofit.Builder builder = builder();
+        try {
+            builder.useVirtualThreads();
+        } catch (IllegalStateException e) {
+            Assume.assumeNoException("No virtual threads on this JVM", e);
+        }
+        long millis = enqueueAll(builder);
+
+        assertTrue("max in flight " + maxInFlight.get(), maxInFlight.get() > 5);
+        assertTrue(millis + " ms", millis < CALLS / 5 * LATENCY_MILLIS);
+    }
+
+    @Test
+    public void virtualThreadsAreAvailableExactlyWhenTheJdkHasThem() {
+        boolean jdkHasThem;
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            jdkHasThem = true;
+        } catch (NoSuchMethodException e) {
+            jdkHasThem = false;
+        }
+
+        assertEquals(jdkHasThem, Platform.get().virtualThreadExecutor() != null);
+        try {
+            builder().useVirtualThreads();
+            assertTrue(jdkHasThem);
+        } catch (IllegalStateException e) {
+            assertFalse(jdkHasThem);
+        }
+    }
+
+    private Retrofit.Builder builder() {
+        return new Retrofit.Builder().baseUrl(server.url("/").toString());
+    }
+
+    /** Enqueues every call at once and returns the milliseconds until the last callback. */
+    private long enqueueAll(Retrofit.Builder builder) throws InterruptedException {
+        Service service = builder.build().create(Service.class);
+        final CountDownLatch latch = new CountDownLatch(CALLS);
+        final AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < CALLS; i++) {
+            service.get().enquue(new Callback<Void>() {
+                @Override
+                public void onResponse(Call<Void> call, Response<Void> response) {
+                    if (!response.isSuccessful()) {
+                        failures.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Call<Void> call, Throwable t) {
+                    failures.incrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(0, failures.get());
+        assertEquals(CALLS, server.getRequestCount());
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,135 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/14
+ *     desc   : 一万个同时发起、各等 2 秒的调用，比较放开限制的 OkHttp 调度器、缓存线程池和虚拟线程的吞吐
+ * </pre>
+ *
+ * Not a unit test; run {@link #main} from the unit test classpath, optionally with the number
+ * of calls as the argument. An interceptor answers every call after {@link #LATENCY_MILLIS}
+ * without a socket, since 10,000 loopback connections need 20,000 file descriptors and a
+ * server thread each. The latency is long so that the first calls still wait while the last
+ * are enqueued; "at once" in the output is how many really overlapped. OkHttp's default dispatcher is left out: at 5 calls per host it needs
+ * {@code calls / 5 * LATENCY_MILLIS} whatever the executor, which CallExecutorLoadTest checks.
+ */
+public class CallExecutorThroughput {
+    private static final int CALLS = 10000;
+    private static final long LATENCY_MILLIS = 2000;
+
+    interface Service {
+        @GET("/")
+        Call<Void> get();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : CALLS;
+
+        Dispatcher unbounded = new Dispatcher();
+        unbounded.setMaxRequests(calls);
+        unbounded.setMaxRequestsPerHost(calls);
+        run("dispatcher", calls, unbounded, builder());
+
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            run("cached pool", calls, new Dispatcher(), builder().callExecutor(pool));
+        } finally {
+            pool.shutdown();
+        }
+
+        Retrofit.Builder virtualThreads = builder();
+        try {
+            virtualThreads.useVirtualThreads();
+        } catch (IllegalStateException e) {
+            System.out.println("virtual threads: not available on this JVM");
+            return;
+        }
+        run("virtual threads", calls, new Dispatcher(), virtualThreads);
+    }
+
+    private static Retrofit.Builder builder() {
+        return new Retrofit.Builder().baseUrl("http://localhost/");
+    }
+
+    private static void run(String name, int calls, Dispatcher dispatcher, Retrofit.Builder builder)
+            throws InterruptedException {
+        LatencyInterceptor latency = new LatencyInterceptor();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .addInterceptor(latency)
+                .build();
+        Service service = builder
+                .callFactory(client)
+                .build()
+                .create(Service.class);
+        final CountDownLatch latch = new CountDownLatch(calls);
+        final AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            service.get().enquue(new Callback<Void>() {
+                @Override
+                public void onResponse(Call<Void> call, Response<Void> response) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Call<Void> call, Throwable t) {
+                    failures.incrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await(10, TimeUnit.MINUTES);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println(name + ": " + calls + " calls in " + millis + " ms, "
+                + calls * 1000L / Math.max(millis, 1) + " calls/s, "
+                + latency.maxInFlight.get() + " at once, " + failures.get() + " failed");
+    }
+
+    /** Answers every request after {@link #LATENCY_MILLIS}, counting how many wait at once. */
+    static final class LatencyInterceptor implements Interceptor {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @Override
+        public okhttp3.Response intercept(Chain chain) throws IOException {
+            int current = inFlight.incrementAndGet();
+            for (int max; current > (max = maxInFlight.get()); ) {
+                if (maxInFlight.compareAndSet(max, current)) {
+                    break;
+                }
+            }
+            try {
+                Thread.sleep(LATENCY_MILLIS);
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted", e);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+            return new okhttp3.Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(null, new byte[0]))
+                    .build();
+        }
+    }
+}
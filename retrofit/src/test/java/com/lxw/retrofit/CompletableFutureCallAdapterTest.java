@@ -0,0 +1,165 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/12
+ *     desc   : CompletableFuture<T> 与 CompletableFuture<Response<T>> 的成功、非 2xx、网络失败和取消传递测试
+ * </pre>
+ */
+public class CompletableFutureCallAdapterTest {
+    interface Service {
+        @GET("/")
+        CompletableFuture<ResponseBody> body();
+
+        @GET("/")
+        CompletableFuture<Response<ResponseBody>> response();
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final List<okhttp3.Call> rawCalls = new CopyOnWriteArrayList<>();
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        final OkHttpClient client = new OkHttpClient();
+        // No call adapter is added: the JVM platform installs the CompletableFuture one.
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .callFactory(new okhttp3.Call.Factory() {
+                    @Override
+                    public okhttp3.Call newCall(Request request) {
+                        okhttp3.Call call = client.newCall(request);
+                        rawCalls.add(call);
+                        return call;
+                    }
+                })
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void bodySuccess() throws Exception {
+        server.enqueue(new MockResponse().setBody("hello"));
+
+        assertEquals("hello", service.body().get(10, TimeUnit.SECONDS).string());
+    }
+
+    @Test
+    public void bodyNotSuccessfulFailsWithHttpException() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("missing"));
+
+        try {
+            service.body().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            HttpException cause = (HttpException) e.getCause();
+            assertEquals(404, cause.code());
+            assertEquals("HTTP 404 Client Error", cause.getMessage());
+            assertEquals("missing", cause.response().errorBody().string());
+        }
+    }
+
+    @Test
+    public void bodyNetworkFailure() throws Exception {
+        server.shutdown();
+
+        try {
+            service.body().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void responseSuccess() throws Exception {
+        server.enqueue(new MockResponse().setBody("hello"));
+
+        Response<ResponseBody> response = service.response().get(10, TimeUnit.SECONDS);
+        assertTrue(response.isSuccessful());
+        assertEquals("hello", response.body().string());
+    }
+
+    @Test
+    public void responseNotSuccessfulCompletesNormally() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404).setBody("missing"));
+
+        Response<ResponseBody> response = service.response().get(10, TimeUnit.SECONDS);
+        assertFalse(response.isSuccessful());
+        assertEquals(404, response.code());
+        assertEquals("missing", response.errorBody().string());
+    }
+
+    @Test
+    public void responseNetworkFailure() throws Exception {
+        server.shutdown();
+
+        try {
+            service.response().get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void cancelingTheFutureCancelsTheCall() throws Exception {
+        server.enqueue(new MockResponse().setHeadersDelay(10, TimeUnit.SECONDS));
+
+        CompletableFuture<ResponseBody> body = service.body();
+        assertTrue(body.cancel(true));
+
+        assertTrue(body.isCancelled());
+        assertTrue(rawCalls.get(0).isCanceled());
+        try {
+            body.get();
+            fail();
+        } catch (CancellationException expected) {
+        }
+    }
+
+    @Test
+    public void cancelingTheResponseFutureCancelsTheCall() throws Exception {
+        server.enqueue(new MockResponse().setHeadersDelay(10, TimeUnit.SECONDS));
+
+        CompletableFuture<Response<ResponseBody>> response = service.response();
+        // The flag does not matter: nothing blocks on the call.
+        assertTrue(response.cancel(false));
+
+        assertTrue(response.isCancelled());
+        assertTrue(rawCalls.get(0).isCanceled());
+    }
+}
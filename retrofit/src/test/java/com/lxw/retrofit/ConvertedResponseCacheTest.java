@@ -0,0 +1,210 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.CacheTtl;
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.Query;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/13
+ *     desc   : ConvertedResponseCache 的新鲜命中、过期后条件请求与 304 复用、按条数 LRU 淘汰和命中率测试
+ * </pre>
+ */
+public class ConvertedResponseCacheTest {
+    private static final String LAST_MODIFIED = "Thu, 13 Sep 2018 00:00:00 GMT";
+
+    interface Service {
+        @CacheTtl(60)
+        @GET("fresh")
+        Call<String> fresh();
+
+        // Expires at once, so every call after the first revalidates.
+        @CacheTtl(0)
+        @GET("stale")
+        Call<String> stale();
+
+        @CacheTtl(60)
+        @GET("item")
+        Call<String> item(@Query("id") int id);
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final CountingConverterFactory converters = new CountingConverterFactory();
+    private ConvertedResponseCache cache;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        cache = ConvertedResponseCache.create(2);
+        service = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .addConverterFactory(converters)
+                .convertedResponseCache(cache)
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void freshEntryIsServedWithoutTheNetwork() throws Throwable {
+        server.enqueue(new MockResponse().setBody("a"));
+
+        String first = service.fresh().execute().body();
+        String second = service.fresh().execute().body();
+
+        assertEquals("a", first);
+        assertSame(first, second);
+        assertEquals(1, server.getRequestCount());
+        assertEquals(1, converters.conversions);
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0, cache.revalidationCount());
+    }
+
+    @Test
+    public void expiredEntryIsRevalidatedAndReusedOnNotModified() throws Throwable {
+        server.enqueue(new MockResponse()
+                .setHeader("ETag", "\"v1\"")
+                .setHeader("Last-Modified", LAST_MODIFIED)
+                .setBody("a"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        String first = service.stale().execute().body();
+        Response<String> second = service.stale().execute();
+
+        assertSame(first, second.body());
+        assertEquals(1, converters.conversions);
+        RecordedRequest plain = server.takeRequest(1, TimeUnit.SECONDS);
+        assertNull(plain.getHeader("If-None-Match"));
+        RecordedRequest conditional = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals("\"v1\"", conditional.getHeader("If-None-Match"));
+        assertEquals(LAST_MODIFIED, conditional.getHeader("If-Modified-Since"));
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.revalidationCount());
+    }
+
+    @Test
+    public void expiredEntryWithoutValidatorIsFetchedAgain() throws Throwable {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setBody("b"));
+
+        assertEquals("a", service.stale().execute().body());
+        assertEquals("b", service.stale().execute().body());
+
+        server.takeRequest(1, TimeUnit.SECONDS);
+        assertNull(server.takeRequest(1, TimeUnit.SECONDS).getHeader("If-None-Match"));
+        assertEquals(2, converters.conversions);
+        assertEquals(2, cache.missCount());
+        assertEquals(0, cache.revalidationCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsEvictedAtMaxEntries() throws Throwable {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody("item"));
+        }
+
+        service.item(1).execute();
+        service.item(2).execute();
+        // Reading 1 makes 2 the eldest, so adding 3 evicts 2.
+        service.item(1).execute();
+        service.item(3).execute();
+        assertEquals(2, cache.size());
+        assertEquals(3, server.getRequestCount());
+
+        service.item(1).execute();
+        service.item(2).execute();
+
+        assertEquals(4, server.getRequestCount());
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.hitCount());
+        assertEquals(4, cache.missCount());
+    }
+
+    @Test
+    public void ratesCountEveryCachedCall() throws Throwable {
+        server.enqueue(new MockResponse().setBody("a"));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody("b"));
+        server.enqueue(new MockResponse().setResponseCode(304));
+
+        service.fresh().execute();
+        service.fresh().execute();
+        service.fresh().execute();
+        service.stale().execute();
+        service.stale().execute();
+
+        // 2 hits, 2 misses and 1 revalidation out of 5 calls.
+        assertEquals(0.4d, cache.hitRate(), 1e-9);
+        assertEquals(0.2d, cache.revalidationRate(), 1e-9);
+        assertEquals("ConvertedResponseCache{size=2, hits=2, misses=2, revalidations=1}",
+                cache.toString());
+
+        cache.evictAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void ratesAreZeroBeforeAnyCall() {
+        assertEquals(0d, cache.hitRate(), 0d);
+        assertEquals(0d, cache.revalidationRate(), 0d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxEntriesMustBePositive() {
+        ConvertedResponseCache.create(0);
+    }
+
+    /** Converts bodies to strings and counts how often it ran. */
+    static final class CountingConverterFactory extends Converter.Factory {
+        volatile int conversions;
+
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                                Retrofit retrofit) {
+            if (type != String.class) {
+                return null;
+            }
+            return new Converter<ResponseBody, String>() {
+                @Override
+                public String convert(ResponseBody value) throws IOException {
+                    conversions++;
+                    // A new instance each time, so assertSame shows the cached object was reused.
+                    return new String(value.string());
+                }
+            };
+        }
+
+        @Override
+        public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] annotations,
+                                                              Retrofit retrofit) {
+            return null;
+        }
+    }
+}
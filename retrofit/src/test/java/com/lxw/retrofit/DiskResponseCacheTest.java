@@ -0,0 +1,309 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.CacheTtl;
+import com.lxw.retrofit.http.GET;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/15
+ *     desc   : DiskResponseCache 的重新打开、截断尾部、CRC 校验失败、压缩和写入失败计数测试
+ * </pre>
+ */
+public class DiskResponseCacheTest {
+    private static final long MAX_BYTES = 1 << 20;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private DiskResponseCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("cache");
+        cache = DiskResponseCache.open(directory, MAX_BYTES);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        cache.close();
+    }
+
+    @Test
+    public void roundTripAcrossReopen() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60000;
+        cache.put("a", expiresAt, "application/json", "\"v1\"", null, bytes("alpha"));
+        cache.put("b", expiresAt, null, null, "Sat, 15 Sep 2018 00:00:00 GMT", bytes("beta"));
+        cache.put("a", expiresAt + 1, "text/plain", null, null, bytes("alpha 2"));
+        reopen(MAX_BYTES);
+
+        assertEquals(2, cache.entryCount());
+        DiskResponseCache.Record a = cache.get("a");
+        assertNotNull(a);
+        assertEquals("a", a.key);
+        assertEquals(expiresAt + 1, a.expiresAtMillis);
+        assertEquals("text/plain", a.contentType);
+        assertNull(a.etag);
+        assertArrayEquals(bytes("alpha 2"), a.body);
+        DiskResponseCache.Record b = cache.get("b");
+        assertNotNull(b);
+        assertEquals("Sat, 15 Sep 2018 00:00:00 GMT", b.lastModified);
+        assertArrayEquals(bytes("beta"), b.body);
+        assertNull(cache.get("c"));
+        assertEquals(0, cache.corruptionCount());
+    }
+
+    @Test
+    public void touchSurvivesReopen() throws IOException {
+        cache.put("a", 1000, null, "\"v1\"", null, bytes("alpha"));
+        cache.touch("a", 2000);
+        reopen(MAX_BYTES);
+
+        assertEquals(2000, cache.get("a").expiresAtMillis);
+        assertEquals(0, cache.corruptionCount());
+    }
+
+    @Test
+    public void tornTailIsCut() throws IOException {
+        cache.put("a", 1000, null, null, null, bytes("alpha"));
+        cache.put("b", 1000, null, null, null, bytes("beta"));
+        long size = cache.size();
+        cache.close();
+        // The start of a record header whose append did not finish.
+        FileOutputStream out = new FileOutputStream(dataFile(), true);
+        out.write(new byte[]{0x52, 0x45, 0x43, 0x31, 0, 0, 9});
+        out.close();
+        cache = DiskResponseCache.open(directory, MAX_BYTES);
+
+        assertEquals(size, dataFile().length());
+        assertEquals(1, cache.corruptionCount());
+        assertArrayEquals(bytes("alpha"), cache.get("a").body);
+        assertArrayEquals(bytes("beta"), cache.get("b").body);
+    }
+
+    @Test
+    public void crcFailureIsAMiss() throws IOException {
+        cache.put("a", 1000, null, null, null, bytes("alpha"));
+        long firstRecordEnd = cache.size();
+        cache.put("b", 1000, null, null, null, bytes("beta"));
+        cache.close();
+        // Flip a byte of the first record's body, which ends before its CRC.
+        flipByte(dataFile(), firstRecordEnd - 6);
+        cache = DiskResponseCache.open(directory, MAX_BYTES);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.corruptionCount());
+        assertArrayEquals(bytes("beta"), cache.get("b").body);
+    }
+
+    @Test
+    public void rebuiltIndexSkipsCorruptRecords() throws IOException {
+        cache.put("a", 1000, null, null, null, bytes("alpha"));
+        long firstRecordEnd = cache.size();
+        cache.put("b", 1000, null, null, null, bytes("beta"));
+        cache.close();
+        flipByte(dataFile(), firstRecordEnd - 6);
+        flipByte(new File(directory, "responses.index"), 0);
+        cache = DiskResponseCache.open(directory, MAX_BYTES);
+
+        // One for the index, one for the record the scan skipped.
+        assertEquals(2, cache.corruptionCount());
+        assertEquals(1, cache.entryCount());
+        assertNull(cache.get("a"));
+        assertArrayEquals(bytes("beta"), cache.get("b").body);
+    }
+
+    @Test
+    public void compactionKeepsNewestRecords() throws IOException {
+        reopen(16 * 1024);
+        byte[] body = new byte[200];
+        for (int i = 0; i < 300; i++) {
+            cache.put("k" + i, 1000, null, null, null, body);
+        }
+
+        assertTrue(cache.compactionCount() > 0);
+        assertTrue(cache.size() <= 16 * 1024);
+        assertEquals(cache.size(), dataFile().length());
+        assertNotNull(cache.get("k299"));
+        assertNull(cache.get("k0"));
+
+        int entries = cache.entryCount();
+        reopen(16 * 1024);
+        assertEquals(entries, cache.entryCount());
+        assertNotNull(cache.get("k299"));
+        assertNull(cache.get("k0"));
+        assertEquals(0, cache.corruptionCount());
+    }
+
+    @Test
+    public void unknownDataFileIsDiscarded() throws IOException {
+        cache.put("a", 1000, null, null, null, bytes("alpha"));
+        cache.close();
+        flipByte(dataFile(), 0);
+        cache = DiskResponseCache.open(directory, MAX_BYTES);
+
+        assertEquals(0, cache.entryCount());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void enqueueConvertsDiskRecordOffTheCallingThread() throws Throwable {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("hello"));
+        server.start();
+        try {
+            ThreadRecordingConverterFactory converters = new ThreadRecordingConverterFactory();
+            Service service = new Retrofit.Builder()
+                    .baseUrl(server.url("/").toString())
+                    .addConverterFactory(converters)
+                    .diskResponseCache(cache)
+                    .build()
+                    .create(Service.class);
+            assertEquals("hello", service.get().execute().body());
+
+            // A new Retrofit has an empty memory cache, as after a restart.
+            ConvertedResponseCache memory = ConvertedResponseCache.create(10);
+            service = new Retrofit.Builder()
+                    .baseUrl(server.url("/").toString())
+                    .addConverterFactory(converters)
+                    .diskResponseCache(cache)
+                    .convertedResponseCache(memory)
+                    .build()
+                    .create(Service.class);
+            final AtomicReference<String> body = new AtomicReference<>();
+            final CountDownLatch latch = new CountDownLatch(1);
+            service.get().enquue(new Callback<String>() {
+                @Override
+                public void onResponse(Call<String> call, Response<String> response) {
+                    body.set(response.body());
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Call<String> call, Throwable t) {
+                    latch.countDown();
+                }
+            });
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+            assertEquals("hello", body.get());
+            assertEquals(1, server.getRequestCount());
+            assertNotSame(Thread.currentThread(), converters.lastThread);
+            // The fresh disk hit counts as a memory cache hit, not as nothing.
+            assertEquals(1, memory.hitCount());
+            assertEquals(0, memory.missCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void failedWriteIsCountedAndTheCallSucceeds() throws Throwable {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setBody("hello"));
+        server.start();
+        try {
+            Service service = new Retrofit.Builder()
+                    .baseUrl(server.url("/").toString())
+                    .addConverterFactory(new ThreadRecordingConverterFactory())
+                    .diskResponseCache(cache)
+                    .build()
+                    .create(Service.class);
+            // Both the read and the write of the record now fail.
+            cache.close();
+
+            assertEquals("hello", service.get().execute().body());
+            assertEquals(1, cache.writeFailureCount());
+            assertEquals(0, cache.writeCount());
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    interface Service {
+        @CacheTtl(60)
+        @GET("/")
+        Call<String> get();
+    }
+
+    static final class ThreadRecordingConverterFactory extends Converter.Factory {
+        volatile Thread lastThread;
+
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                                Retrofit retrofit) {
+            if (type != String.class) {
+                return null;
+            }
+            return new Converter<ResponseBody, String>() {
+                @Override
+                public String convert(ResponseBody value) throws IOException {
+                    lastThread = Thread.currentThread();
+                    return value.string();
+                }
+            };
+        }
+
+        @Override
+        public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] annotations,
+                                                              Retrofit retrofit) {
+            return null;
+        }
+    }
+
+    private void reopen(long maxBytes) throws IOException {
+        cache.close();
+        cache = DiskResponseCache.open(directory, maxBytes);
+    }
+
+    private File dataFile() {
+        return new File(directory, "responses.data");
+    }
+
+    private static void flipByte(File file, long position) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0xff);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(Charset.forName("UTF-8"));
+    }
+}
@@ -0,0 +1,192 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/08
+ *     desc   : 三种 ErrorBodyPolicy 对小于、等于、大于上限的错误响应体的处理结果，以及读取和丢弃的字节数
+ * </pre>
+ */
+public class ErrorBodyPolicyTest {
+    private static final int LIMIT = 10;
+    private static final String BELOW = "12345";
+    private static final String AT = "0123456789";
+    private static final String ABOVE = "0123456789abcde";
+    private static final String MARKER = "...";
+
+    interface Service {
+        @GET("/")
+        Call<ResponseBody> get();
+    }
+
+    private final MockWebServer server = new MockWebServer();
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void bufferBelowLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.buffer(LIMIT);
+        assertEquals(BELOW, errorBody(policy, BELOW));
+        assertEquals(5, policy.bytesRead());
+        assertEquals(0, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void bufferAtLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.buffer(LIMIT);
+        assertEquals(AT, errorBody(policy, AT));
+        assertEquals(10, policy.bytesRead());
+        assertEquals(0, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void bufferAboveLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.buffer(LIMIT);
+        assertEquals("0123456789", errorBody(policy, ABOVE));
+        // The 5 bytes past the limit arrived in the same segment, so they were read and dropped.
+        assertEquals(15, policy.bytesRead());
+        assertEquals(5, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void truncateBelowLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.truncate(LIMIT, MARKER);
+        assertEquals(BELOW, errorBody(policy, BELOW));
+        assertEquals(5, policy.bytesRead());
+        assertEquals(0, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void truncateAtLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.truncate(LIMIT, MARKER);
+        assertEquals(AT, errorBody(policy, AT));
+        assertEquals(10, policy.bytesRead());
+        assertEquals(0, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void truncateAboveLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.truncate(LIMIT, MARKER);
+        assertEquals("0123456789...", errorBody(policy, ABOVE));
+        assertEquals(15, policy.bytesRead());
+        assertEquals(5, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void discardBelowLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.discard();
+        assertEquals("", errorBody(policy, BELOW));
+        assertEquals(0, policy.bytesRead());
+        assertEquals(5, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void discardAtLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.discard();
+        assertEquals("", errorBody(policy, AT));
+        assertEquals(0, policy.bytesRead());
+        assertEquals(10, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void discardAboveLimit() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.discard();
+        Response<ResponseBody> response = call(policy, new MockResponse()
+                .setResponseCode(500)
+                .setHeader("Content-Type", "application/json")
+                .setBody(ABOVE));
+        assertEquals("", response.errorBody().string());
+        assertEquals("application/json", response.errorBody().contentType().toString());
+        assertEquals(0, policy.bytesRead());
+        assertEquals(15, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void countersAddUpAcrossCalls() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.buffer(LIMIT);
+        errorBody(policy, BELOW);
+        errorBody(policy, ABOVE);
+        assertEquals(20, policy.bytesRead());
+        assertEquals(5, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void largeBodyIsNotReadToTheEnd() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.buffer(LIMIT);
+        Response<ResponseBody> response = call(policy, new MockResponse()
+                .setResponseCode(500)
+                .setBody(new Buffer().write(new byte[100 * 1024])));
+
+        assertEquals(LIMIT, response.errorBody().contentLength());
+        // At most a segment past the limit is read; the declared rest still counts as discarded.
+        assertTrue("read " + policy.bytesRead(), policy.bytesRead() < 100 * 1024);
+        assertEquals(100 * 1024 - LIMIT, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void chunkedBodyAboveLimitCountsWhatWasRead() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.buffer(LIMIT);
+        Response<ResponseBody> response = call(policy, new MockResponse()
+                .setResponseCode(500)
+                .setChunkedBody(ABOVE, 4));
+
+        assertEquals("0123456789", response.errorBody().string());
+        // Without a Content-Length only the bytes read past the limit are known to be dropped.
+        long overRead = policy.bytesRead() - LIMIT;
+        assertTrue("over read " + overRead, overRead > 0 && overRead <= 5);
+        assertEquals(overRead, policy.bytesDiscarded());
+    }
+
+    @Test
+    public void successfulBodiesAreNotCounted() throws Throwable {
+        ErrorBodyPolicy policy = ErrorBodyPolicy.buffer(LIMIT);
+        Response<ResponseBody> response = call(policy, new MockResponse().setBody(ABOVE));
+
+        assertEquals(ABOVE, response.body().string());
+        assertEquals(0, policy.bytesRead());
+        assertEquals(0, policy.bytesDiscarded());
+    }
+
+    private String errorBody(ErrorBodyPolicy policy, String body) throws Throwable {
+        return call(policy, new MockResponse().setResponseCode(500).setBody(body))
+                .errorBody()
+                .string();
+    }
+
+    private Response<ResponseBody> call(ErrorBodyPolicy policy, MockResponse response)
+            throws Throwable {
+        server.enqueue(response);
+        return new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .errorBodyPolicy(policy)
+                .build()
+                .create(Service.class)
+                .get()
+                .execute();
+    }
+}
@@ -0,0 +1,289 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/11
+ *     desc   : FileDownloader 断点续传测试：中断后带 Range/If-Range 重试、416 表示已下完、200 覆盖过期的 .part、长度不符和非预期状态码
+ * </pre>
+ */
+public class FileDownloaderTest {
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Tue, 11 Sep 2018 00:00:00 GMT";
+
+    interface Service {
+        @GET("file")
+        Call<ResponseBody> file();
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final ResumeDispatcher dispatcher = new ResumeDispatcher();
+    private Retrofit retrofit;
+    private File target;
+    private File part;
+    private File validator;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(dispatcher);
+        server.start();
+        retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .build();
+        target = new File(folder.getRoot(), "file");
+        part = new File(target.getPath() + ".part");
+        validator = new File(target.getPath() + ".part.validator");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void interruptedDownloadResumesWithRange() throws Exception {
+        // Larger than one transfer buffer, so part of the body reaches the file before the drop.
+        dispatcher.content = content(300 * 1024);
+        dispatcher.next.add(full().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+
+        new FileDownloader(retrofit).download(call(), target);
+
+        assertArrayEquals(dispatcher.content, readFile(target));
+        assertEquals(2, server.getRequestCount());
+        RecordedRequest first = takeRequest();
+        assertNull(first.getHeader("Range"));
+        RecordedRequest retry = takeRequest();
+        String range = retry.getHeader("Range");
+        long resumedAt = Long.parseLong(range.substring("bytes=".length(), range.length() - 1));
+        assertEquals("bytes=" + resumedAt + "-", range);
+        assertTrue("resumed at " + resumedAt, resumedAt > 0 && resumedAt < dispatcher.content.length);
+        assertEquals(ETAG, retry.getHeader("If-Range"));
+        assertFalse(part.exists());
+        assertFalse(validator.exists());
+    }
+
+    @Test
+    public void weakETagFallsBackToLastModified() throws Exception {
+        dispatcher.content = content(300 * 1024);
+        dispatcher.next.add(full()
+                .setHeader("ETag", "W/\"v1\"")
+                .setHeader("Last-Modified", LAST_MODIFIED)
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        dispatcher.validator = LAST_MODIFIED;
+
+        new FileDownloader(retrofit).download(call(), target);
+
+        assertArrayEquals(dispatcher.content, readFile(target));
+        takeRequest();
+        assertEquals(LAST_MODIFIED, takeRequest().getHeader("If-Range"));
+    }
+
+    @Test
+    public void leftoverPartFileIsResumed() throws Exception {
+        dispatcher.content = content(1000);
+        writeFile(part, Arrays.copyOf(dispatcher.content, 400));
+        writeFile(validator, (ETAG + "\n").getBytes("UTF-8"));
+
+        new FileDownloader(retrofit).download(call(), target);
+
+        assertArrayEquals(dispatcher.content, readFile(target));
+        RecordedRequest request = takeRequest();
+        assertEquals("bytes=400-", request.getHeader("Range"));
+        assertEquals(ETAG, request.getHeader("If-Range"));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void rangeNotSatisfiableMeansThePartIsComplete() throws Exception {
+        dispatcher.content = content(1000);
+        writeFile(part, dispatcher.content);
+        writeFile(validator, (ETAG + "\n").getBytes("UTF-8"));
+        dispatcher.next.add(new MockResponse()
+                .setResponseCode(416)
+                .setHeader("Content-Range", "bytes */1000"));
+
+        new FileDownloader(retrofit).download(call(), target);
+
+        assertArrayEquals(dispatcher.content, readFile(target));
+        assertEquals("bytes=1000-", takeRequest().getHeader("Range"));
+        assertEquals(1, server.getRequestCount());
+        assertFalse(validator.exists());
+    }
+
+    @Test
+    public void changedResourceReplacesTheStalePart() throws Exception {
+        dispatcher.content = content(1000);
+        writeFile(part, content(600));
+        writeFile(validator, "\"v0\"\n".getBytes("UTF-8"));
+
+        new FileDownloader(retrofit).download(call(), target);
+
+        // If-Range no longer matches, so the server sent the whole new body with a 200.
+        assertEquals("\"v0\"", takeRequest().getHeader("If-Range"));
+        assertArrayEquals(dispatcher.content, readFile(target));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void lengthMismatchFails() throws Exception {
+        dispatcher.content = content(1000);
+        writeFile(part, Arrays.copyOf(dispatcher.content, 400));
+        writeFile(validator, (ETAG + "\n").getBytes("UTF-8"));
+        // Announces a 5000 byte resource but the file ends at 1000.
+        dispatcher.next.add(new MockResponse()
+                .setResponseCode(206)
+                .setHeader("ETag", ETAG)
+                .setHeader("Content-Range", "bytes 400-999/5000")
+                .setBody(new Buffer().write(dispatcher.content, 400, 600)));
+
+        try {
+            new FileDownloader(retrofit, 1).download(call(), target);
+            fail();
+        } catch (IOException expected) {
+            assertEquals("Expected 5000 bytes but got 1000", expected.getMessage());
+        }
+        assertFalse(target.exists());
+        // The bytes that did arrive are kept for the next download to resume from.
+        assertEquals(1000, part.length());
+    }
+
+    @Test
+    public void unexpectedStatusIsNotRetried() throws Exception {
+        dispatcher.content = content(1000);
+        dispatcher.next.add(new MockResponse().setResponseCode(404));
+
+        try {
+            new FileDownloader(retrofit, 3).download(call(), target);
+            fail();
+        } catch (FileDownloader.UnexpectedResponseException expected) {
+            assertEquals("HTTP 404 Client Error", expected.getMessage());
+        }
+        assertEquals(1, server.getRequestCount());
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void ioErrorsAreRetriedUpToMaxAttempts() throws Exception {
+        dispatcher.content = content(1000);
+        for (int i = 0; i < 3; i++) {
+            dispatcher.next.add(full()
+                    .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        }
+
+        try {
+            new FileDownloader(retrofit, 2).download(call(), target);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(2, server.getRequestCount());
+        assertFalse(target.exists());
+    }
+
+    private Call<ResponseBody> call() {
+        return retrofit.create(Service.class).file();
+    }
+
+    private RecordedRequest takeRequest() throws InterruptedException {
+        return server.takeRequest(1, TimeUnit.SECONDS);
+    }
+
+    private MockResponse full() {
+        return new MockResponse()
+                .setHeader("ETag", ETAG)
+                .setBody(new Buffer().write(dispatcher.content));
+    }
+
+    /**
+     * Answers with the responses queued in {@link #next} first, then like a static file server:
+     * the rest of {@link #content} for a Range whose If-Range matches, the whole of it otherwise.
+     */
+    static final class ResumeDispatcher extends Dispatcher {
+        final ConcurrentLinkedQueue<MockResponse> next = new ConcurrentLinkedQueue<>();
+        volatile byte[] content;
+        volatile String validator = ETAG;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            MockResponse queued = next.poll();
+            if (queued != null) {
+                return queued;
+            }
+            String range = request.getHeader("Range");
+            if (range == null || !validator.equals(request.getHeader("If-Range"))) {
+                return new MockResponse()
+                        .setHeader("ETag", ETAG)
+                        .setBody(new Buffer().write(content));
+            }
+            int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            return new MockResponse()
+                    .setResponseCode(206)
+                    .setHeader("ETag", ETAG)
+                    .setHeader("Content-Range",
+                            "bytes " + from + "-" + (content.length - 1) + "/" + content.length)
+                    .setBody(new Buffer().write(content, from, content.length - from));
+        }
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private static void writeFile(File file, byte[] bytes) throws IOException {
+        BufferedSink sink = Okio.buffer(Okio.sink(file));
+        try {
+            sink.write(bytes);
+        } finally {
+            sink.close();
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.lxw.retrofit;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import okhttp3.HttpUrl;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/06
+ *     desc   : PercentEncoder 与原来的 canonicalizeForPath、HttpUrl.Builder 的 addQueryParameter/addEncodedQueryParameter 逐字比对
+ * </pre>
+ */
+public class PercentEncoderTest {
+    private static final String PATH_SEGMENT_ALWAYS_ENCODE_SET = " \"<>^`{}|\\?#";
+    private static final char[] HEX_DIGITS = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
+            'A', 'B', 'C', 'D', 'E', 'F'
+    };
+    private static final HttpUrl BASE = HttpUrl.parse("http://example.com/");
+
+    private static final String[] SAMPLES = {
+            "",
+            "plain",
+            "a b",
+            "a+b",
+            "a/b",
+            "100%",
+            "%2F",
+            "%2f%zz%",
+            "%E4%BD%A0",
+            "q=1&r=2",
+            "#frag?x",
+            "!$'()*,;:@[]~",
+            "\"<>^`{}|\\",
+            "tab\there",
+            "line\r\nbreak",
+            "form\ffeed",
+            "\u0000\u0001\u001f\u007f",
+            "éß",
+            "你好",
+            "😀",
+            "lone\ud83d",
+            "lone\ude00",
+            "\ude00\ud83d",
+            "end\ud83d",
+    };
+
+    @Test
+    public void pathSegmentMatchesTheOldEncoder() {
+        for (String sample : SAMPLES) {
+            assertPathParity(sample);
+        }
+    }
+
+    @Test
+    public void queryComponentMatchesHttpUrl() {
+        for (String sample : SAMPLES) {
+            assertQueryParity(sample);
+        }
+    }
+
+    @Test
+    public void randomInputMatches() {
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            String input = randomString(random);
+            assertPathParity(input);
+            assertQueryParity(input);
+        }
+    }
+
+    @Test
+    public void inputNeedingNoChangesIsReturnedAsIs() {
+        String input = "abc-._123";
+        assertSame(input, PercentEncoder.PATH_SEGMENT.encode(input, false));
+        assertSame(input, PercentEncoder.QUERY_COMPONENT.encode(input, false));
+        assertSame(input, PercentEncoder.QUERY_COMPONENT.encode(input, true));
+    }
+
+    @Test
+    public void longInputIsNotTruncated() {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            input.append("你 /");
+        }
+        assertPathParity(input.toString());
+        assertQueryParity(input.toString());
+    }
+
+    private static void assertPathParity(String input) {
+        assertEquals(input, canonicalizeForPath(input, false),
+                PercentEncoder.PATH_SEGMENT.encode(input, false));
+        assertEquals(input, canonicalizeForPath(input, true),
+                PercentEncoder.PATH_SEGMENT.encode(input, true));
+    }
+
+    private static void assertQueryParity(String input) {
+        // Raw values: HttpUrl's own encoding of the value is exactly what the encoder returns.
+        String encoded = PercentEncoder.QUERY_COMPONENT.encode(input, false);
+        assertEquals(input, BASE.newBuilder().addQueryParameter(input, null).build().encodedQuery(),
+                encoded);
+        assertEquals(input,
+                BASE.newBuilder().addQueryParameter(input, input).build(),
+                BASE.newBuilder().addEncodedQueryParameter(encoded, encoded).build());
+
+        // Encoded values: handing the encoder's output to HttpUrl ends in the same URL.
+        String reencoded = PercentEncoder.QUERY_COMPONENT.encode(input, true);
+        assertEquals(input,
+                BASE.newBuilder().addEncodedQueryParameter(input, input).build(),
+                BASE.newBuilder().addEncodedQueryParameter(reencoded, reencoded).build());
+    }
+
+    private static String randomString(Random random) {
+        char[] chars = new char[random.nextInt(12)];
+        for (int i = 0; i < chars.length; i++) {
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                chars[i] = (char) random.nextInt(0x80);
+            } else if (kind < 7) {
+                chars[i] = "%+/\t\r\n".charAt(random.nextInt(6));
+            } else if (kind < 8) {
+                chars[i] = (char) (0x80 + random.nextInt(0x780));
+            } else if (kind < 9) {
+                chars[i] = (char) (0x800 + random.nextInt(0xd000));
+            } else {
+                // Surrogates, paired or not depending on their neighbours.
+                chars[i] = (char) (0xd800 + random.nextInt(0x800));
+            }
+        }
+        return new String(chars);
+    }
+
+    /** The path encoder RequestBuilder used before PercentEncoder. */
+    private static String canonicalizeForPath(String input, boolean alreadyEncoded) {
+        int codePoint;
+        for (int i = 0, limit = input.length(); i < limit; i += Character.charCount(codePoint)) {
+            codePoint = input.codePointAt(i);
+            if (codePoint < 0x20 || codePoint >= 0x7f
+                    || PATH_SEGMENT_ALWAYS_ENCODE_SET.indexOf(codePoint) != -1
+                    || (!alreadyEncoded && (codePoint == '/' || codePoint == '%'))) {
+                Buffer out = new Buffer();
+                out.writeUtf8(input, 0, i);
+                canonicalizeForPath(out, input, i, limit, alreadyEncoded);
+                return out.readUtf8();
+            }
+        }
+        return input;
+    }
+
+    private static void canonicalizeForPath(Buffer out, String input, int pos, int limit,
+                                            boolean alreadyEncoded) {
+        Buffer utf8Buffer = null;
+        int codePoint;
+        for (int i = pos; i < limit; i += Character.charCount(codePoint)) {
+            codePoint = input.codePointAt(i);
+            if (alreadyEncoded
+                    && (codePoint == '\t' || codePoint == '\n' || codePoint == '\f' || codePoint == '\r')) {
+                // Skip this character.
+            } else if (codePoint < 0x20 || codePoint >= 0x7f
+                    || PATH_SEGMENT_ALWAYS_ENCODE_SET.indexOf(codePoint) != -1
+                    || (!alreadyEncoded && (codePoint == '/' || codePoint == '%'))) {
+                if (utf8Buffer == null) {
+                    utf8Buffer = new Buffer();
+                }
+                utf8Buffer.writeUtf8CodePoint(codePoint);
+                while (!utf8Buffer.exhausted()) {
+                    int b = utf8Buffer.readByte() & 0xff;
+                    out.writeByte('%');
+                    out.writeByte(HEX_DIGITS[(b >> 4) & 0xf]);
+                    out.writeByte(HEX_DIGITS[b & 0xf]);
+                }
+            } else {
+                out.writeUtf8CodePoint(codePoint);
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/11
+ *     desc   : RangedDownloader 对支持 Range 的本地服务的分块偏移、块内续传、5xx 重试和单连接回退测试
+ * </pre>
+ */
+public class RangedDownloaderTest {
+    private static final String ETAG = "\"v1\"";
+
+    interface Service {
+        @GET("file")
+        Call<ResponseBody> file();
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final MockWebServer server = new MockWebServer();
+    private final RangeDispatcher dispatcher = new RangeDispatcher();
+    private Retrofit retrofit;
+    private File target;
+
+    @Before
+    public void setUp() throws IOException {
+        server.setDispatcher(dispatcher);
+        server.start();
+        retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .build();
+        target = new File(folder.getRoot(), "file");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void chunksCoverTheFileAtTheirOffsets() throws IOException {
+        dispatcher.content = content(1000);
+
+        RangedDownloader.Result result = downloader(300).download(call(), target);
+
+        assertEquals(1000, result.bytes());
+        assertEquals(4, result.chunks());
+        assertEquals(0, result.retries());
+        assertArrayEquals(dispatcher.content, readFile(target));
+        assertFalse(new File(target.getPath() + ".part").exists());
+        List<String> ranges = dispatcher.ranges();
+        assertEquals(ranges.toString(), 5, ranges.size());
+        assertEquals("bytes=0-0", ranges.get(0));
+        assertEquals(
+                Arrays.asList("bytes=0-299", "bytes=300-599", "bytes=600-899", "bytes=900-999"),
+                sorted(ranges.subList(1, 5)));
+        assertEquals(4, dispatcher.ifRangeCount);
+    }
+
+    @Test
+    public void interruptedChunkResumesWithinTheChunk() throws IOException {
+        // Larger than one transfer buffer, so part of the chunk reaches the file before the drop.
+        dispatcher.content = content(300 * 1024);
+        dispatcher.disconnectOnce = "bytes=0-204799";
+
+        RangedDownloader.Result result = downloader(200 * 1024).download(call(), target);
+
+        assertEquals(2, result.chunks());
+        assertEquals(1, result.retries());
+        assertArrayEquals(dispatcher.content, readFile(target));
+        long resumedAt = -1;
+        for (String range : dispatcher.ranges()) {
+            if (range.endsWith("-204799") && !range.equals("bytes=0-204799")) {
+                resumedAt = Long.parseLong(range.substring("bytes=".length(), range.indexOf('-')));
+            }
+        }
+        assertTrue("resumed at " + resumedAt, resumedAt > 0 && resumedAt < 204799);
+    }
+
+    @Test
+    public void serviceUnavailableIsRetried() throws IOException {
+        dispatcher.content = content(1000);
+        dispatcher.failOnce.put("bytes=300-599", 503);
+        dispatcher.failOnce.put("bytes=600-899", 429);
+
+        RangedDownloader.Result result = downloader(300).download(call(), target);
+
+        assertEquals(2, result.retries());
+        assertArrayEquals(dispatcher.content, readFile(target));
+    }
+
+    @Test
+    public void notFoundIsNotRetried() throws IOException {
+        dispatcher.content = content(1000);
+        dispatcher.failOnce.put("bytes=300-599", 404);
+
+        try {
+            downloader(300).download(call(), target);
+            fail();
+        } catch (FileDownloader.UnexpectedResponseException expected) {
+        }
+        int attempts = 0;
+        for (String range : dispatcher.ranges()) {
+            if (range.equals("bytes=300-599")) {
+                attempts++;
+            }
+        }
+        assertEquals(1, attempts);
+        assertFalse(target.exists());
+    }
+
+    @Test
+    public void serverWithoutRangesFallsBackToOneConnection() throws IOException {
+        dispatcher.content = content(1000);
+        dispatcher.rangesSupported = false;
+
+        RangedDownloader.Result result = downloader(300).download(call(), target);
+
+        assertEquals(1000, result.bytes());
+        assertEquals(1, result.chunks());
+        assertArrayEquals(dispatcher.content, readFile(target));
+        // The probe, then the FileDownloader request.
+        assertEquals(2, server.getRequestCount());
+    }
+
+    private RangedDownloader downloader(long chunkSize) {
+        return new RangedDownloader.Builder(retrofit)
+                .chunkSize(chunkSize)
+                .parallelism(2)
+                .build();
+    }
+
+    private Call<ResponseBody> call() {
+        return retrofit.create(Service.class).file();
+    }
+
+    /** Serves {@link #content} with single byte ranges and an ETag, like a static file server. */
+    static final class RangeDispatcher extends Dispatcher {
+        volatile byte[] content;
+        volatile boolean rangesSupported = true;
+        volatile String disconnectOnce;
+        final Map<String, Integer> failOnce = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<String> ranges = new ConcurrentLinkedQueue<>();
+        volatile int ifRangeCount;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String range = request.getHeader("Range");
+            ranges.add(String.valueOf(range));
+            if (!rangesSupported || range == null) {
+                return new MockResponse().setBody(new Buffer().write(content));
+            }
+            if (ETAG.equals(request.getHeader("If-Range"))) {
+                synchronized (this) {
+                    ifRangeCount++;
+                }
+            }
+            Integer failure = failOnce.remove(range);
+            if (failure != null) {
+                return new MockResponse().setResponseCode(failure);
+            }
+            int dash = range.indexOf('-');
+            int from = Integer.parseInt(range.substring("bytes=".length(), dash));
+            int to = dash == range.length() - 1
+                    ? content.length - 1
+                    : Math.min(Integer.parseInt(range.substring(dash + 1)), content.length - 1);
+            MockResponse response = new MockResponse()
+                    .setResponseCode(206)
+                    .setHeader("ETag", ETAG)
+                    .setHeader("Content-Range", "bytes " + from + "-" + to + "/" + content.length)
+                    .setBody(new Buffer().write(content, from, to - from + 1));
+            if (range.equals(disconnectOnce)) {
+                disconnectOnce = null;
+                response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+            }
+            return response;
+        }
+
+        List<String> ranges() {
+            return new ArrayList<>(ranges);
+        }
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> sorted = new ArrayList<>(list);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}
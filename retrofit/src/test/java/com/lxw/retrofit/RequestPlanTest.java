@@ -0,0 +1,105 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.Header;
+import com.lxw.retrofit.http.Path;
+import com.lxw.retrofit.http.Query;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/07
+ *     desc   : RequestPlan 按参数种类展开集合/数组参数的测试，请求只构建不发送
+ * </pre>
+ */
+public class RequestPlanTest {
+    interface Service {
+        @GET("ping")
+        Call<ResponseBody> noArgs();
+
+        @GET("users/{user}")
+        Call<ResponseBody> single(@Path("user") String user, @Query("page") int page);
+
+        @GET("search")
+        Call<ResponseBody> iterable(@Query("tag") List<String> tags);
+
+        @GET("search")
+        Call<ResponseBody> array(@Query("tag") String[] tags);
+
+        @GET("search")
+        Call<ResponseBody> primitiveArray(@Query("id") int[] ids);
+
+        @GET("search")
+        Call<ResponseBody> headers(@Header("X-Tag") List<String> tags);
+    }
+
+    private Service service;
+
+    @Before
+    public void setUp() {
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl("http://example.com/")
+                .build();
+        service = retrofit.create(Service.class);
+    }
+
+    @Test
+    public void noArgs() {
+        // 动态代理对无参方法传入的 args 为 null
+        Request request = service.noArgs().request();
+        assertEquals("http://example.com/ping", request.url().toString());
+    }
+
+    @Test
+    public void single() {
+        Request request = service.single("a b", 2).request();
+        assertEquals("http://example.com/users/a%20b?page=2", request.url().toString());
+    }
+
+    @Test
+    public void iterable() {
+        Request request = service.iterable(Arrays.asList("x", null, "y")).request();
+        assertEquals("http://example.com/search?tag=x&tag=y", request.url().toString());
+    }
+
+    @Test
+    public void emptyAndNullIterable() {
+        assertEquals("http://example.com/search",
+                service.iterable(Collections.<String>emptyList()).request().url().toString());
+        assertEquals("http://example.com/search",
+                service.iterable(null).request().url().toString());
+    }
+
+    @Test
+    public void array() {
+        Request request = service.array(new String[]{"x", "y"}).request();
+        assertEquals("http://example.com/search?tag=x&tag=y", request.url().toString());
+    }
+
+    @Test
+    public void primitiveArray() {
+        Request request = service.primitiveArray(new int[]{1, 2, 3}).request();
+        assertEquals("http://example.com/search?id=1&id=2&id=3", request.url().toString());
+        assertEquals("http://example.com/search",
+                service.primitiveArray(null).request().url().toString());
+    }
+
+    @Test
+    public void iterableHeader() {
+        Request request = service.headers(Arrays.asList("x", "y")).request();
+        assertEquals(Arrays.asList("x", "y"), request.headers("X-Tag"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.Path;
+import com.lxw.retrofit.http.Query;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/07
+ *     desc   : 请求地址构建方式的 JMH 对比：基于 baseUrl 的 newBuilder/resolve 与拼成完整字符串后 HttpUrl.parse
+ * </pre>
+ *
+ * The {@code builder} and {@code resolve} benchmarks are what RequestBuilder does. The
+ * {@code parse} ones append everything to the base URL string and parse it once, which
+ * canonicalizes the scheme and host again and allocates about twice as much. Run
+ * {@link #main} from the unit test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestUrlBenchmark {
+    private static final String RELATIVE_URL = "repos/square/retrofit/issues";
+    private static final String[][] QUERY = {
+            {"state", "open"}, {"labels", "bug,help wanted"}, {"sort", "updated"},
+            {"direction", "desc"}, {"page", "3"}};
+
+    interface Service {
+        @GET("repos/{owner}/{repo}/issues")
+        Call<ResponseBody> issues(@Path("owner") String owner, @Path("repo") String repo,
+                                  @Query("state") String state, @Query("labels") String labels,
+                                  @Query("sort") String sort, @Query("direction") String direction,
+                                  @Query("page") int page);
+
+        @GET("repos/{owner}/{repo}")
+        Call<ResponseBody> repo(@Path("owner") String owner, @Path("repo") String repo);
+    }
+
+    private HttpUrl baseUrl;
+    private String prefix;
+    private Service service;
+
+    @Setup
+    public void setUp() {
+        baseUrl = HttpUrl.parse("https://api.github.com/v3/");
+        prefix = baseUrl.toString();
+        service = new Retrofit.Builder()
+                .baseUrl(baseUrl.toString())
+                .build()
+                .create(Service.class);
+    }
+
+    @Benchmark
+    public HttpUrl parseWithQuery() {
+        StringBuilder url = new StringBuilder(prefix).append(RELATIVE_URL);
+        char separator = '?';
+        for (String[] pair : QUERY) {
+            url.append(separator)
+                    .append(PercentEncoder.QUERY_COMPONENT.encode(pair[0], false))
+                    .append('=')
+                    .append(PercentEncoder.QUERY_COMPONENT.encode(pair[1], false));
+            separator = '&';
+        }
+        return HttpUrl.parse(url.toString());
+    }
+
+    @Benchmark
+    public HttpUrl builderWithQuery() {
+        HttpUrl.Builder builder = baseUrl.newBuilder(RELATIVE_URL);
+        for (String[] pair : QUERY) {
+            builder.addEncodedQueryParameter(
+                    PercentEncoder.QUERY_COMPONENT.encode(pair[0], false),
+                    PercentEncoder.QUERY_COMPONENT.encode(pair[1], false));
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public HttpUrl parseWithoutQuery() {
+        return HttpUrl.parse(prefix + RELATIVE_URL);
+    }
+
+    @Benchmark
+    public HttpUrl resolveWithoutQuery() {
+        return baseUrl.resolve(RELATIVE_URL);
+    }
+
+    /** Whole requests, for scale. */
+    @Benchmark
+    public Request requestWithQuery() {
+        return service.issues("square", "retrofit", "open", "bug,help wanted", "updated", "desc", 3)
+                .request();
+    }
+
+    @Benchmark
+    public Request requestWithoutQuery() {
+        return service.repo("square", "retrofit").request();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RequestUrlBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,207 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.Body;
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.POST;
+import com.lxw.retrofit.http.Query;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Retention;
+import java.lang.reflect.Type;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/05
+ *     desc   : 转换器查找缓存按类型和限定注解区分，注解不同的方法不会拿到同一个转换器
+ * </pre>
+ */
+public class ResolutionCacheTest {
+    @Retention(RUNTIME)
+    @interface Upper {
+    }
+
+    @Retention(RUNTIME)
+    @interface Reversed {
+    }
+
+    interface Service {
+        @Upper
+        @GET("a")
+        Call<String> upper();
+
+        @Reversed
+        @GET("b")
+        Call<String> reversed();
+
+        @GET("c")
+        Call<String> plain();
+
+        @Upper
+        @GET("d")
+        Call<String> upperAgain();
+
+        @POST("e")
+        Call<ResponseBody> post(@Upper @Body String body, @Reversed @Query("q") String q);
+
+        @POST("f")
+        Call<ResponseBody> postPlain(@Body String body, @Query("q") String q);
+    }
+
+    private final MockWebServer server = new MockWebServer();
+    private final QualifierConverterFactory factory = new QualifierConverterFactory();
+    private Retrofit retrofit;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        retrofit = new Retrofit.Builder()
+                .baseUrl(server.url("/").toString())
+                .addConverterFactory(factory)
+                .build();
+        service = retrofit.create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void responseConvertersFollowQualifiers() throws Throwable {
+        for (int i = 0; i < 4; i++) {
+            server.enqueue(new MockResponse().setBody("abc"));
+        }
+
+        assertEquals("ABC", service.upper().execute().body());
+        assertEquals("cba", service.reversed().execute().body());
+        assertEquals("abc", service.plain().execute().body());
+        assertEquals("ABC", service.upperAgain().execute().body());
+        // The fourth method has the same type and qualifier as the first, so it is a cache hit.
+        assertEquals(3, factory.responseLookups);
+    }
+
+    @Test
+    public void requestAndStringConvertersFollowQualifiers() throws IOException {
+        Request qualified = service.post("abc", "xyz").request();
+        assertEquals("ABC", bodyOf(qualified));
+        assertEquals("zyx", qualified.url().queryParameter("q"));
+
+        Request plain = service.postPlain("abc", "xyz").request();
+        assertEquals("abc", bodyOf(plain));
+        assertEquals("xyz", plain.url().queryParameter("q"));
+    }
+
+    @Test
+    public void directLookupsKeepQualifiersApart() throws Exception {
+        Annotation[] upper = Service.class.getDeclaredMethod("upper").getAnnotations();
+        Annotation[] reversed = Service.class.getDeclaredMethod("reversed").getAnnotations();
+
+        Converter<ResponseBody, String> a = retrofit.responseBodyConverter(String.class, upper);
+        Converter<ResponseBody, String> b = retrofit.responseBodyConverter(String.class, reversed);
+        assertEquals("ABC", a.convert(ResponseBody.create(null, "abc")));
+        assertEquals("cba", b.convert(ResponseBody.create(null, "abc")));
+        // @GET differs between the two methods but is not part of the key.
+        Annotation[] upperAgain = Service.class.getDeclaredMethod("upperAgain").getAnnotations();
+        assertEquals(a, retrofit.responseBodyConverter(String.class, upperAgain));
+    }
+
+    private static String bodyOf(Request request) throws IOException {
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        return buffer.readUtf8();
+    }
+
+    /** Upper-cases values annotated {@link Upper} and reverses those annotated {@link Reversed}. */
+    static final class QualifierConverterFactory extends Converter.Factory {
+        int responseLookups;
+
+        @Override
+        public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+                                                                Retrofit retrofit) {
+            if (type != String.class) {
+                return null;
+            }
+            responseLookups++;
+            final StringConverter strings = stringConverter(annotations);
+            return new Converter<ResponseBody, String>() {
+                @Override
+                public String convert(ResponseBody value) throws IOException {
+                    return strings.convert(value.string());
+                }
+            };
+        }
+
+        @Override
+        public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] annotations,
+                                                              Retrofit retrofit) {
+            if (type != String.class) {
+                return null;
+            }
+            final StringConverter strings = stringConverter(annotations);
+            return new Converter<String, RequestBody>() {
+                @Override
+                public RequestBody convert(String value) throws IOException {
+                    return RequestBody.create(MediaType.parse("text/plain"), strings.convert(value));
+                }
+            };
+        }
+
+        @Override
+        public Converter<?, String> stringConverter(Type type, Annotation[] annotations,
+                                                    Retrofit retrofit) {
+            return type == String.class ? stringConverter(annotations) : null;
+        }
+
+        private static StringConverter stringConverter(Annotation[] annotations) {
+            for (Annotation annotation : annotations) {
+                if (annotation instanceof Upper) {
+                    return StringConverter.UPPER;
+                }
+                if (annotation instanceof Reversed) {
+                    return StringConverter.REVERSED;
+                }
+            }
+            return StringConverter.PLAIN;
+        }
+    }
+
+    enum StringConverter implements Converter<String, String> {
+        PLAIN {
+            @Override
+            public String convert(String value) {
+                return value;
+            }
+        },
+        UPPER {
+            @Override
+            public String convert(String value) {
+                return value.toUpperCase();
+            }
+        },
+        REVERSED {
+            @Override
+            public String convert(String value) {
+                return new StringBuilder(value).reverse().toString();
+            }
+        }
+    }
+}
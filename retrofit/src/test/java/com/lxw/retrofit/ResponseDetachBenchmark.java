@@ -0,0 +1,107 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/13
+ *     desc   : 解析响应时直接引用原始响应与为每个响应复制一份去掉 body 的 okhttp3.Response 的 JMH 对比
+ * </pre>
+ *
+ * {@link #copied} is the removed per-response copy, kept here as the baseline. main() runs the
+ * GC profiler, whose {@code gc.alloc.rate.norm} is the number to compare. Run {@link #main}
+ * from the unit test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDetachBenchmark {
+    interface Service {
+        @GET("/")
+        Call<Void> get();
+    }
+
+    private okhttp3.Response rawResponse;
+    private OkHttpCall<Void> call;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        okhttp3.Response.Builder builder = new okhttp3.Response.Builder()
+                .request(new Request.Builder().url("https://api.github.com/").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(MediaType.parse("application/json"), new byte[0]));
+        // A dozen headers, as a typical API response has.
+        String[] names = {"Server", "Date", "Content-Type", "Cache-Control", "Vary", "ETag",
+                "X-RateLimit-Limit", "X-RateLimit-Remaining", "X-RateLimit-Reset",
+                "X-Frame-Options", "X-Content-Type-Options", "X-Request-Id"};
+        for (int i = 0; i < names.length; i++) {
+            builder.addHeader(names[i], "value-" + i);
+        }
+        rawResponse = builder.build();
+        call = (OkHttpCall<Void>) new Retrofit.Builder()
+                .baseUrl("https://api.github.com/")
+                .build()
+                .create(Service.class)
+                .get();
+    }
+
+    @Benchmark
+    public int detached() {
+        Response<Object> response = Response.successDetached(null, rawResponse);
+        return response.code() + response.headers().size();
+    }
+
+    @Benchmark
+    public int copied() {
+        ResponseBody rawBody = rawResponse.body();
+        okhttp3.Response copy = rawResponse.newBuilder()
+                .body(new OkHttpCall.NoContentResponseBody(rawBody.contentType(), rawBody.contentLength()))
+                .build();
+        Response<Object> response = Response.success(null, copy);
+        return response.code() + response.headers().size();
+    }
+
+    /** The whole of OkHttpCall.parseResponse with a Void converter, for scale. */
+    @Benchmark
+    public Response<Void> parseResponse() throws IOException {
+        return call.parseResponse(rawResponse);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ResponseDetachBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.Coalesce;
+import com.lxw.retrofit.http.GET;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/03
+ *     desc   : 解析失败的方法不算已加载：统计接口跳过它而不是抛出解析错误，下次调用重新解析
+ * </pre>
+ */
+public class ServiceMethodCacheTest {
+    interface Service {
+        @Coalesce
+        @GET("/")
+        Call<ResponseBody> good();
+
+        // No HTTP method annotation, so parsing fails.
+        Call<ResponseBody> broken();
+    }
+
+    private Retrofit retrofit;
+    private Service service;
+    private Method good;
+    private Method broken;
+
+    @Before
+    public void setUp() throws Exception {
+        retrofit = new Retrofit.Builder()
+                .baseUrl("http://localhost/")
+                .recordRequestBuildTime(true)
+                .build();
+        service = retrofit.create(Service.class);
+        good = Service.class.getDeclaredMethod("good");
+        broken = Service.class.getDeclaredMethod("broken");
+    }
+
+    @Test
+    public void failedParseIsNotLoaded() {
+        assertFalse(retrofit.isServiceMethodLoaded(broken));
+        parseBroken();
+
+        assertFalse(retrofit.isServiceMethodLoaded(broken));
+    }
+
+    @Test
+    public void successfulParseIsLoaded() {
+        assertFalse(retrofit.isServiceMethodLoaded(good));
+        ServiceMethod<?, ?> serviceMethod = retrofit.loadServiceMethod(good);
+
+        assertTrue(retrofit.isServiceMethodLoaded(good));
+        assertSame(serviceMethod, retrofit.loadServiceMethod(good));
+    }
+
+    @Test
+    public void statsSkipMethodsThatFailedToParse() throws Exception {
+        service.good().request();
+        parseBroken();
+        // The parsing thread forgets its failure right after it sees it; until then another
+        // thread finds the failed task in the cache.
+        plantFailedParse(broken);
+
+        assertFalse(retrofit.isServiceMethodLoaded(broken));
+        List<RequestBuildTiming> timings = retrofit.requestBuildTimings(Service.class);
+        assertEquals(1, timings.size());
+        assertEquals(good, timings.get(0).method());
+        List<CoalescingStats> stats = retrofit.coalescingStats(Service.class);
+        assertEquals(1, stats.size());
+        assertEquals(good, stats.get(0).method());
+    }
+
+    @Test
+    public void failedParseIsRetried() {
+        String first = parseBroken();
+        // The failure is not cached, so the next call parses again and fails the same way.
+        assertEquals(first, parseBroken());
+    }
+
+    @Test
+    public void methodsNeverCalledAreNotReported() {
+        assertTrue(retrofit.requestBuildTimings(Service.class).isEmpty());
+        assertTrue(retrofit.coalescingStats(Service.class).isEmpty());
+    }
+
+    private String parseBroken() {
+        try {
+            service.broken();
+            fail();
+            return null;
+        } catch (IllegalArgumentException expected) {
+            return expected.getMessage();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void plantFailedParse(Method method) throws Exception {
+        FutureTask<ServiceMethod<?, ?>> task = new FutureTask<>(
+                new Callable<ServiceMethod<?, ?>>() {
+                    @Override
+                    public ServiceMethod<?, ?> call() {
+                        throw new IllegalArgumentException("parse failed");
+                    }
+                });
+        task.run();
+        Field serviceMethodCache = Retrofit.class.getDeclaredField("serviceMethodCache");
+        serviceMethodCache.setAccessible(true);
+        Field cache = ServiceMethodCache.class.getDeclaredField("cache");
+        cache.setAccessible(true);
+        ((Map<Method, FutureTask<ServiceMethod<?, ?>>>) cache.get(serviceMethodCache.get(retrofit)))
+                .put(method, task);
+    }
+}
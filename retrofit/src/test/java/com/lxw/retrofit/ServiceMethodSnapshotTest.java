@@ -0,0 +1,153 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.Body;
+import com.lxw.retrofit.http.Field;
+import com.lxw.retrofit.http.FormUrlEncoded;
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.Header;
+import com.lxw.retrofit.http.Headers;
+import com.lxw.retrofit.http.POST;
+import com.lxw.retrofit.http.Path;
+import com.lxw.retrofit.http.Query;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/04
+ *     desc   : ServiceMethodSnapshot 写入读回后构建的请求与重新解析一致；接口哈希不符时快照失效
+ * </pre>
+ */
+public class ServiceMethodSnapshotTest {
+    interface Service {
+        @GET("users/{user}?static=1")
+        @Headers("X-Static: yes")
+        Call<ResponseBody> user(@Path("user") String user, @Query("tag") String[] tags,
+                                @Header("X-Token") String token);
+
+        @FormUrlEncoded
+        @POST("form")
+        Call<ResponseBody> form(@Field("a") String a);
+
+        @POST("body")
+        Call<ResponseBody> body(@Body RequestBody body);
+    }
+
+    interface Other {
+        @GET("other")
+        Call<ResponseBody> other();
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTrip() throws Exception {
+        File file = folder.newFile("snapshot");
+        ServiceMethodSnapshot.capture(retrofit(null), Service.class).write(file);
+        ServiceMethodSnapshot snapshot = ServiceMethodSnapshot.read(file);
+        assertEquals(1, snapshot.serviceCount());
+
+        Retrofit retrofit = retrofit(snapshot);
+        for (Method method : Service.class.getDeclaredMethods()) {
+            assertNotNull(method.getName(), retrofit.snapshotMetadata(method));
+        }
+        assertNull(retrofit.snapshotMetadata(Other.class.getDeclaredMethod("other")));
+        assertSameRequests(retrofit(null).create(Service.class), retrofit.create(Service.class));
+    }
+
+    @Test
+    public void changedInterfaceHashInvalidatesTheService() throws Exception {
+        File file = folder.newFile("snapshot");
+        ServiceMethodSnapshot.capture(retrofit(null), Service.class).write(file);
+        // The hash follows the magic, the version, the service count and the service name.
+        int hashOffset = 12 + 2 + Service.class.getName().length();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(hashOffset);
+        long hash = raf.readLong();
+        assertEquals(ServiceMethodSnapshot.serviceHash(Service.class), hash);
+        raf.seek(hashOffset);
+        raf.writeLong(hash + 1);
+        raf.close();
+
+        Retrofit retrofit = retrofit(ServiceMethodSnapshot.read(file));
+        assertNull(retrofit.snapshotMetadata(Service.class.getDeclaredMethod("form", String.class)));
+        // Methods are parsed as usual.
+        assertSameRequests(retrofit(null).create(Service.class), retrofit.create(Service.class));
+    }
+
+    @Test
+    public void serviceHashIsStable() {
+        assertEquals(ServiceMethodSnapshot.serviceHash(Service.class),
+                ServiceMethodSnapshot.serviceHash(Service.class));
+        assertNotEquals(ServiceMethodSnapshot.serviceHash(Service.class),
+                ServiceMethodSnapshot.serviceHash(Other.class));
+    }
+
+    @Test
+    public void corruptFileThrows() throws IOException {
+        File file = folder.newFile("snapshot");
+        ServiceMethodSnapshot.capture(retrofit(null), Service.class).write(file);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.writeInt(0);
+        raf.close();
+        try {
+            ServiceMethodSnapshot.read(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    private static Retrofit retrofit(ServiceMethodSnapshot snapshot) {
+        return new Retrofit.Builder()
+                .baseUrl("http://example.com/base/")
+                .serviceMethodSnapshot(snapshot)
+                .build();
+    }
+
+    private static void assertSameRequests(Service expected, Service actual) throws IOException {
+        assertSameRequest(
+                expected.user("a b", new String[]{"x", "y"}, "t").request(),
+                actual.user("a b", new String[]{"x", "y"}, "t").request());
+        assertSameRequest(expected.form("1 2").request(), actual.form("1 2").request());
+        RequestBody body = RequestBody.create(MediaType.parse("text/plain"), "hello");
+        assertSameRequest(expected.body(body).request(), actual.body(body).request());
+    }
+
+    private static void assertSameRequest(Request expected, Request actual) throws IOException {
+        assertEquals(expected.method(), actual.method());
+        assertEquals(expected.url(), actual.url());
+        assertEquals(expected.headers(), actual.headers());
+        assertEquals(bodyOf(expected), bodyOf(actual));
+    }
+
+    private static String bodyOf(Request request) throws IOException {
+        if (request.body() == null) {
+            return null;
+        }
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        return request.body().contentType() + " " + buffer.readUtf8();
+    }
+}
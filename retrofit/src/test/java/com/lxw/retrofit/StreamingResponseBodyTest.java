@@ -0,0 +1,174 @@
+package com.lxw.retrofit;
+
+import com.lxw.retrofit.http.GET;
+import com.lxw.retrofit.http.Streaming;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <pre>
+ *     author : lxw
+ *     e-mail : lsw@tairunmh.com
+ *     time   : 2018/09/08
+ *     desc   : @Streaming 下载比堆还大的响应体，检查打开数和泄漏数
+ * </pre>
+ */
+public class StreamingResponseBodyTest {
+    interface Service {
+        @Streaming
+        @GET("download")
+        Call<ResponseBody> download();
+    }
+
+    private ZeroServer server;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        // MockWebServer keeps the whole body in memory, so this server writes it as it goes.
+        server = new ZeroServer(Runtime.getRuntime().maxMemory() + 8 * 1024 * 1024);
+        service = new Retrofit.Builder()
+                .baseUrl("http://" + server.host() + "/")
+                .build()
+                .create(Service.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void bodyLargerThanTheHeapStreams() throws Throwable {
+        int open = StreamingResponseBody.openCount();
+        long leaked = StreamingResponseBody.leakedCount();
+
+        ResponseBody body = service.download().execute().body();
+        assertEquals(server.length, body.contentLength());
+        assertEquals(open + 1, StreamingResponseBody.openCount());
+
+        InputStream in = body.byteStream();
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            total += read;
+        }
+        in.close();
+
+        assertEquals(server.length, total);
+        assertEquals(open, StreamingResponseBody.openCount());
+        assertEquals(leaked, StreamingResponseBody.leakedCount());
+    }
+
+    @Test
+    public void unclosedBodyIsCountedAsLeaked() throws Throwable {
+        int open = StreamingResponseBody.openCount();
+        long leaked = StreamingResponseBody.leakedCount();
+
+        ResponseBody body = service.download().execute().body();
+        body.source().readByte();
+        assertEquals(open + 1, StreamingResponseBody.openCount());
+        body = null;
+
+        for (int i = 0; i < 50 && StreamingResponseBody.leakedCount() == leaked; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(leaked + 1, StreamingResponseBody.leakedCount());
+        assertEquals(open, StreamingResponseBody.openCount());
+        // The leaked body's connection was closed, so the server stopped writing.
+        assertTrue(server.awaitDisconnect());
+    }
+
+    /** Answers every request with {@code length} zero bytes. */
+    static final class ZeroServer implements Runnable {
+        final long length;
+        private final ServerSocket serverSocket;
+        private final Object lock = new Object();
+        private boolean disconnected;
+
+        ZeroServer(long length) throws IOException {
+            this.length = length;
+            this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+            Thread thread = new Thread(this, "ZeroServer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        String host() {
+            return "localhost:" + serverSocket.getLocalPort();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    serve(serverSocket.accept());
+                }
+            } catch (IOException ignored) {
+                // Closed.
+            }
+        }
+
+        private void serve(Socket socket) {
+            try {
+                InputStream in = socket.getInputStream();
+                // Skips the request head.
+                for (int state = 0; state < 4; ) {
+                    int b = in.read();
+                    if (b == -1) {
+                        return;
+                    }
+                    state = b == (state % 2 == 0 ? '\r' : '\n') ? state + 1 : 0;
+                }
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + length
+                        + "\r\nConnection: close\r\n\r\n").getBytes(Charset.forName("US-ASCII")));
+                byte[] chunk = new byte[64 * 1024];
+                for (long remaining = length; remaining > 0; remaining -= chunk.length) {
+                    out.write(chunk, 0, (int) Math.min(chunk.length, remaining));
+                }
+                out.flush();
+            } catch (IOException e) {
+                synchronized (lock) {
+                    disconnected = true;
+                    lock.notifyAll();
+                }
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+
+        boolean awaitDisconnect() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10000;
+            synchronized (lock) {
+                while (!disconnected && System.currentTimeMillis() < deadline) {
+                    lock.wait(deadline - System.currentTimeMillis());
+                }
+                return disconnected;
+            }
+        }
+
+        void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+}